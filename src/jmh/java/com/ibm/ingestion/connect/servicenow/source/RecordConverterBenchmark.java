@@ -0,0 +1,61 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.connect.servicenow.util.Helpers;
+import com.ibm.ingestion.http.codec.JacksonJsonCodec;
+import com.ibm.ingestion.http.codec.ServiceNowPayloads;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
+import org.apache.kafka.connect.data.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of converting a record to a Struct, by name through {@link Helpers#buildStruct(Schema, ServiceNowRecord)}
+ * against the way subtasks do it, picking the converter from a {@link ValueSchemaCache} and converting by position.
+ * Records are decoded up front from a payload shaped like a Table API response, see {@link ServiceNowPayloads}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordConverterBenchmark {
+
+    @Param({"20", "200"})
+    public int columns;
+
+    private ServiceNowRecord _record;
+    private Schema _schema;
+    private ValueSchemaCache _valueSchemas;
+
+    @Setup
+    public void setup() throws IOException {
+        this._record = ServiceNowPayloads.decode(new JacksonJsonCodec(), ServiceNowPayloads.page(1, this.columns, 42)).get(0);
+        this._schema = Helpers.buildSchemaFromSimpleJsonRecord(this._record);
+        this._valueSchemas = new ValueSchemaCache("servicenow.benchmark", 16, null);
+        this._valueSchemas.get(this._record);
+    }
+
+    @Benchmark
+    public void byName(Blackhole blackhole) {
+        blackhole.consume(Helpers.buildStruct(this._schema, this._record));
+    }
+
+    @Benchmark
+    public void cached(Blackhole blackhole) {
+        blackhole.consume(this._valueSchemas.get(this._record).convert(this._record));
+    }
+}
@@ -0,0 +1,84 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.connect.servicenow.util.Helpers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the source partition and offset of every record of a page, the way it used to be done against
+ * {@link RecordOffsetTracker}. Each operation is a page of 1000 records, with runs of records sharing a timestamp as
+ * long as given. Read the allocations per operation reported by the gc profiler alongside the time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordOffsetBenchmark {
+
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({"1", "20"})
+    public int run;
+
+    private String[] _timestamps;
+    private String[] _identifiers;
+    private TableQueryPartition _partition;
+    private RecordOffsetTracker _tracker;
+
+    @Setup
+    public void setup() {
+        this._timestamps = new String[PAGE_SIZE];
+        this._identifiers = new String[PAGE_SIZE];
+        for(int i = 0; i < PAGE_SIZE; i++) {
+            final int second = i / this.run;
+            this._timestamps[i] = String.format("2019-03-01 %02d:%02d:%02d", (second / 3600) % 24, (second / 60) % 60, second % 60);
+            this._identifiers[i] = String.format("%032x", i);
+        }
+        this._partition = new TableQueryPartition("incident");
+        this._tracker = new RecordOffsetTracker();
+    }
+
+    @Benchmark
+    public void perRecordMaps(Blackhole blackhole) {
+        for(int i = 0; i < PAGE_SIZE; i++) {
+            final Instant timestamp = Helpers.parseServiceNowDateTimeUtc(this._timestamps[i]).toInstant(ZoneOffset.UTC);
+
+            Map<String, Object> partition = new HashMap<>(1);
+            partition.put("partition", "incident");
+            Map<String, Object> offset = new HashMap<>();
+            offset.put("timestamp", timestamp.getEpochSecond());
+            offset.put("last_identifier", this._identifiers[i]);
+
+            blackhole.consume(partition);
+            blackhole.consume(offset);
+        }
+    }
+
+    @Benchmark
+    public void tracked(Blackhole blackhole) {
+        this._tracker.reset();
+        for(int i = 0; i < PAGE_SIZE; i++) {
+            blackhole.consume(this._partition.getPartition());
+            blackhole.consume(this._tracker.next(this._timestamps[i], this._identifiers[i]));
+        }
+        blackhole.consume(this._tracker.getLastOffset());
+    }
+}
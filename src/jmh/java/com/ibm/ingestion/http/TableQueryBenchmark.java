@@ -0,0 +1,82 @@
+package com.ibm.ingestion.http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing the encoded query of a poll, building it from scratch with the query builder against rendering
+ * it from a compiled template. Run with the gc profiler (see the jmh block of build.gradle) to compare the bytes
+ * allocated per poll, gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableQueryBenchmark {
+
+    private static final String TIMESTAMP_FIELD = "sys_updated_on";
+    private static final String IDENTIFIER_FIELD = "number";
+
+    private LocalDateTime _from;
+    private LocalDateTime _through;
+    private String _lastIdentifier;
+    private TableQueryTemplate _template;
+    private StringBuilder _buffer;
+
+    @Setup
+    public void setup() {
+        this._from = LocalDateTime.of(2019, 5, 1, 9, 5, 7);
+        this._through = LocalDateTime.of(2019, 5, 1, 10, 0, 0);
+        this._lastIdentifier = "CS0012345";
+        this._buffer = new StringBuilder(512);
+        this._template = TableQueryTemplate.Builder()
+                .whereTimestampEquals(TIMESTAMP_FIELD, TableQueryTemplate.Parameter.FROM_TIMESTAMP)
+                .whereGreaterThan(IDENTIFIER_FIELD, TableQueryTemplate.Parameter.LAST_IDENTIFIER)
+                .where(TableAPIQueryBuilder.Builder().whereIsNotEmpty(IDENTIFIER_FIELD))
+                .union()
+                .whereBetweenExclusive(TIMESTAMP_FIELD, TableQueryTemplate.Parameter.FROM_TIMESTAMP, TableQueryTemplate.Parameter.THROUGH_TIMESTAMP)
+                .where(TableAPIQueryBuilder.Builder()
+                        .whereIsNotEmpty(IDENTIFIER_FIELD)
+                        .orderByAsc(TIMESTAMP_FIELD)
+                        .orderByAsc(IDENTIFIER_FIELD))
+                .build();
+    }
+
+    @Benchmark
+    public void builder(Blackhole blackhole) throws UnsupportedEncodingException {
+        TableAPIQueryBuilder lastSeen = TableAPIQueryBuilder.Builder()
+                .whereTimestampEquals(TIMESTAMP_FIELD, this._from)
+                .whereGreaterThan(IDENTIFIER_FIELD, this._lastIdentifier)
+                .whereIsNotEmpty(IDENTIFIER_FIELD);
+        TableAPIQueryBuilder window = TableAPIQueryBuilder.Builder()
+                .whereBetweenExclusive(TIMESTAMP_FIELD, this._from, this._through)
+                .whereIsNotEmpty(IDENTIFIER_FIELD)
+                .orderByAsc(TIMESTAMP_FIELD)
+                .orderByAsc(IDENTIFIER_FIELD);
+
+        blackhole.consume(URLEncoder.encode(lastSeen.union(window).build(), "UTF-8"));
+    }
+
+    @Benchmark
+    public void template(Blackhole blackhole) {
+        this._buffer.setLength(0);
+        this._template.renderEncoded(this._buffer, this._from, this._through, this._lastIdentifier);
+        blackhole.consume(this._buffer);
+    }
+}
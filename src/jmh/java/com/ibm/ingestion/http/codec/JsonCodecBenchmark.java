@@ -0,0 +1,61 @@
+package com.ibm.ingestion.http.codec;
+
+import com.ibm.ingestion.http.IRecordHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of decoding a page of 100 records with each codec, and reading every value of every record by position the
+ * way the record converter does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    @Param({JacksonJsonCodec.NAME, OrgJsonCodec.NAME})
+    public String codec;
+
+    @Param({"20", "200"})
+    public int columns;
+
+    private IJsonCodec _codec;
+    private byte[] _page;
+
+    @Setup
+    public void setup() {
+        this._codec = JsonCodecs.forName(this.codec);
+        this._page = ServiceNowPayloads.page(100, this.columns, 42);
+    }
+
+    @Benchmark
+    public int decode(Blackhole blackhole) throws IOException {
+        return this._codec.readResult(new ByteArrayInputStream(this._page), new IRecordHandler() {
+            public void reset() {
+            }
+
+            public void onRecord(ServiceNowRecord record) {
+                for(int i = 0; i < record.size(); i++) {
+                    blackhole.consume(record.getValue(i));
+                }
+            }
+        });
+    }
+}
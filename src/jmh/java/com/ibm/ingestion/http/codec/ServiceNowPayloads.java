@@ -0,0 +1,87 @@
+package com.ibm.ingestion.http.codec;
+
+import com.ibm.ingestion.http.IRecordHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Table API response bodies shaped like those of the task based tables: sys_ids, numbers, date times, flags,
+ * counters, free text, a good share of empty values and a few dot-walked fields, all returned as strings.
+ */
+public final class ServiceNowPayloads {
+
+    private ServiceNowPayloads() {
+    }
+
+    public static byte[] page(int records, int columns, long seed) {
+        Random random = new Random(seed);
+        StringBuilder body = new StringBuilder(records * columns * 32);
+        body.append("{\"result\":[");
+        for(int r = 0; r < records; r++) {
+            if(r > 0) {
+                body.append(',');
+            }
+            body.append('{');
+            for(int c = 0; c < columns; c++) {
+                if(c > 0) {
+                    body.append(',');
+                }
+                body.append('"').append(key(c)).append("\":\"").append(value(c, r, random)).append('"');
+            }
+            body.append('}');
+        }
+        body.append("]}");
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static List<ServiceNowRecord> decode(IJsonCodec codec, byte[] page) throws IOException {
+        List<ServiceNowRecord> records = new ArrayList<>();
+        codec.readResult(new ByteArrayInputStream(page), new IRecordHandler() {
+            public void reset() {
+                records.clear();
+            }
+
+            public void onRecord(ServiceNowRecord record) {
+                records.add(record);
+            }
+        });
+        return records;
+    }
+
+    private static String key(int column) {
+        switch(column) {
+            case 0: return "sys_id";
+            case 1: return "number";
+            case 2: return "sys_updated_on";
+            case 3: return "short_description";
+            default:
+                return column % 10 == 4 ? String.format("u_reference_%d.name", column) : String.format("u_column_%d", column);
+        }
+    }
+
+    private static String value(int column, int record, Random random) {
+        switch(column) {
+            case 0: return sysId(random);
+            case 1: return String.format("INC%07d", 10000 + record);
+            case 2: return String.format("2019-05-01 %02d:%02d:%02d", record / 3600 % 24, record / 60 % 60, record % 60);
+            case 3: return "Unable to connect to the VPN from the office network since this morning";
+            default:
+                switch(column % 5) {
+                    case 0: return "";
+                    case 1: return sysId(random);
+                    case 2: return random.nextBoolean() ? "true" : "false";
+                    case 3: return Integer.toString(random.nextInt(100));
+                    default: return String.format("2019-04-%02d 10:15:00", 1 + random.nextInt(28));
+                }
+        }
+    }
+
+    private static String sysId(Random random) {
+        return String.format("%016x%016x", random.nextLong(), random.nextLong());
+    }
+}
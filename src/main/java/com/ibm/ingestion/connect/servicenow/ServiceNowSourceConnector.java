@@ -3,11 +3,13 @@ package com.ibm.ingestion.connect.servicenow;
 import com.ibm.ingestion.connect.servicenow.source.ServiceNowSourceConnectorConfig;
 import com.ibm.ingestion.connect.servicenow.source.ServiceNowTableAPISourceTask;
 import com.ibm.ingestion.connect.servicenow.source.ServiceNowTableAPISourceTaskConfig;
+import com.ibm.ingestion.connect.servicenow.source.TableLoadModel;
+import com.ibm.ingestion.connect.servicenow.source.TableQueryPartition;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.connector.Task;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceConnector;
-import org.apache.kafka.connect.util.ConnectorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,8 +22,13 @@ public class ServiceNowSourceConnector extends SourceConnector {
 
     private static final Logger LOG = LoggerFactory.getLogger(ServiceNowSourceConnector.class);
 
+    private static final int DEFAULT_BACKFILL_SLICES = 4;
+
     private Map<String, String> _configProperties;
     private ServiceNowSourceConnectorConfig _config;
+    private List<String> _partitions;
+    private TableLoadModel _loads;
+    private boolean AUDIT_CAPTURE;
 
     @Override
     public void start(Map<String, String> props) {
@@ -29,6 +36,34 @@ public class ServiceNowSourceConnector extends SourceConnector {
         LOG.info("Starting [{}].", ServiceNowSourceConnector.class.getName());
         this._configProperties = props;
         this._config = new ServiceNowSourceConnectorConfig(props);
+
+        String[] rawTableWhitelist = this._config.getString(ServiceNowSourceConnectorConfig.TABLE_WHITELIST).split(",");
+        if(rawTableWhitelist == null || rawTableWhitelist.length == 0) {
+            throw new ConnectException(String.format("[%s] must have at least one table defined.", ServiceNowSourceConnectorConfig.TABLE_WHITELIST));
+        }
+
+        // NOTE(millies): audit capture is a single stream, every table goes to the one task tailing it, unsharded.
+        this.AUDIT_CAPTURE = ServiceNowSourceConnectorConfig.CAPTURE_MODE_AUDIT.equals(this._config.getString(ServiceNowSourceConnectorConfig.CAPTURE_MODE));
+
+        this._partitions = new ArrayList<String>(rawTableWhitelist.length);
+        Map<String, Double> weights = new HashMap<String, Double>();
+        for(String table : rawTableWhitelist) {
+            final int shards = this.AUDIT_CAPTURE ? 1 : this.getShardCount(table);
+            // NOTE(millies): the weight of a table is shared by its shards, each holding about as many records.
+            final double weight = this.getWeight(table) / shards;
+            for(TableQueryPartition partition : TableQueryPartition.shardsOf(table, shards)) {
+                this._partitions.add(partition.getId());
+                weights.put(partition.getId(), weight);
+            }
+
+            final List<TableQueryPartition> slices = this.getBackfillSlices(table);
+            for(TableQueryPartition slice : slices) {
+                this._partitions.add(slice.getId());
+                weights.put(slice.getId(), this.getWeight(table) / slices.size());
+            }
+        }
+
+        this._loads = new TableLoadModel(weights);
     }
 
     @Override
@@ -39,34 +74,113 @@ public class ServiceNowSourceConnector extends SourceConnector {
     @Override
     public List<Map<String, String>> taskConfigs(int maxTasks) {
 
-        String[] rawTableWhitelist = this._config.getString(ServiceNowSourceConnectorConfig.TABLE_WHITELIST).split(",");
-        if(rawTableWhitelist == null || rawTableWhitelist.length == 0) {
-            throw new ConnectException(String.format("[%s] must have at least one table defined.", ServiceNowSourceConnectorConfig.TABLE_WHITELIST));
-        }
-
         List<Map<String, String>> taskConfigs = new ArrayList<Map<String, String>>();
-        int groups = Math.min(rawTableWhitelist.length, maxTasks);
 
-        List<String> tableWhiteList = new ArrayList<String>(rawTableWhitelist.length);
-        for(String table : rawTableWhitelist) {
-            tableWhiteList.add(table);
-        }
-        List<List<String>> groupedTables = ConnectorUtils.groupPartitions(tableWhiteList, groups);
+        // NOTE(millies): partitions of equal load are dealt out in turn, so the shards of a table go to different tasks.
+        List<List<String>> groupedTables = this._loads.pack(this._partitions, this.AUDIT_CAPTURE ? 1 : maxTasks);
+
         for (List<String> group : groupedTables) {
             Map<String, String> taskProps = new HashMap<String, String>(this._configProperties);
             taskProps.put(ServiceNowTableAPISourceTaskConfig.TABLE_LIST, String.join(",", group));
+            taskProps.put(ServiceNowTableAPISourceTaskConfig.TASK_INDEX, String.valueOf(taskConfigs.size()));
             taskConfigs.add(taskProps);
         }
 
         LOG.debug("Tasks with configs: {}", taskConfigs);
-        LOG.info("Grouped tables into [{}] buckets, [{}].", groupedTables.size(), groupedTables);
+        LOG.info("Grouped tables into [{}] buckets, [{}], imbalance [{}].", groupedTables.size(), groupedTables, this._loads.imbalance(groupedTables));
         return taskConfigs;
     }
 
+    private double getWeight(String table) {
+        final String WEIGHT_KEY = String.format("table.whitelist.%s.weight", table);
+        final String rawWeight = this.tryGetConfig(WEIGHT_KEY);
+        if(rawWeight == null || rawWeight.trim().isEmpty()) {
+            return 1.0;
+        }
+
+        try {
+            final double weight = Double.parseDouble(rawWeight.trim());
+            if(weight >= 0) {
+                return weight;
+            }
+        } catch(NumberFormatException ex) {
+            // NOTE(millies): reported below, along with negative weights.
+        }
+        throw new ConnectException(String.format("The weight of a table must be a number of at least 0, was [%s]. Configuration [%s]", rawWeight, WEIGHT_KEY));
+    }
+
+    /**
+     * @return the backfill slices of the table, none when it is not backfilled.
+     */
+    private List<TableQueryPartition> getBackfillSlices(String table) {
+        final String BACKFILL_FROM_KEY = String.format("table.whitelist.%s.backfill.from", table);
+        final String BACKFILL_UNTIL_KEY = String.format("table.whitelist.%s.backfill.until", table);
+        final String BACKFILL_SLICES_KEY = String.format("table.whitelist.%s.backfill.slices", table);
+        final String rawFrom = this.tryGetConfig(BACKFILL_FROM_KEY);
+        if(rawFrom == null || rawFrom.trim().isEmpty()) {
+            return new ArrayList<TableQueryPartition>();
+        }
+
+        if(this.AUDIT_CAPTURE) {
+            LOG.warn("Ignoring the backfill of table [{}], tables are not backfilled in audit capture mode.", table);
+            return new ArrayList<TableQueryPartition>();
+        }
+
+        final String rawUntil = this.tryGetConfig(BACKFILL_UNTIL_KEY);
+        if(rawUntil == null || rawUntil.trim().isEmpty()) {
+            throw new ConnectException(String.format("Must specify where the backfill of a table ends, and its live tail begins. Configuration [%s]", BACKFILL_UNTIL_KEY));
+        }
+
+        final String rawSlices = this.tryGetConfig(BACKFILL_SLICES_KEY);
+        int slices = DEFAULT_BACKFILL_SLICES;
+        if(rawSlices != null && !rawSlices.trim().isEmpty()) {
+            try {
+                slices = Integer.parseInt(rawSlices.trim());
+            } catch(NumberFormatException ex) {
+                slices = -1;
+            }
+            if(slices < 1 || slices > TableQueryPartition.MAX_BACKFILL_SLICES) {
+                throw new ConnectException(String.format("The number of backfill slices of a table must be between 1 and %d, was [%s]. Configuration [%s]", TableQueryPartition.MAX_BACKFILL_SLICES, rawSlices, BACKFILL_SLICES_KEY));
+            }
+        }
+
+        return TableQueryPartition.backfillSlicesOf(
+                table,
+                TableQueryPartition.parseBackfillTimestamp(rawFrom, BACKFILL_FROM_KEY),
+                TableQueryPartition.parseBackfillTimestamp(rawUntil, BACKFILL_UNTIL_KEY),
+                slices);
+    }
+
+    private String tryGetConfig(String key) {
+        try {
+            return this._config.getString(key);
+        } catch(ConfigException ex) {
+            return null;
+        }
+    }
+
+    private int getShardCount(String table) {
+        final String SHARDS_KEY = String.format("table.whitelist.%s.shards", table);
+        final String rawShards = this.tryGetConfig(SHARDS_KEY);
+
+        if(rawShards == null || rawShards.trim().isEmpty()) {
+            return 1;
+        }
+
+        try {
+            final int shards = Integer.parseInt(rawShards.trim());
+            if(shards >= 1 && shards <= TableQueryPartition.MAX_SHARDS) {
+                return shards;
+            }
+        } catch(NumberFormatException ex) {
+            // NOTE(millies): reported below, along with counts out of range.
+        }
+        throw new ConnectException(String.format("The number of shards of a table must be between 1 and %d, was [%s]. Configuration [%s]", TableQueryPartition.MAX_SHARDS, rawShards, SHARDS_KEY));
+    }
+
     @Override
     public void stop() {
         LOG.info("Stopping [{}].", ServiceNowSourceConnector.class.getName());
-
     }
 
     @Override
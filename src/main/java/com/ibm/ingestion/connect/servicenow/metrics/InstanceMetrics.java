@@ -0,0 +1,39 @@
+package com.ibm.ingestion.connect.servicenow.metrics;
+
+import com.ibm.ingestion.http.SharedHttpClient;
+
+/**
+ * Load on a ServiceNow instance from all the tasks of the worker sharing its http client.
+ */
+public class InstanceMetrics implements InstanceMetricsMBean {
+
+    private final SharedHttpClient _client;
+
+    public InstanceMetrics(SharedHttpClient client) {
+        this._client = client;
+    }
+
+    public int getTasks() {
+        return this._client.getReferences();
+    }
+
+    public int getRequestsInFlight() {
+        return this._client.getLimiter().getRequestsInFlight();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return this._client.getLimiter().getMaxConcurrentRequests();
+    }
+
+    public long getRequestLimiterWaitMs() {
+        return this._client.getLimiter().getWaitedMs();
+    }
+
+    public int getConnections() {
+        return this._client.getOkHttpClient().connectionPool().connectionCount();
+    }
+
+    public int getIdleConnections() {
+        return this._client.getOkHttpClient().connectionPool().idleConnectionCount();
+    }
+}
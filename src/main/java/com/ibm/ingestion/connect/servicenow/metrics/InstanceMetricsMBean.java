@@ -0,0 +1,11 @@
+package com.ibm.ingestion.connect.servicenow.metrics;
+
+public interface InstanceMetricsMBean {
+
+    int getTasks();
+    int getRequestsInFlight();
+    int getMaxConcurrentRequests();
+    long getRequestLimiterWaitMs();
+    int getConnections();
+    int getIdleConnections();
+}
@@ -0,0 +1,118 @@
+package com.ibm.ingestion.connect.servicenow.metrics;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How busy each stage of a task's fetch, convert, deliver pipeline is.
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+
+    private final long _startedAtNs = System.nanoTime();
+    private final int _fetchThreads;
+    private final int _convertThreads;
+    private final BlockingQueue<?> _deliveryQueue;
+
+    private final AtomicInteger _requestsInFlight = new AtomicInteger();
+    private final AtomicLong _pagesFetched = new AtomicLong();
+    private final AtomicLong _pagesPrefetched = new AtomicLong();
+    private final AtomicLong _recordsConverted = new AtomicLong();
+    private final AtomicLong _recordsDelivered = new AtomicLong();
+
+    private final AtomicLong _fetchBusyNs = new AtomicLong();
+    private final AtomicLong _convertBusyNs = new AtomicLong();
+    private final AtomicLong _deliverBlockedNs = new AtomicLong();
+
+    public PipelineMetrics(int fetchThreads, int convertThreads, BlockingQueue<?> deliveryQueue) {
+        this._fetchThreads = fetchThreads;
+        this._convertThreads = convertThreads;
+        this._deliveryQueue = deliveryQueue;
+    }
+
+    public void recordFetchStarted() {
+        this._requestsInFlight.incrementAndGet();
+    }
+
+    public void recordFetchFinished() {
+        this._requestsInFlight.decrementAndGet();
+    }
+
+    public void recordFetch(long elapsedNs, boolean prefetch) {
+        this._pagesFetched.incrementAndGet();
+        if(prefetch) {
+            this._pagesPrefetched.incrementAndGet();
+        }
+        this._fetchBusyNs.addAndGet(elapsedNs);
+    }
+
+    public void recordConvert(long elapsedNs, int records) {
+        this._recordsConverted.addAndGet(records);
+        this._convertBusyNs.addAndGet(elapsedNs);
+    }
+
+    public void recordDeliverBlocked(long elapsedNs) {
+        this._deliverBlockedNs.addAndGet(elapsedNs);
+    }
+
+    public void recordDelivered(int records) {
+        this._recordsDelivered.addAndGet(records);
+    }
+
+    public int getRequestsInFlight() {
+        return this._requestsInFlight.get();
+    }
+
+    public long getPagesFetched() {
+        return this._pagesFetched.get();
+    }
+
+    public long getPagesPrefetched() {
+        return this._pagesPrefetched.get();
+    }
+
+    public long getRecordsConverted() {
+        return this._recordsConverted.get();
+    }
+
+    public long getRecordsDelivered() {
+        return this._recordsDelivered.get();
+    }
+
+    public int getDeliveryQueueDepth() {
+        return this._deliveryQueue.size();
+    }
+
+    public long getFetchStageBusyMs() {
+        return TimeUnit.NANOSECONDS.toMillis(this._fetchBusyNs.get());
+    }
+
+    public long getConvertStageBusyMs() {
+        return TimeUnit.NANOSECONDS.toMillis(this._convertBusyNs.get());
+    }
+
+    public long getDeliverStageBlockedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(this._deliverBlockedNs.get());
+    }
+
+    public double getFetchStageUtilization() {
+        return ratio(this._fetchBusyNs.get(), this._fetchThreads);
+    }
+
+    public double getConvertStageUtilization() {
+        return ratio(this._convertBusyNs.get(), this._convertThreads);
+    }
+
+    public double getDeliverStageBackpressure() {
+        return ratio(this._deliverBlockedNs.get(), 1);
+    }
+
+    private double ratio(long busyNs, int workers) {
+        final long elapsedNs = System.nanoTime() - this._startedAtNs;
+        if(elapsedNs <= 0 || workers <= 0) {
+            return 0;
+        }
+        return (double)busyNs / ((double)elapsedNs * workers);
+    }
+}
@@ -0,0 +1,30 @@
+package com.ibm.ingestion.connect.servicenow.metrics;
+
+public interface PipelineMetricsMBean {
+
+    int getRequestsInFlight();
+    long getPagesFetched();
+    long getPagesPrefetched();
+    long getRecordsConverted();
+    long getRecordsDelivered();
+    int getDeliveryQueueDepth();
+
+    long getFetchStageBusyMs();
+    long getConvertStageBusyMs();
+    long getDeliverStageBlockedMs();
+
+    /**
+     * Fraction of the fetch pool's available thread time, since the task started, spent waiting on ServiceNow.
+     */
+    double getFetchStageUtilization();
+
+    /**
+     * Fraction of the convert pool's available thread time, since the task started, spent converting records.
+     */
+    double getConvertStageUtilization();
+
+    /**
+     * Fraction of wall clock time, since the task started, that the fetch stage was blocked on a full delivery queue.
+     */
+    double getDeliverStageBackpressure();
+}
@@ -0,0 +1,78 @@
+package com.ibm.ingestion.connect.servicenow.metrics;
+
+import com.ibm.ingestion.http.RetryPolicy;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Retries of requests to ServiceNow, by cause.
+ */
+public class RetryMetrics implements RetryMetricsMBean {
+
+    private final Map<RetryPolicy.Cause, AtomicLong> _retries = new EnumMap<>(RetryPolicy.Cause.class);
+    private final AtomicLong _retriesOverBudget = new AtomicLong();
+    private final AtomicLong _retryWaitMs = new AtomicLong();
+    private final DoubleSupplier _budgetBalance;
+
+    public RetryMetrics(DoubleSupplier budgetBalance) {
+        this._budgetBalance = budgetBalance;
+        for(RetryPolicy.Cause cause : RetryPolicy.Cause.values()) {
+            this._retries.put(cause, new AtomicLong());
+        }
+    }
+
+    public void recordRetry(RetryPolicy.Cause cause, long delayMs, boolean withinBudget) {
+        this._retries.get(cause).incrementAndGet();
+        this._retryWaitMs.addAndGet(delayMs);
+        if(!withinBudget) {
+            this._retriesOverBudget.incrementAndGet();
+        }
+    }
+
+    public long getRetries(RetryPolicy.Cause cause) {
+        return this._retries.get(cause).get();
+    }
+
+    public long getConnectionErrorRetries() {
+        return this.getRetries(RetryPolicy.Cause.CONNECTION_ERROR);
+    }
+
+    public long getTimeoutRetries() {
+        return this.getRetries(RetryPolicy.Cause.TIMEOUT);
+    }
+
+    public long getUnauthorizedRetries() {
+        return this.getRetries(RetryPolicy.Cause.UNAUTHORIZED);
+    }
+
+    public long getThrottledRetries() {
+        return this.getRetries(RetryPolicy.Cause.THROTTLED);
+    }
+
+    public long getUnavailableRetries() {
+        return this.getRetries(RetryPolicy.Cause.UNAVAILABLE);
+    }
+
+    public long getServerErrorRetries() {
+        return this.getRetries(RetryPolicy.Cause.SERVER_ERROR);
+    }
+
+    public long getUnreadableResponseRetries() {
+        return this.getRetries(RetryPolicy.Cause.UNREADABLE_RESPONSE);
+    }
+
+    public long getRetriesOverBudget() {
+        return this._retriesOverBudget.get();
+    }
+
+    public long getRetryWaitMs() {
+        return this._retryWaitMs.get();
+    }
+
+    public double getRetryBudgetBalance() {
+        return this._budgetBalance.getAsDouble();
+    }
+}
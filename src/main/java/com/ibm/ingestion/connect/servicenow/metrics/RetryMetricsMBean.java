@@ -0,0 +1,15 @@
+package com.ibm.ingestion.connect.servicenow.metrics;
+
+public interface RetryMetricsMBean {
+
+    long getConnectionErrorRetries();
+    long getTimeoutRetries();
+    long getUnauthorizedRetries();
+    long getThrottledRetries();
+    long getUnavailableRetries();
+    long getServerErrorRetries();
+    long getUnreadableResponseRetries();
+    long getRetriesOverBudget();
+    long getRetryWaitMs();
+    double getRetryBudgetBalance();
+}
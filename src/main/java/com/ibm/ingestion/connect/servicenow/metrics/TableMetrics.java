@@ -0,0 +1,67 @@
+package com.ibm.ingestion.connect.servicenow.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request sizing, throughput and value schema of a single table.
+ */
+public class TableMetrics implements TableMetricsMBean {
+
+    private volatile int _batchSize;
+    private volatile double _bytesPerRecord;
+    private volatile long _lastResponseTimeMs;
+    private volatile long _lastResponseBytes;
+    private volatile int _lastResponseRecords;
+    private volatile int _valueSchemaVersion;
+    private final AtomicLong _totalRecords = new AtomicLong();
+    private final AtomicLong _totalBytes = new AtomicLong();
+
+    public void recordResponse(int records, long bytes, long elapsedMs) {
+        this._lastResponseRecords = records;
+        this._lastResponseBytes = bytes;
+        this._lastResponseTimeMs = elapsedMs;
+        this._totalRecords.addAndGet(records);
+        this._totalBytes.addAndGet(bytes);
+    }
+
+    public void recordBatchSize(int batchSize, double bytesPerRecord) {
+        this._batchSize = batchSize;
+        this._bytesPerRecord = bytesPerRecord;
+    }
+
+    public void recordValueSchemaVersion(int version) {
+        this._valueSchemaVersion = version;
+    }
+
+    public int getBatchSize() {
+        return this._batchSize;
+    }
+
+    public double getBytesPerRecord() {
+        return this._bytesPerRecord;
+    }
+
+    public long getLastResponseTimeMs() {
+        return this._lastResponseTimeMs;
+    }
+
+    public long getLastResponseBytes() {
+        return this._lastResponseBytes;
+    }
+
+    public int getLastResponseRecords() {
+        return this._lastResponseRecords;
+    }
+
+    public long getTotalRecords() {
+        return this._totalRecords.get();
+    }
+
+    public long getTotalBytes() {
+        return this._totalBytes.get();
+    }
+
+    public int getValueSchemaVersion() {
+        return this._valueSchemaVersion;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ibm.ingestion.connect.servicenow.metrics;
+
+public interface TableMetricsMBean {
+
+    int getBatchSize();
+    double getBytesPerRecord();
+    long getLastResponseTimeMs();
+    long getLastResponseBytes();
+    int getLastResponseRecords();
+    long getTotalRecords();
+    long getTotalBytes();
+    int getValueSchemaVersion();
+}
@@ -0,0 +1,69 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+/**
+ * Picks the page size for the requests of a single table so that they come back in about the target response time.
+ *
+ * Response time is modelled as (bytes per record) * (milliseconds per byte), both tracked as decaying averages, so a
+ * table with wide journal fields settles on small pages while a narrow reference table is allowed to grow up to the
+ * maximum. The size is only grown after a full page, since a partial page never put the current size to the test,
+ * and at most doubles from one request to the next.
+ */
+public class AdaptiveBatchSizer {
+
+    private static final double DECAY = 0.7;
+    private static final int MAX_GROWTH_FACTOR = 2;
+
+    private final int _minSize;
+    private final int _maxSize;
+    private final long _targetResponseMs;
+
+    private int _batchSize;
+    private double _elapsedMs;
+    private double _bytes;
+    private double _records;
+
+    /**
+     * @param targetResponseMs when zero or less, the batch size stays fixed at maxSize.
+     */
+    public AdaptiveBatchSizer(int minSize, int maxSize, long targetResponseMs) {
+        this._maxSize = Math.max(1, maxSize);
+        this._minSize = Math.max(1, Math.min(minSize, this._maxSize));
+        this._targetResponseMs = targetResponseMs;
+        this._batchSize = this.isEnabled() ? this._minSize : this._maxSize;
+    }
+
+    public boolean isEnabled() {
+        return this._targetResponseMs > 0;
+    }
+
+    public int getBatchSize() {
+        return this._batchSize;
+    }
+
+    public double getBytesPerRecord() {
+        return this._records > 0 ? this._bytes / this._records : 0;
+    }
+
+    public double getMillisecondsPerByte() {
+        return this._bytes > 0 ? this._elapsedMs / this._bytes : 0;
+    }
+
+    public void observe(int records, long bytes, long elapsedMs) {
+        if(!this.isEnabled() || records <= 0 || bytes <= 0) {
+            return;
+        }
+
+        this._elapsedMs = DECAY * this._elapsedMs + elapsedMs;
+        this._bytes = DECAY * this._bytes + bytes;
+        this._records = DECAY * this._records + records;
+
+        final double expectedMsPerRecord = this.getMillisecondsPerByte() * this.getBytesPerRecord();
+        double candidate = expectedMsPerRecord > 0 ? this._targetResponseMs / expectedMsPerRecord : this._maxSize;
+        if(records < this._batchSize) {
+            candidate = Math.min(candidate, this._batchSize);
+        }
+
+        candidate = Math.min(candidate, (double)this._batchSize * MAX_GROWTH_FACTOR);
+        this._batchSize = (int)Math.max(this._minSize, Math.min(this._maxSize, candidate));
+    }
+}
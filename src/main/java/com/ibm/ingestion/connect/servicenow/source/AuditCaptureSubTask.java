@@ -0,0 +1,250 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.http.ServiceNowTableApiClient;
+import com.ibm.ingestion.http.TableAPIQueryBuilder;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Captures the changes to every whitelisted table from a single stream, the audit table of the instance, rather than
+ * polling each table on its own. The audit table is tailed like any other table, by timestamp and identifier, and for
+ * each page of audit entries the records they name are requested in bulk, by sys_id, from their own table. The
+ * number of requests grows with the number of tables that changed, not the number of tables whitelisted.
+ *
+ * Records are published to the topics of their tables as usual, but their offsets are those of the audit table,
+ * under a source partition of its own. Every record of a page resumes from the first audit entry of the page, and the
+ * last one from past the page, so a restart may deliver a page again but never skips a change. A record changed
+ * several times within a page is requested, and delivered, once, as it stands when requested.
+ *
+ * Only changes the instance audits are captured: tables, or fields, excluded from auditing are not, and neither are
+ * deletions, which ServiceNow keeps in sys_audit_delete.
+ */
+public class AuditCaptureSubTask extends TableAPISubTask {
+
+    static final String KEY_FIELD = "sys_id";
+    static final String AUDIT_TIMESTAMP_FIELD = "sys_created_on";
+    static final String AUDIT_IDENTIFIER_FIELD = "sys_id";
+
+    private static final String AUDIT_PARTITION_PREFIX = "audit.";
+
+    private final String TABLE_NAME_FIELD;
+    private final String DOCUMENT_KEY_FIELD;
+    private final Map<String, List<TableAPISubTask>> _tables;
+    private final ServiceNowTableApiClient _client;
+    private final TableQueryPartition _auditPartition;
+
+    /**
+     * @param tables the subtasks of the whitelisted tables, by the name of their table, only used to request and
+     *               convert the records that changed, they are never polled.
+     */
+    public AuditCaptureSubTask(TimestampSourceOffset offset, ServiceNowTableAPISourceTaskConfig config, ServiceNowTableApiClient client, Map<String, List<TableAPISubTask>> tables) {
+        this(partitionOf(config.getString(ServiceNowSourceConnectorConfig.CAPTURE_AUDIT_TABLE)), offset, config, client, tables);
+    }
+
+    private AuditCaptureSubTask(TableQueryPartition auditPartition, TimestampSourceOffset offset, ServiceNowTableAPISourceTaskConfig config, ServiceNowTableApiClient client, Map<String, List<TableAPISubTask>> tables) {
+        super(auditPartition, offset, config, client,
+                config.getString(ServiceNowSourceConnectorConfig.CAPTURE_AUDIT_TABLE),
+                AUDIT_TIMESTAMP_FIELD,
+                AUDIT_IDENTIFIER_FIELD,
+                Arrays.asList(
+                        AUDIT_IDENTIFIER_FIELD,
+                        AUDIT_TIMESTAMP_FIELD,
+                        config.getString(ServiceNowSourceConnectorConfig.CAPTURE_AUDIT_TABLE_FIELD),
+                        config.getString(ServiceNowSourceConnectorConfig.CAPTURE_AUDIT_KEY_FIELD)),
+                TableAPIQueryBuilder.Builder()
+                        .whereIn(config.getString(ServiceNowSourceConnectorConfig.CAPTURE_AUDIT_TABLE_FIELD), tables.keySet()));
+
+        this.TABLE_NAME_FIELD = config.getString(ServiceNowSourceConnectorConfig.CAPTURE_AUDIT_TABLE_FIELD);
+        this.DOCUMENT_KEY_FIELD = config.getString(ServiceNowSourceConnectorConfig.CAPTURE_AUDIT_KEY_FIELD);
+        this._tables = tables;
+        this._client = client;
+        this._auditPartition = auditPartition;
+    }
+
+    /**
+     * @return the source partition the offsets of the audit table are kept under, apart from those of the tables.
+     */
+    public static TableQueryPartition partitionOf(String auditTable) {
+        return new TableQueryPartition(AUDIT_PARTITION_PREFIX + auditTable);
+    }
+
+    /**
+     * Fetches the next page of audit entries, then the records they name. Requests for the records go out together
+     * in batches when the client sends batches.
+     */
+    @Override
+    public CompletableFuture<FetchedPage> fetchAsync(ServiceNowTableApiClient.Batch requests) {
+
+        CompletableFuture<FetchedPage> audit = super.fetchAsync(requests);
+        CompletableFuture<FetchedPage> captured = audit.thenCompose(this::fetchChanged);
+
+        captured.whenComplete((page, ex) -> {
+            if(captured.isCancelled()) {
+                audit.cancel(true);
+            }
+        });
+        return captured;
+    }
+
+    private CompletableFuture<FetchedPage> fetchChanged(FetchedPage audit) {
+
+        // NOTE(millies): keys in the order they were first changed, a record changed several times is requested once.
+        Map<String, Set<String>> changed = new LinkedHashMap<>();
+        for(int i = 0; i < audit.size(); i++) {
+            final ServiceNowRecord entry = audit.getRecord(i);
+            final String table = entry.getValue(TABLE_NAME_FIELD);
+            final String key = entry.getValue(DOCUMENT_KEY_FIELD);
+            if(table != null && key != null && this._tables.containsKey(table)) {
+                changed.computeIfAbsent(table, name -> new LinkedHashSet<>()).add(key);
+            }
+        }
+
+        CapturedPage captured = new CapturedPage(this, audit);
+        if(changed.isEmpty()) {
+            if(audit.size() > 0) {
+                captured.assignOffsets();
+            }
+            return CompletableFuture.completedFuture(captured);
+        }
+
+        final int batchMaxRequests = this._client.getBatchMaxRequests();
+        ServiceNowTableApiClient.Batch batch = batchMaxRequests > 1 ? this._client.newBatch() : null;
+        List<CompletableFuture<List<FetchedPage>>> fetches = new ArrayList<>();
+        for(Map.Entry<String, Set<String>> table : changed.entrySet()) {
+            for(TableAPISubTask subTask : this._tables.get(table.getKey())) {
+                final ServiceNowTableApiClient.Batch requests = batch;
+                fetches.add(fetchInTurn(
+                        chunk(table.getValue(), subTask.getMaxBatchSize()),
+                        (keys, first) -> subTask.fetchChangedAsync(keys, first ? requests : null)));
+                if(batch != null && batch.size() >= batchMaxRequests) {
+                    batch.send();
+                    batch = this._client.newBatch();
+                }
+            }
+        }
+        if(batch != null) {
+            batch.send();
+        }
+
+        return CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0])).thenApply(done -> {
+            for(CompletableFuture<List<FetchedPage>> fetch : fetches) {
+                fetch.join().forEach(captured::addPage);
+            }
+            captured.assignOffsets();
+            return captured;
+        });
+    }
+
+    /**
+     * Requests the chunks of keys of a table one after the other, since the records of a table are decoded one at a
+     * time, see {@link ValueSchemaCache}. Tables are still requested at the same time. The first chunk is requested
+     * before this returns, so it can go out in a batch, the others once the chunk before them is back.
+     * @param fetch requests a chunk, told whether it is the first one.
+     * @return the pages of the chunks, in order.
+     */
+    static CompletableFuture<List<FetchedPage>> fetchInTurn(List<List<String>> chunks, BiFunction<List<String>, Boolean, CompletableFuture<FetchedPage>> fetch) {
+        List<FetchedPage> pages = new ArrayList<>(chunks.size());
+        CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+        for(int i = 0; i < chunks.size(); i++) {
+            final List<String> keys = chunks.get(i);
+            final boolean first = i == 0;
+            previous = previous.thenCompose(done -> fetch.apply(keys, first)).thenAccept(pages::add);
+        }
+        return previous.thenApply(done -> pages);
+    }
+
+    static List<List<String>> chunk(Collection<String> keys, int size) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(size);
+        for(String key : keys) {
+            chunk.add(key);
+            if(chunk.size() >= size) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(size);
+            }
+        }
+        if(!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Converts the records of each table with the subtask of that table, under the source partition of the audit table.
+     */
+    @Override
+    public List<SourceRecord> convert(FetchedPage page) {
+        CapturedPage captured = (CapturedPage)page;
+        if(captured.size() == 0 && captured.getHeartbeat() != null) {
+            return Collections.singletonList(this.buildHeartbeat(this._auditPartition.getPartition(), captured.getHeartbeat()));
+        }
+
+        List<SourceRecord> records = new ArrayList<>(captured.size());
+        for(FetchedPage tablePage : captured._pages) {
+            records.addAll(tablePage.getSubTask().convert(tablePage, this._auditPartition.getPartition()));
+        }
+        return records;
+    }
+
+    /**
+     * The records named by a page of audit entries, one page for each table or chunk of keys.
+     */
+    static class CapturedPage extends FetchedPage {
+
+        private final FetchedPage _audit;
+        private final List<FetchedPage> _pages = new ArrayList<>();
+        private int _size;
+
+        CapturedPage(AuditCaptureSubTask subTask, FetchedPage audit) {
+            super(subTask);
+            this._audit = audit;
+            this.setHeartbeat(audit.getHeartbeat());
+        }
+
+        void addPage(FetchedPage page) {
+            this._pages.add(page);
+            this._size += page.size();
+        }
+
+        /**
+         * Every record resumes from the first audit entry of the page, read again, and the last one from past the
+         * last audit entry of the page.
+         */
+        void assignOffsets() {
+            if(this._size == 0) {
+                // NOTE(millies): the audit entries only named records gone since, the offset moves past them all the same.
+                this.setHeartbeat(this._audit.getOffset(this._audit.size() - 1));
+                return;
+            }
+
+            final Instant firstTimestamp = Instant.ofEpochSecond((long)this._audit.getOffset(0).get(TimestampSourceOffset.TIMESTAMP_KEY));
+            final Map<String, Object> resumeOffset = TimestampSourceOffset.toMap(firstTimestamp, null);
+            FetchedPage last = null;
+            for(FetchedPage page : this._pages) {
+                for(int i = 0; i < page.size(); i++) {
+                    page.setOffset(i, resumeOffset);
+                }
+                last = page.size() > 0 ? page : last;
+            }
+            last.setLastOffset(this._audit.getOffset(this._audit.size() - 1));
+        }
+
+        @Override
+        public int size() {
+            return this._size;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of raw records fetched for a subtask, along with the value schema and source offset of every record,
+ * waiting to be converted into SourceRecords.
+ */
+public class FetchedPage {
+
+    private TableAPISubTask _subTask;
+    private List<ServiceNowRecord> _records = new ArrayList<>();
+    private List<RecordConverter> _converters = new ArrayList<>();
+    private List<Map<String, Object>> _offsets = new ArrayList<>();
+    private Map<String, Object> _heartbeat;
+
+    public FetchedPage(TableAPISubTask subTask) {
+        this._subTask = subTask;
+    }
+
+    public TableAPISubTask getSubTask() {
+        return this._subTask;
+    }
+
+    public void add(ServiceNowRecord record, RecordConverter converter, Map<String, Object> offset) {
+        this._records.add(record);
+        this._converters.add(converter);
+        this._offsets.add(offset);
+    }
+
+    public ServiceNowRecord getRecord(int index) {
+        return this._records.get(index);
+    }
+
+    /**
+     * @return the converter for the value schema the record was decoded with.
+     */
+    public RecordConverter getConverter(int index) {
+        return this._converters.get(index);
+    }
+
+    /**
+     * Replaces the offset of the last record, see {@link RecordOffsetTracker#getLastOffset()}.
+     */
+    public void setLastOffset(Map<String, Object> offset) {
+        if(!this._offsets.isEmpty()) {
+            this._offsets.set(this._offsets.size() - 1, offset);
+        }
+    }
+
+    public void setOffset(int index, Map<String, Object> offset) {
+        this._offsets.set(index, offset);
+    }
+
+    public Map<String, Object> getOffset(int index) {
+        return this._offsets.get(index);
+    }
+
+    /**
+     * @return the offset a page without records moves the subtask to, published with a heartbeat record, or null.
+     */
+    public Map<String, Object> getHeartbeat() {
+        return this._heartbeat;
+    }
+
+    public void setHeartbeat(Map<String, Object> offset) {
+        this._heartbeat = offset;
+    }
+
+    public int size() {
+        return this._records.size();
+    }
+}
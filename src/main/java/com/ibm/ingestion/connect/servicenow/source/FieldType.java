@@ -0,0 +1,101 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.connect.servicenow.util.Helpers;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Timestamp;
+
+/**
+ * The Connect type a ServiceNow field is mapped to, along with the parser turning the raw value returned by the
+ * Table API into it. The Table API returns every value as a string, with an empty string for a field with no value.
+ */
+public enum FieldType {
+
+    STRING(Schema.OPTIONAL_STRING_SCHEMA) {
+        // NOTE(millies): kept as is, empty strings included, same as the untyped schema.
+        public Object parse(String raw) {
+            return raw;
+        }
+    },
+    INTEGER(Schema.OPTIONAL_INT32_SCHEMA) {
+        public Object parse(String raw) {
+            return raw.isEmpty() ? null : Integer.valueOf(raw);
+        }
+    },
+    LONG(Schema.OPTIONAL_INT64_SCHEMA) {
+        public Object parse(String raw) {
+            return raw.isEmpty() ? null : Long.valueOf(raw);
+        }
+    },
+    DOUBLE(Schema.OPTIONAL_FLOAT64_SCHEMA) {
+        public Object parse(String raw) {
+            return raw.isEmpty() ? null : Double.valueOf(raw);
+        }
+    },
+    BOOLEAN(Schema.OPTIONAL_BOOLEAN_SCHEMA) {
+        public Object parse(String raw) {
+            if(raw.isEmpty()) {
+                return null;
+            } else if("true".equals(raw) || "1".equals(raw)) {
+                return Boolean.TRUE;
+            } else if("false".equals(raw) || "0".equals(raw)) {
+                return Boolean.FALSE;
+            }
+            throw new IllegalArgumentException(String.format("[%s] is not a boolean.", raw));
+        }
+    },
+    TIMESTAMP(Timestamp.builder().optional().build()) {
+        public Object parse(String raw) {
+            return raw.isEmpty() ? null : new java.util.Date(Helpers.parseServiceNowDateTimeEpochMillis(raw));
+        }
+    },
+    DATE(Date.builder().optional().build()) {
+        public Object parse(String raw) {
+            return raw.isEmpty() ? null : new java.util.Date(Helpers.parseServiceNowDateEpochDay(raw) * 86400000L);
+        }
+    };
+
+    private final Schema _schema;
+
+    FieldType(Schema schema) {
+        this._schema = schema;
+    }
+
+    public Schema getSchema() {
+        return this._schema;
+    }
+
+    /**
+     * @param raw the value returned by the Table API, never null.
+     */
+    public abstract Object parse(String raw);
+
+    /**
+     * @param internalType the internal_type of the field in sys_dictionary.
+     */
+    public static FieldType fromInternalType(String internalType) {
+        if(internalType == null) {
+            return STRING;
+        }
+
+        switch(internalType) {
+            case "integer":
+                return INTEGER;
+            case "longint":
+                return LONG;
+            case "decimal":
+            case "float":
+                return DOUBLE;
+            case "boolean":
+                return BOOLEAN;
+            case "glide_date_time":
+            case "due_date":
+                return TIMESTAMP;
+            case "glide_date":
+                return DATE;
+            default:
+                // NOTE(millies): references, choices, currencies, durations and the like go out as returned.
+                return STRING;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Caps the through timestamp of the queries of a single table at the end of a window past the records read so far,
+ * stepping the window forward as each one drains. ServiceNow sorts every record between the from and through
+ * timestamps before returning the first page, so a subtask catching up on days of changes would otherwise sort
+ * what is left of those days for every page it reads.
+ *
+ * The window is sized to hold about {@link #TARGET_PAGES} pages, going by the number of records found in the last
+ * window drained, and changes by at most {@link #MAX_GROWTH_FACTOR} from one window to the next. An empty window
+ * grows as fast as it is allowed to, so quiet stretches are crossed in a handful of requests.
+ *
+ * Not thread safe, a table has a single page in flight at a time.
+ */
+public class QueryWindow {
+
+    static final int TARGET_PAGES = 4;
+    static final int MAX_GROWTH_FACTOR = 4;
+    private static final long MIN_SECONDS = 1;
+
+    private final long _maxSeconds;
+    private long _seconds;
+
+    private LocalDateTime _drainedThrough;
+    private LocalDateTime _start;
+    private LocalDateTime _end;
+    private LocalDateTime _through;
+    private boolean _capped;
+    private long _records;
+
+    /**
+     * @param initialSeconds when zero or less, queries run through the latest timestamp, with no window.
+     */
+    public QueryWindow(long initialSeconds, long maxSeconds) {
+        this._maxSeconds = Math.max(MIN_SECONDS, maxSeconds);
+        this._seconds = initialSeconds <= 0 ? 0 : Math.max(MIN_SECONDS, Math.min(this._maxSeconds, initialSeconds));
+    }
+
+    public boolean isEnabled() {
+        return this._seconds > 0;
+    }
+
+    public long getSeconds() {
+        return this._seconds;
+    }
+
+    /**
+     * @param from the timestamp the query reads from, or null for an unbounded query.
+     * @param latest the latest timestamp records are read through.
+     * @return the through timestamp of the next query: the end of the window, or latest when it comes first.
+     */
+    public LocalDateTime getThrough(LocalDateTime from, LocalDateTime latest) {
+        if(!this.isEnabled() || from == null) {
+            this._through = null;
+            return latest;
+        }
+
+        if(this._end == null) {
+            // NOTE(millies): everything before the through of the last window drained has been read already.
+            this._start = this._drainedThrough != null && this._drainedThrough.isAfter(from) ? this._drainedThrough : from;
+            this._end = this._start.plusSeconds(this._seconds);
+            this._records = 0;
+        }
+
+        this._capped = this._end.isBefore(latest);
+        this._through = this._capped ? this._end : latest;
+        return this._through;
+    }
+
+    /**
+     * @param pageFull whether the page came back full, in which case the window has more records to read.
+     * @return whether the window drained before reaching the latest timestamp, that is whether there may be records
+     * past it waiting to be read right away.
+     */
+    public boolean observe(int records, boolean pageFull, int batchSize) {
+        if(this._through == null) {
+            return false;
+        }
+
+        this._records += records;
+        if(pageFull) {
+            return false;
+        }
+
+        final boolean capped = this._capped;
+        this.resize(Duration.between(this._start, this._through).getSeconds(), batchSize);
+        this._drainedThrough = this._through;
+        this._end = null;
+        this._through = null;
+        return capped;
+    }
+
+    private void resize(long windowSeconds, int batchSize) {
+        if(windowSeconds <= 0) {
+            return;
+        }
+
+        final double targetRecords = (double)TARGET_PAGES * batchSize;
+        double candidate = this._records == 0
+                ? (double)this._seconds * MAX_GROWTH_FACTOR
+                : targetRecords * windowSeconds / this._records;
+
+        candidate = Math.max((double)this._seconds / MAX_GROWTH_FACTOR, Math.min((double)this._seconds * MAX_GROWTH_FACTOR, candidate));
+        this._seconds = (long)Math.max(MIN_SECONDS, Math.min(this._maxSeconds, candidate));
+    }
+}
@@ -0,0 +1,75 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.connect.servicenow.util.Helpers;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Follows the timestamp and identifier of the records of a page as they are decoded, handing out the source offset
+ * of each record without allocating for every one of them.
+ *
+ * The records of a page are ordered by timestamp then identifier, and a busy table returns runs of records sharing a
+ * timestamp. The timestamp is only parsed when it differs from the one before, and every record of a run shares the
+ * offset of the first record of that run. Resuming from that offset reads the rest of the run again, so at worst a
+ * restart delivers the run twice, never skips a record. The last record of the page gets its own offset, see
+ * {@link #getLastOffset()}, so a page that was delivered in full resumes exactly after it.
+ *
+ * Not thread safe, records of a page are decoded one at a time.
+ */
+public class RecordOffsetTracker {
+
+    private String _lastRawTimestamp;
+    private Instant _lastTimestamp;
+    private String _lastIdentifier;
+    private Map<String, Object> _runOffset;
+
+    /**
+     * @param rawTimestamp the timestamp of the record as returned by the Table API.
+     * @return the source offset of the record, shared by the records of a run, must not be modified.
+     */
+    public Map<String, Object> next(String rawTimestamp, String identifier) {
+
+        if(!rawTimestamp.equals(this._lastRawTimestamp)) {
+            this._lastTimestamp = Instant.ofEpochMilli(Helpers.parseServiceNowDateTimeEpochMillis(rawTimestamp));
+            this._lastRawTimestamp = rawTimestamp;
+            this._runOffset = null;
+        }
+
+        this._lastIdentifier = identifier;
+        if(this._runOffset == null) {
+            this._runOffset = TimestampSourceOffset.toMap(this._lastTimestamp, identifier);
+        }
+        return this._runOffset;
+    }
+
+    public Instant getLastTimestamp() {
+        return this._lastTimestamp;
+    }
+
+    public String getLastIdentifier() {
+        return this._lastIdentifier;
+    }
+
+    /**
+     * @return the offset of the last record exactly, or null before the first record.
+     */
+    public Map<String, Object> getLastOffset() {
+        if(this._lastTimestamp == null) {
+            return null;
+        }
+
+        // NOTE(millies): a run of one record already has its own offset.
+        if(this._lastIdentifier.equals(this._runOffset.get(TimestampSourceOffset.LAST_READ_IDENTIFIER))) {
+            return this._runOffset;
+        }
+        return TimestampSourceOffset.toMap(this._lastTimestamp, this._lastIdentifier);
+    }
+
+    public void reset() {
+        this._lastRawTimestamp = null;
+        this._lastTimestamp = null;
+        this._lastIdentifier = null;
+        this._runOffset = null;
+    }
+}
@@ -2,6 +2,7 @@ package com.ibm.ingestion.connect.servicenow.source;
 
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 
 import java.util.*;
 
@@ -11,10 +12,28 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
     private Map<String, Object> WHITELIST = new HashMap<>();
     public ServiceNowSourceConnectorConfig(Map<String, ?> props) {
         super(CONFIGURATION, props);
+        this.validateBatchSizes();
     }
 
     protected ServiceNowSourceConnectorConfig(ConfigDef subclassConfig, Map<String, String> props) {
         super(subclassConfig, props);
+        this.validateBatchSizes();
+    }
+
+    /**
+     * Rejects a min batch size over the max batch size. The min size only matters to adaptive batch sizing, so a max
+     * size below the default min size is fine without it.
+     */
+    private void validateBatchSizes() {
+        if(this.getLong(TASK_POLL_BATCH_TARGET_RESPONSE_MS) <= 0) {
+            return;
+        }
+
+        final int minSize = this.getInt(TASK_POLL_BATCH_MIN_SIZE);
+        final int maxSize = this.getInt(TASK_POLL_BATCH_MAX_SIZE);
+        if(minSize > maxSize) {
+            throw new ConfigException(TASK_POLL_BATCH_MIN_SIZE, minSize, String.format("Must not be greater than '%s', [%d], when adaptive batch sizing is enabled.", TASK_POLL_BATCH_MAX_SIZE, maxSize));
+        }
     }
 
     public static ConfigDef baseConfigDef() {
@@ -199,7 +218,7 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
 
     public static final String SERVICENOW_CLIENT_MAX_RETRIES = "servicenow.client.request.retries.max";
     private static final String SERVICENOW_CLIENT_MAX_RETRIES_DOC
-            = "The number of times the connector task will retry a request to ServiceNow before entering a failed state. If not specified, or a '-1' is used, then there is no retry limit.";
+            = "The number of times the connector task will try a request to ServiceNow, counting the first attempt, before entering a failed state. If not specified, or a '-1' is used, then there is no retry limit.";
     private static final String SERVICENOW_CLIENT_MAX_RETRIES_DISPLAY
             = "ServiceNow Request Max Retries";
     public static final int SERVICENOW_CLIENT_MAX_RETRIES_DEFAULT = -1;
@@ -207,7 +226,7 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
 
     public static final String SERVICENOW_CLIENT_RETRY_BACKOFF_SECONDS = "servicenow.client.request.retries.backoff.seconds";
     private static final String SERVICENOW_CLIENT_RETRY_BACKOFF_SECONDS_DOC
-            = "The amount of time in seconds that the connector task will wait before retrying after a ServiceNow request failure.";
+            = "The shortest amount of time in seconds that the connector task will wait before retrying after a ServiceNow request failure. Subsequent retries of the same request wait longer, see servicenow.client.request.retries.backoff.max.seconds.";
     private static final String SERVICENOW_CLIENT_RETRY_BACKOFF_SECONDS_DISPLAY
             = "ServiceNow Retry Backoff (seconds)";
     public static final int SERVICENOW_CLIENT_RETRY_BACKOFF_SECONDS_DEFAULT = 30;
@@ -243,6 +262,62 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
     public static final int SERVICENOW_CLIENT_KEEP_ALIVE_DURATION_SECONDS_DEFAULT = 60;
 
 
+    public static final String SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS = "servicenow.client.request.retries.backoff.max.seconds";
+    private static final String SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS_DOC
+            = "The longest amount of time in seconds that the connector task will wait before retrying after a ServiceNow request failure. Waits start at servicenow.client.request.retries.backoff.seconds and grow, with random jitter, up to this amount. Waits asked for by ServiceNow through the Retry-After or X-RateLimit-Reset headers are honoured even when they are longer.";
+    private static final String SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS_DISPLAY
+            = "ServiceNow Max Retry Backoff (seconds)";
+    public static final int SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS_DEFAULT = 300;
+
+
+    public static final String SERVICENOW_CLIENT_RETRY_BUDGET_RATIO = "servicenow.client.request.retries.budget.ratio";
+    private static final String SERVICENOW_CLIENT_RETRY_BUDGET_RATIO_DOC
+            = "The fraction of a retry earned by every successful request to ServiceNow. Retries are paid for out of this budget, which holds at most 10 retries. Once it is spent, every retry waits the maximum backoff until enough requests succeed again.";
+    private static final String SERVICENOW_CLIENT_RETRY_BUDGET_RATIO_DISPLAY
+            = "ServiceNow Retry Budget Ratio";
+    public static final double SERVICENOW_CLIENT_RETRY_BUDGET_RATIO_DEFAULT = 0.1;
+
+
+    public static final String SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS = "servicenow.client.instance.max.concurrent.requests";
+    private static final String SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS_DOC
+            = "The maximum number of requests in flight to the ServiceNow instance at once, across all the tasks of a worker using the same instance and credentials. A value of 0 or less removes the limit.";
+    private static final String SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS_DISPLAY
+            = "ServiceNow Instance Max Concurrent Requests";
+    public static final int SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS_DEFAULT = 8;
+
+
+    public static final String SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND = "servicenow.client.instance.max.requests.per.second";
+    private static final String SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND_DOC
+            = "The maximum number of requests sent to the ServiceNow instance each second, across all the tasks of a worker using the same instance and credentials. A value of 0 or less removes the limit.";
+    private static final String SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND_DISPLAY
+            = "ServiceNow Instance Max Requests Per Second";
+    public static final double SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND_DEFAULT = 0.0;
+
+
+    public static final String SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO = "servicenow.client.oauth.token.refresh.ratio";
+    private static final String SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO_DOC
+            = "The fraction of the lifetime of an access token, as given by expires_in, after which it is refreshed ahead of its expiry. Tokens are refreshed using the refresh token, falling back to logging in again with the user password.";
+    private static final String SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO_DISPLAY
+            = "ServiceNow OAuth Token Refresh Ratio";
+    public static final double SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO_DEFAULT = 0.8;
+
+
+    public static final String SERVICENOW_CLIENT_JSON_CODEC = "servicenow.client.json.codec";
+    private static final String SERVICENOW_CLIENT_JSON_CODEC_DOC
+            = "The library Table API responses are decoded with, either org.json or jackson (a streaming decoder, faster on wide tables).";
+    private static final String SERVICENOW_CLIENT_JSON_CODEC_DISPLAY
+            = "JSON Codec";
+    public static final String SERVICENOW_CLIENT_JSON_CODEC_DEFAULT = "org.json";
+
+
+    public static final String SERVICENOW_CLIENT_BATCH_MAX_REQUESTS = "servicenow.client.batch.max.requests";
+    private static final String SERVICENOW_CLIENT_BATCH_MAX_REQUESTS_DOC
+            = "When greater than 1, the tables of a task that are due at the same time and had little to return last time are polled together, up to this many per request, through the ServiceNow Batch API (/api/now/v1/batch) instead of one request each. Requests that fail in a batch are sent again on their own. 0 or 1 disables it.";
+    private static final String SERVICENOW_CLIENT_BATCH_MAX_REQUESTS_DISPLAY
+            = "ServiceNow Client Batch Max Requests";
+    public static final int SERVICENOW_CLIENT_BATCH_MAX_REQUESTS_DEFAULT = 0;
+
+
     private static void addServiceNowClientOptions(ConfigDef config) {
         int orderInGroup = 0;
         config.define(
@@ -380,6 +455,80 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
                 ++orderInGroup,
                 ConfigDef.Width.LONG,
                 SERVICENOW_CLIENT_KEEP_ALIVE_DURATION_SECONDS_DISPLAY
+        ).define(
+                SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS,
+                ConfigDef.Type.INT,
+                SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS_DEFAULT,
+                ConfigDef.Importance.MEDIUM,
+                SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS_DOC,
+                SERVICENOW_CLIENT_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS_DISPLAY
+        ).define(
+                SERVICENOW_CLIENT_RETRY_BUDGET_RATIO,
+                ConfigDef.Type.DOUBLE,
+                SERVICENOW_CLIENT_RETRY_BUDGET_RATIO_DEFAULT,
+                ConfigDef.Range.atLeast(0.0),
+                ConfigDef.Importance.LOW,
+                SERVICENOW_CLIENT_RETRY_BUDGET_RATIO_DOC,
+                SERVICENOW_CLIENT_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SERVICENOW_CLIENT_RETRY_BUDGET_RATIO_DISPLAY
+        ).define(
+                SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS,
+                ConfigDef.Type.INT,
+                SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS_DEFAULT,
+                ConfigDef.Importance.MEDIUM,
+                SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS_DOC,
+                SERVICENOW_CLIENT_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS_DISPLAY
+        ).define(
+                SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND,
+                ConfigDef.Type.DOUBLE,
+                SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND_DEFAULT,
+                ConfigDef.Importance.MEDIUM,
+                SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND_DOC,
+                SERVICENOW_CLIENT_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND_DISPLAY
+        ).define(
+                SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO,
+                ConfigDef.Type.DOUBLE,
+                SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO_DEFAULT,
+                ConfigDef.Range.between(0.1, 1.0),
+                ConfigDef.Importance.LOW,
+                SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO_DOC,
+                SERVICENOW_CLIENT_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO_DISPLAY
+        ).define(
+                SERVICENOW_CLIENT_JSON_CODEC,
+                ConfigDef.Type.STRING,
+                SERVICENOW_CLIENT_JSON_CODEC_DEFAULT,
+                ConfigDef.ValidString.in("jackson", "org.json"),
+                ConfigDef.Importance.LOW,
+                SERVICENOW_CLIENT_JSON_CODEC_DOC,
+                SERVICENOW_CLIENT_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SERVICENOW_CLIENT_JSON_CODEC_DISPLAY
+        ).define(
+                SERVICENOW_CLIENT_BATCH_MAX_REQUESTS,
+                ConfigDef.Type.INT,
+                SERVICENOW_CLIENT_BATCH_MAX_REQUESTS_DEFAULT,
+                ConfigDef.Range.atLeast(0),
+                ConfigDef.Importance.LOW,
+                SERVICENOW_CLIENT_BATCH_MAX_REQUESTS_DOC,
+                SERVICENOW_CLIENT_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SERVICENOW_CLIENT_BATCH_MAX_REQUESTS_DISPLAY
         );
     }
 
@@ -406,7 +555,7 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
 
     public static final String TASK_POLL_FAST_INTERVAL_MS = "task.poll.fast.interval.ms";
     private static final String TASK_POLL_FAST_INTERVAL_MS_DOC
-            = "The amount of time a task waits before querying for additional table data. This interval is used when the last request for the table returned data.";
+            = "The shortest amount of time a task waits before querying for additional table data when the last request for the table returned a partial page. A full page is followed up right away.";
     private static final String TASK_POLL_FAST_INTERVAL_MS_DISPLAY
             = "Task Polling Fast Interval (ms)";
     private static final long TASK_POLL_FAST_INTERVAL_MS_DEFAULT = 500;
@@ -414,7 +563,7 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
 
     public static final String TASK_POLL_SLOW_INTERVAL_MS = "task.poll.slow.interval.ms";
     private static final String TASK_POLL_SLOW_INTERVAL_MS_DOC
-            = "The amount of time a task waits before querying for additional table data. This interval is used when the last request for the table returned no data.";
+            = "The longest amount of time a task waits before querying for additional table data. Between the fast and slow intervals, the wait follows the rate at which the table has been observed to change.";
     private static final String TASK_POLL_SLOW_INTERVAL_MS_DISPLAY
             = "Task Polling Slow Interval (ms)";
     private static final long TASK_POLL_SLOW_INTERVAL_MS_DEFAULT = 30 * 1000;
@@ -436,6 +585,128 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
     private static final long TIMESTAMP_INITIAL_QUERY_HOURS_AGO_DEFAULT = -1;
 
 
+    public static final String TASK_PIPELINE_CONVERT_THREADS = "task.pipeline.convert.threads";
+    private static final String TASK_PIPELINE_CONVERT_THREADS_DOC
+            = "The number of threads a task uses to convert fetched records into kafka connect records. Conversion runs alongside the next requests to ServiceNow.";
+    private static final String TASK_PIPELINE_CONVERT_THREADS_DISPLAY
+            = "Task Pipeline Convert Threads";
+    public static final int TASK_PIPELINE_CONVERT_THREADS_DEFAULT = 2;
+
+
+    public static final String TASK_PIPELINE_QUEUE_MAX_PAGES = "task.pipeline.queue.max.pages";
+    private static final String TASK_PIPELINE_QUEUE_MAX_PAGES_DOC
+            = "The maximum number of fetched pages a task holds waiting to be published. Once reached, the task stops requesting data from ServiceNow until kafka connect catches up.";
+    private static final String TASK_PIPELINE_QUEUE_MAX_PAGES_DISPLAY
+            = "Task Pipeline Max Queued Pages";
+    public static final int TASK_PIPELINE_QUEUE_MAX_PAGES_DEFAULT = 8;
+
+
+    public static final String TASK_MAX_REQUESTS_IN_FLIGHT = "task.max.requests.in.flight";
+    private static final String TASK_MAX_REQUESTS_IN_FLIGHT_DOC
+            = "The maximum number of requests a task sends to ServiceNow at the same time. Tables that are due to be polled are queried concurrently up to this limit. Requests are sent asynchronously, so the limit does not cost a thread per request.";
+    private static final String TASK_MAX_REQUESTS_IN_FLIGHT_DISPLAY
+            = "Task Max Requests In Flight";
+    public static final int TASK_MAX_REQUESTS_IN_FLIGHT_DEFAULT = 4;
+
+
+    public static final String TASK_POLL_BATCH_MIN_SIZE = "task.poll.batch.min.size";
+    private static final String TASK_POLL_BATCH_MIN_SIZE_DOC
+            = "The smallest number of records to request from ServiceNow at a time when adaptive batch sizing is enabled with 'task.poll.batch.target.response.ms'. Must not be greater than 'task.poll.batch.max.size' then.";
+    private static final String TASK_POLL_BATCH_MIN_SIZE_DISPLAY
+            = "Task Min Batch Size";
+    public static final int TASK_POLL_BATCH_MIN_SIZE_DEFAULT = 10;
+
+
+    public static final String TASK_POLL_BATCH_TARGET_RESPONSE_MS = "task.poll.batch.target.response.ms";
+    private static final String TASK_POLL_BATCH_TARGET_RESPONSE_MS_DOC
+            = "When greater than zero, each table's request page size is adjusted between 'task.poll.batch.min.size' and 'task.poll.batch.max.size' so that requests take about this long. Should be well below the client read timeout.";
+    private static final String TASK_POLL_BATCH_TARGET_RESPONSE_MS_DISPLAY
+            = "Task Batch Target Response Time (ms)";
+    public static final long TASK_POLL_BATCH_TARGET_RESPONSE_MS_DEFAULT = 0L;
+
+
+    public static final String SCHEMA_CACHE_MAX_SIZE = "schema.cache.max.size";
+    private static final String SCHEMA_CACHE_MAX_SIZE_DOC
+            = "The number of value schemas kept per table, each for a different set of fields seen on the records of the table. Records whose fields fit one of them are converted without building a schema.";
+    private static final String SCHEMA_CACHE_MAX_SIZE_DISPLAY
+            = "Schema Cache Max Size";
+    public static final int SCHEMA_CACHE_MAX_SIZE_DEFAULT = 16;
+
+
+    public static final String SCHEMA_METADATA_CACHE_TTL_SECONDS = "schema.metadata.cache.ttl.seconds";
+    private static final String SCHEMA_METADATA_CACHE_TTL_SECONDS_DOC
+            = "How long the field types of a table, loaded from sys_dictionary for tables with typed schemas, are used for before they are loaded again. Shared by all the tasks of a worker.";
+    private static final String SCHEMA_METADATA_CACHE_TTL_SECONDS_DISPLAY
+            = "Schema Metadata Cache TTL Seconds";
+    public static final long SCHEMA_METADATA_CACHE_TTL_SECONDS_DEFAULT = 3600L;
+
+
+    public static final String CAPTURE_MODE = "capture.mode";
+    public static final String CAPTURE_MODE_TABLE = "table";
+    public static final String CAPTURE_MODE_AUDIT = "audit";
+    private static final String CAPTURE_MODE_DOC
+            = "How changes are captured. 'table' polls every whitelisted table on its own. 'audit' tails the audit table of the instance (capture.audit.table) as a single stream, and requests the records it names in bulk by sys_id, so the cost grows with the number of changes rather than the number of tables. In audit mode every table is polled by a single task.";
+    private static final String CAPTURE_MODE_DISPLAY
+            = "Capture Mode";
+    public static final String CAPTURE_MODE_DEFAULT = CAPTURE_MODE_TABLE;
+
+
+    public static final String CAPTURE_AUDIT_TABLE = "capture.audit.table";
+    private static final String CAPTURE_AUDIT_TABLE_DOC
+            = "The table tailed for changes in audit capture mode, ordered by sys_created_on then sys_id.";
+    private static final String CAPTURE_AUDIT_TABLE_DISPLAY
+            = "Audit Table";
+    public static final String CAPTURE_AUDIT_TABLE_DEFAULT = "sys_audit";
+
+
+    public static final String CAPTURE_AUDIT_TABLE_FIELD = "capture.audit.table.field";
+    private static final String CAPTURE_AUDIT_TABLE_FIELD_DOC
+            = "The field of the audit table holding the name of the table that changed.";
+    private static final String CAPTURE_AUDIT_TABLE_FIELD_DISPLAY
+            = "Audit Table Name Field";
+    public static final String CAPTURE_AUDIT_TABLE_FIELD_DEFAULT = "tablename";
+
+
+    public static final String CAPTURE_AUDIT_KEY_FIELD = "capture.audit.key.field";
+    private static final String CAPTURE_AUDIT_KEY_FIELD_DOC
+            = "The field of the audit table holding the sys_id of the record that changed.";
+    private static final String CAPTURE_AUDIT_KEY_FIELD_DISPLAY
+            = "Audit Document Key Field";
+    public static final String CAPTURE_AUDIT_KEY_FIELD_DEFAULT = "documentkey";
+
+
+    public static final String TASK_POLL_WINDOW_INITIAL_SECONDS = "task.poll.window.initial.seconds";
+    private static final String TASK_POLL_WINDOW_INITIAL_SECONDS_DOC
+            = "When greater than zero, the queries of a table only reach this far past the records read so far, stepping forward window by window as each drains, rather than all the way to the latest timestamp. Keeps queries cheap while catching up on a backlog, since ServiceNow sorts the whole range of a query before returning a page. The window then adapts to hold a few pages of records.";
+    private static final String TASK_POLL_WINDOW_INITIAL_SECONDS_DISPLAY
+            = "Task Polling Initial Window (Seconds)";
+    public static final long TASK_POLL_WINDOW_INITIAL_SECONDS_DEFAULT = 0L;
+
+
+    public static final String TASK_POLL_WINDOW_MAX_SECONDS = "task.poll.window.max.seconds";
+    private static final String TASK_POLL_WINDOW_MAX_SECONDS_DOC
+            = "The largest the query window of a table grows to, see task.poll.window.initial.seconds.";
+    private static final String TASK_POLL_WINDOW_MAX_SECONDS_DISPLAY
+            = "Task Polling Max Window (Seconds)";
+    public static final long TASK_POLL_WINDOW_MAX_SECONDS_DEFAULT = 7L * 24 * 60 * 60;
+
+
+    public static final String HEARTBEAT_INTERVAL_MS = "heartbeat.interval.ms";
+    private static final String HEARTBEAT_INTERVAL_MS_DOC
+            = "When greater than zero, a table whose poll finds nothing new, and that has not published anything for this long, publishes a heartbeat record moving its offset up to the timestamp it has been read through, so a restart does not query the quiet table from an offset that may be weeks old. 0 disables heartbeats.";
+    private static final String HEARTBEAT_INTERVAL_MS_DISPLAY
+            = "Heartbeat Interval (ms)";
+    public static final long HEARTBEAT_INTERVAL_MS_DEFAULT = 0L;
+
+
+    public static final String HEARTBEAT_TOPIC = "heartbeat.topic";
+    private static final String HEARTBEAT_TOPIC_DOC
+            = "The topic heartbeat records are published to, keyed by table. Defaults to the topic prefix followed by '.__heartbeat'.";
+    private static final String HEARTBEAT_TOPIC_DISPLAY
+            = "Heartbeat Topic";
+    public static final String HEARTBEAT_TOPIC_DEFAULT = "";
+
+
     private static void addConnectorOptions(ConfigDef config) {
         int orderInGroup = 0;
         config.define(
@@ -506,6 +777,166 @@ public class ServiceNowSourceConnectorConfig extends AbstractConfig {
                 ++orderInGroup,
                 ConfigDef.Width.LONG,
                 TIMESTAMP_INITIAL_QUERY_HOURS_AGO_DISPLAY
+        ).define(
+                TASK_PIPELINE_CONVERT_THREADS,
+                ConfigDef.Type.INT,
+                TASK_PIPELINE_CONVERT_THREADS_DEFAULT,
+                ConfigDef.Range.atLeast(1),
+                ConfigDef.Importance.LOW,
+                TASK_PIPELINE_CONVERT_THREADS_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                TASK_PIPELINE_CONVERT_THREADS_DISPLAY
+        ).define(
+                TASK_PIPELINE_QUEUE_MAX_PAGES,
+                ConfigDef.Type.INT,
+                TASK_PIPELINE_QUEUE_MAX_PAGES_DEFAULT,
+                ConfigDef.Range.atLeast(1),
+                ConfigDef.Importance.LOW,
+                TASK_PIPELINE_QUEUE_MAX_PAGES_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                TASK_PIPELINE_QUEUE_MAX_PAGES_DISPLAY
+        ).define(
+                TASK_MAX_REQUESTS_IN_FLIGHT,
+                ConfigDef.Type.INT,
+                TASK_MAX_REQUESTS_IN_FLIGHT_DEFAULT,
+                ConfigDef.Range.atLeast(1),
+                ConfigDef.Importance.MEDIUM,
+                TASK_MAX_REQUESTS_IN_FLIGHT_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                TASK_MAX_REQUESTS_IN_FLIGHT_DISPLAY
+        ).define(
+                TASK_POLL_BATCH_MIN_SIZE,
+                ConfigDef.Type.INT,
+                TASK_POLL_BATCH_MIN_SIZE_DEFAULT,
+                ConfigDef.Range.atLeast(1),
+                ConfigDef.Importance.LOW,
+                TASK_POLL_BATCH_MIN_SIZE_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                TASK_POLL_BATCH_MIN_SIZE_DISPLAY
+        ).define(
+                TASK_POLL_BATCH_TARGET_RESPONSE_MS,
+                ConfigDef.Type.LONG,
+                TASK_POLL_BATCH_TARGET_RESPONSE_MS_DEFAULT,
+                ConfigDef.Importance.LOW,
+                TASK_POLL_BATCH_TARGET_RESPONSE_MS_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                TASK_POLL_BATCH_TARGET_RESPONSE_MS_DISPLAY
+        ).define(
+                SCHEMA_CACHE_MAX_SIZE,
+                ConfigDef.Type.INT,
+                SCHEMA_CACHE_MAX_SIZE_DEFAULT,
+                ConfigDef.Range.atLeast(1),
+                ConfigDef.Importance.LOW,
+                SCHEMA_CACHE_MAX_SIZE_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SCHEMA_CACHE_MAX_SIZE_DISPLAY
+        ).define(
+                SCHEMA_METADATA_CACHE_TTL_SECONDS,
+                ConfigDef.Type.LONG,
+                SCHEMA_METADATA_CACHE_TTL_SECONDS_DEFAULT,
+                ConfigDef.Range.atLeast(0),
+                ConfigDef.Importance.LOW,
+                SCHEMA_METADATA_CACHE_TTL_SECONDS_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                SCHEMA_METADATA_CACHE_TTL_SECONDS_DISPLAY
+        ).define(
+                CAPTURE_MODE,
+                ConfigDef.Type.STRING,
+                CAPTURE_MODE_DEFAULT,
+                ConfigDef.ValidString.in(CAPTURE_MODE_TABLE, CAPTURE_MODE_AUDIT),
+                ConfigDef.Importance.MEDIUM,
+                CAPTURE_MODE_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                CAPTURE_MODE_DISPLAY
+        ).define(
+                CAPTURE_AUDIT_TABLE,
+                ConfigDef.Type.STRING,
+                CAPTURE_AUDIT_TABLE_DEFAULT,
+                ConfigDef.Importance.LOW,
+                CAPTURE_AUDIT_TABLE_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                CAPTURE_AUDIT_TABLE_DISPLAY
+        ).define(
+                CAPTURE_AUDIT_TABLE_FIELD,
+                ConfigDef.Type.STRING,
+                CAPTURE_AUDIT_TABLE_FIELD_DEFAULT,
+                ConfigDef.Importance.LOW,
+                CAPTURE_AUDIT_TABLE_FIELD_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                CAPTURE_AUDIT_TABLE_FIELD_DISPLAY
+        ).define(
+                CAPTURE_AUDIT_KEY_FIELD,
+                ConfigDef.Type.STRING,
+                CAPTURE_AUDIT_KEY_FIELD_DEFAULT,
+                ConfigDef.Importance.LOW,
+                CAPTURE_AUDIT_KEY_FIELD_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                CAPTURE_AUDIT_KEY_FIELD_DISPLAY
+        ).define(
+                TASK_POLL_WINDOW_INITIAL_SECONDS,
+                ConfigDef.Type.LONG,
+                TASK_POLL_WINDOW_INITIAL_SECONDS_DEFAULT,
+                ConfigDef.Range.atLeast(0L),
+                ConfigDef.Importance.MEDIUM,
+                TASK_POLL_WINDOW_INITIAL_SECONDS_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                TASK_POLL_WINDOW_INITIAL_SECONDS_DISPLAY
+        ).define(
+                TASK_POLL_WINDOW_MAX_SECONDS,
+                ConfigDef.Type.LONG,
+                TASK_POLL_WINDOW_MAX_SECONDS_DEFAULT,
+                ConfigDef.Range.atLeast(1L),
+                ConfigDef.Importance.LOW,
+                TASK_POLL_WINDOW_MAX_SECONDS_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                TASK_POLL_WINDOW_MAX_SECONDS_DISPLAY
+        ).define(
+                HEARTBEAT_INTERVAL_MS,
+                ConfigDef.Type.LONG,
+                HEARTBEAT_INTERVAL_MS_DEFAULT,
+                ConfigDef.Range.atLeast(0L),
+                ConfigDef.Importance.MEDIUM,
+                HEARTBEAT_INTERVAL_MS_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                HEARTBEAT_INTERVAL_MS_DISPLAY
+        ).define(
+                HEARTBEAT_TOPIC,
+                ConfigDef.Type.STRING,
+                HEARTBEAT_TOPIC_DEFAULT,
+                ConfigDef.Importance.LOW,
+                HEARTBEAT_TOPIC_DOC,
+                CONNECTOR_GROUP,
+                ++orderInGroup,
+                ConfigDef.Width.LONG,
+                HEARTBEAT_TOPIC_DISPLAY
         );
     }
 }
@@ -5,7 +5,6 @@ import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
 import org.apache.kafka.connect.source.SourceTaskContext;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +18,8 @@ public class ServiceNowTableAPISourceTask extends SourceTask {
 
     private static final Logger LOG = LoggerFactory.getLogger(ServiceNowTableAPISourceTask.class);
 
+    private static final long MAX_POLL_WAIT_MS = 5000;
+
     private ServiceNowTableAPISourceTaskConfig _config;
     private ServiceNowTableApiClient _client;
     private SubTaskManager taskManager;
@@ -66,66 +67,68 @@ public class ServiceNowTableAPISourceTask extends SourceTask {
         List<TableQueryPartition> partitions = new ArrayList<>(tables.length);
         List<Map<String, Object>> offsetKeys = new ArrayList<>(tables.length);
         for(String table : tables) {
-            TableQueryPartition partition = new TableQueryPartition(table);
+            TableQueryPartition partition = TableQueryPartition.parse(table);
             partitions.add(partition);
             offsetKeys.add(partition.getPartition());
+            if(partition.isSharded()) {
+                offsetKeys.add(partition.getTablePartition());
+            }
 
-            LOG.info("Added source partition for table [{}].", partition.getTableName());
+            LOG.info("Added source partition for table [{}].", partition.getId());
         }
 
-        this._offsets = this.context.offsetStorageReader().offsets(offsetKeys);
-        for(TableQueryPartition partition : partitions) {
-            this.taskManager.addSubTask(partition, TimestampSourceOffset.fromMap(this._offsets.get(partition.getPartition())));
+        if(ServiceNowSourceConnectorConfig.CAPTURE_MODE_AUDIT.equals(this._config.getString(ServiceNowSourceConnectorConfig.CAPTURE_MODE))) {
+            this.addAuditCapture(partitions);
+        } else {
+            this.addTableSubTasks(partitions, offsetKeys);
         }
-    }
 
-    private LocalDateTime _nextPollUtc;
-
-    private void setNextPollUtc(LocalDateTime nextPollUtc) {
-        this._nextPollUtc = nextPollUtc;
+        final String taskId = String.format("%s-%s", props.getOrDefault("name", "servicenow"), this._config.getInt(ServiceNowTableAPISourceTaskConfig.TASK_INDEX));
+        this.taskManager.start(taskId);
     }
 
-    private LocalDateTime getNextPollUtc() {
-        if(this._nextPollUtc == null) {
-            return LocalDateTime.now(ZoneOffset.UTC).minusSeconds(1); // we should do an initial query.
+    private void addTableSubTasks(List<TableQueryPartition> partitions, List<Map<String, Object>> offsetKeys) {
+        this._offsets = this.context.offsetStorageReader().offsets(offsetKeys);
+        for(TableQueryPartition partition : partitions) {
+            Map<String, Object> offset = this._offsets.get(partition.getPartition());
+            if((offset == null || offset.isEmpty()) && partition.isSharded()) {
+                // NOTE(millies): a shard new to the table picks up where the table, unsharded, left off. Records
+                // polled since by other shards may be delivered again, but none are skipped.
+                offset = this._offsets.get(partition.getTablePartition());
+                LOG.info("No offset for shard [{}], starting from the offset of the table, [{}].", partition.getId(), offset);
+            }
+            this.taskManager.addSubTask(partition, TimestampSourceOffset.fromMap(offset));
         }
-        return this._nextPollUtc;
     }
 
-    private boolean _hasNextPollTimeBeenLogged = false;
+    /**
+     * Captures the changes to every table from the audit table, see {@link AuditCaptureSubTask}. The subtasks of the
+     * tables are only used to request and convert the records that changed.
+     */
+    private void addAuditCapture(List<TableQueryPartition> partitions) {
+        Map<String, List<TableAPISubTask>> tables = new HashMap<>();
+        for(TableQueryPartition partition : partitions) {
+            TableAPISubTask table = new TableAPISubTask(partition, TimestampSourceOffset.fromMap(null), this._config, this._client);
+            tables.computeIfAbsent(table.getTableName(), name -> new ArrayList<>()).add(table);
+        }
+
+        final TableQueryPartition auditPartition = AuditCaptureSubTask.partitionOf(this._config.getString(ServiceNowSourceConnectorConfig.CAPTURE_AUDIT_TABLE));
+        final Map<String, Object> offset = this.context.offsetStorageReader().offset(auditPartition.getPartition());
+        LOG.info("Capturing changes to [{}] tables from [{}], starting from [{}].", tables.size(), auditPartition.getId(), offset);
+        this.taskManager.addSubTask(new AuditCaptureSubTask(TimestampSourceOffset.fromMap(offset), this._config, this._client, tables));
+    }
 
     @Override
     public List<SourceRecord> poll() throws InterruptedException {
 
-        // NOTE(Millies): Should we check for new records?
-        LocalDateTime nowUtc = LocalDateTime.now(ZoneOffset.UTC);
-        LocalDateTime nextPollUtc = this.getNextPollUtc();
-        long delayMilliseconds = nextPollUtc.toInstant(ZoneOffset.UTC).toEpochMilli() - nowUtc.toInstant(ZoneOffset.UTC).toEpochMilli();
-        if(delayMilliseconds > 0) {
-            if(!_hasNextPollTimeBeenLogged) {
-                LOG.info("Next poll in [{}] ms.", delayMilliseconds);
-                _hasNextPollTimeBeenLogged = true;
-            }
-
-            // NOTE(millies): Periodically giving control back to the calling class so we can gracefully exit. If we don't
-            // do this for an interval less than 10 seconds, we get a nasty "Graceful stop of task <blah> failed.".
-            Thread.sleep(Math.min(5000, delayMilliseconds));
-            return new ArrayList<>();
-        }
-        _hasNextPollTimeBeenLogged = false;
-
-        SourceRecordsPage page = null;
-        try {
-            LOG.info("Polling tables...");
-            page = this.taskManager.poll();
-            this.setNextPollUtc(page.getNextTimeToPollUtc());
-            LOG.info("Publishing [{}] records, and set to poll again at [{}].", page.getRecords().size(), page.getNextTimeToPollUtc());
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new ConnectException("An error occurred while trying to poll.", e);
+        // NOTE(millies): Periodically giving control back to the calling class so we can gracefully exit. If we don't
+        // do this for an interval less than 10 seconds, we get a nasty "Graceful stop of task <blah> failed.".
+        List<SourceRecord> records = this.taskManager.poll(MAX_POLL_WAIT_MS);
+        if(!records.isEmpty()) {
+            LOG.info("Publishing [{}] records.", records.size());
         }
 
-        return page.getRecords();
+        return records;
     }
 
     @Override
@@ -9,8 +9,12 @@ public class ServiceNowTableAPISourceTaskConfig extends ServiceNowSourceConnecto
     public static final String TABLE_LIST = "task.tablekeys";
     private static final String TABLES_DOC = "A comma separated list of table keys for this task to watch for changes.";
 
+    public static final String TASK_INDEX = "task.index";
+    private static final String TASK_INDEX_DOC = "The index of this task amongst the tasks of the connector. Used to tell the metrics of tasks apart.";
+
     static ConfigDef TASK_CONFIG = baseConfigDef()
-            .define(TABLE_LIST, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, TABLES_DOC);
+            .define(TABLE_LIST, ConfigDef.Type.STRING, ConfigDef.Importance.HIGH, TABLES_DOC)
+            .define(TASK_INDEX, ConfigDef.Type.INT, 0, ConfigDef.Importance.LOW, TASK_INDEX_DOC);
 
     public ServiceNowTableAPISourceTaskConfig(Map<String, String> props) {
         super(TASK_CONFIG, props);
@@ -2,9 +2,10 @@ package com.ibm.ingestion.connect.servicenow.source;
 
 import com.ibm.ingestion.connect.servicenow.source.partitioner.DefaultServiceNowTablePartitioner;
 import com.ibm.ingestion.connect.servicenow.source.partitioner.IServiceNowTablePartitioner;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
 import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceRecord;
-import org.json.JSONObject;
 
 import java.util.Map;
 
@@ -13,7 +14,9 @@ import static com.ibm.ingestion.connect.servicenow.util.Helpers.buildStruct;
 public class SourceRecordBuilder {
 
     private Schema _valueSchema;
-    private JSONObject _record;
+    private RecordConverter _valueConverter;
+    private ServiceNowRecord _record;
+    private boolean _rawValue;
     private Map<String, Object> _offset;
     private Map<String, Object> _sourcePartition;
     private String _topic;
@@ -33,7 +36,26 @@ public class SourceRecordBuilder {
         return this;
     }
 
-    public SourceRecordBuilder withRecord(JSONObject record) {
+    /**
+     * Converts the record with the given converter, and takes the value schema from it.
+     */
+    public SourceRecordBuilder withValueConverter(RecordConverter valueConverter) {
+        this._valueConverter = valueConverter;
+        this._valueSchema = valueConverter.getSchema();
+        return this;
+    }
+
+    /**
+     * The value is the JSON of the record as returned by the Table API, see {@link ServiceNowRecord#getRaw()}.
+     */
+    public SourceRecordBuilder withRawValue() {
+        this._rawValue = true;
+        this._valueConverter = null;
+        this._valueSchema = Schema.BYTES_SCHEMA;
+        return this;
+    }
+
+    public SourceRecordBuilder withRecord(ServiceNowRecord record) {
         this._record = record;
         return this;
     }
@@ -58,11 +80,25 @@ public class SourceRecordBuilder {
                 this._sourcePartition,
                 this._offset,
                 this._topic,
-                this._partitioner.getTargetPartition(),
+                this._partitioner.getTargetPartition(this._record),
                 this._partitioner.getKeySchema(),
                 this._partitioner.getKeyValue(this._record),
                 this._valueSchema,
-                buildStruct(this._valueSchema, this._record)
+                this.buildValue()
         );
     }
+
+    private Object buildValue() {
+        if(this._rawValue) {
+            final byte[] raw = this._record.getRaw();
+            if(raw == null) {
+                throw new ConnectException(String.format("Record [%s] was decoded without its JSON, it cannot be sent raw.", this._record));
+            }
+            return raw;
+        }
+
+        return this._valueConverter != null
+                ? this._valueConverter.convert(this._record)
+                : buildStruct(this._valueSchema, this._record);
+    }
 }
@@ -1,99 +1,327 @@
 package com.ibm.ingestion.connect.servicenow.source;
 
+import com.ibm.ingestion.connect.servicenow.metrics.PipelineMetrics;
+import com.ibm.ingestion.connect.servicenow.util.Helpers;
+import com.ibm.ingestion.connect.servicenow.util.MBeans;
 import com.ibm.ingestion.http.ServiceNowTableApiClient;
+import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.time.Instant;
-import java.time.LocalDate;
+import javax.management.ObjectName;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Queue;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs the subtasks of a source task as a pipeline of stages:
+ *
+ *  fetch   - a scheduler sending the requests of every subtask that is due concurrently, up to a limit, without
+ *            holding a thread per request (pages are decoded on the threads of the http client as they stream
+ *            in), and asking for the next page of a table right away whenever the last one came back full.
+ *  convert - a bounded pool turning fetched pages into SourceRecords.
+ *  deliver - a bounded queue of converted pages, in the order they were fetched, drained by {@link #poll(long)}.
+ *
+ * A full delivery queue blocks the fetch stage, so a slow producer on the kafka side throttles requests to
+ * ServiceNow instead of piling pages up in memory.
+ */
 public class SubTaskManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(SubTaskManager.class);
 
-    private Queue<TableAPISubTask> _subTasks = new LinkedList<>();
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private final PriorityQueue<TableAPISubTask> _schedule = new PriorityQueue<>(
+            Comparator.comparing(TableAPISubTask::getNextPollUtc, Comparator.nullsFirst(Comparator.naturalOrder())));
+    private int _inFlight;
+    private int _done;
+    private int MAX_REQUESTS_IN_FLIGHT;
     private ServiceNowTableApiClient _client;
     private ServiceNowTableAPISourceTaskConfig _config;
 
-    private LocalDateTime _nextPollUtc;
+    private ExecutorService _deliverThread;
+    private final Set<CompletableFuture<FetchedPage>> _fetches = ConcurrentHashMap.newKeySet();
+    private ExecutorService _convertPool;
+    private BlockingQueue<Future<List<SourceRecord>>> _deliveryQueue;
+    private Thread _fetcher;
+    private volatile boolean _running;
+    private volatile Throwable _failure;
+
+    private PipelineMetrics _metrics;
+    private ObjectName _metricsName;
+    private List<ObjectName> _tableMetricsNames = new ArrayList<>();
 
     public SubTaskManager(ServiceNowTableAPISourceTaskConfig config, ServiceNowTableApiClient client) {
         this._config = config;
         this._client = client;
+
+        final int convertThreads = config.getInt(ServiceNowSourceConnectorConfig.TASK_PIPELINE_CONVERT_THREADS);
+        final int maxQueuedPages = config.getInt(ServiceNowSourceConnectorConfig.TASK_PIPELINE_QUEUE_MAX_PAGES);
+        this.MAX_REQUESTS_IN_FLIGHT = config.getInt(ServiceNowSourceConnectorConfig.TASK_MAX_REQUESTS_IN_FLIGHT);
+        this._deliveryQueue = new ArrayBlockingQueue<>(maxQueuedPages);
+        this._deliverThread = Executors.newSingleThreadExecutor(Helpers.daemonThreadFactory("servicenow-deliver"));
+        this._convertPool = Executors.newFixedThreadPool(convertThreads, Helpers.daemonThreadFactory("servicenow-convert"));
+        this._metrics = new PipelineMetrics(this.MAX_REQUESTS_IN_FLIGHT, convertThreads, this._deliveryQueue);
     }
 
     public void addSubTask(TableQueryPartition sourcePartition, TimestampSourceOffset offset) {
-        this._subTasks.add(new TableAPISubTask(sourcePartition, offset, this._config, this._client));
+        this.addSubTask(new TableAPISubTask(sourcePartition, offset, this._config, this._client));
+    }
+
+    public void addSubTask(TableAPISubTask subTask) {
+        synchronized(this._schedule) {
+            this._schedule.add(subTask);
+        }
     }
 
-    public SourceRecordsPage poll() throws IOException, InterruptedException {
+    /**
+     * Starts the fetch stage. Subtasks must all have been added beforehand.
+     * @param taskId used to name the fetcher thread and the metrics of this task.
+     */
+    public void start(String taskId) {
+        this._metricsName = MBeans.register(this._metrics, "source-task-pipeline", "task", taskId);
+        synchronized(this._schedule) {
+            for(TableAPISubTask subTask : this._schedule) {
+                this._tableMetricsNames.add(MBeans.register(subTask.getMetrics(), "source-table", "task", taskId, "table", subTask.getPartitionId()));
+            }
+        }
+
+        this._running = true;
+        this._fetcher = new Thread(this::runFetchStage, String.format("servicenow-scheduler-%s", taskId));
+        this._fetcher.setDaemon(true);
+        this._fetcher.start();
+    }
+
+    /**
+     * Waits for the next page to be delivered, returning as soon as one is, and then drains every page behind it
+     * that has already made it through the convert stage.
+     * @param maxWaitMs how long to wait for a page before returning nothing.
+     */
+    public List<SourceRecord> poll(long maxWaitMs) throws InterruptedException {
 
         List<SourceRecord> records = new ArrayList<>();
-        LocalDateTime nextPollUtc = null;
-        int numChecks = this._subTasks.size();
-        while(numChecks-- > 0) {
-
-            LocalDateTime nowUtc = LocalDateTime.now(ZoneOffset.UTC);
-            TableAPISubTask currentSubTask = null;
-            try {
-                // NOTE(millies): dequeue.
-                currentSubTask = this._subTasks.remove();
-                LocalDateTime candidate = currentSubTask.getNextPollUtc();
-                if(candidate != null && candidate.isAfter(nowUtc)) {
-
-                    // NOTE(millies): If a task wants to be polled before the current next poll cycle, then use that one.
-                    if(nextPollUtc == null || candidate.isBefore(nextPollUtc)) {
-                        nextPollUtc = candidate;
+        Future<List<SourceRecord>> head = this._deliveryQueue.poll(maxWaitMs, TimeUnit.MILLISECONDS);
+        if(head == null) {
+            if(this._failure != null) {
+                throw new ConnectException("An error occurred while fetching records.", this._failure);
+            }
+            return records;
+        }
+
+        // NOTE(millies): only taking from the head of the queue so records leave in the order they were fetched.
+        records.addAll(getConverted(head));
+        while((head = this._deliveryQueue.peek()) != null && head.isDone()) {
+            this._deliveryQueue.remove();
+            records.addAll(getConverted(head));
+        }
+        this._metrics.recordDelivered(records.size());
+
+        return records;
+    }
+
+    private List<SourceRecord> getConverted(Future<List<SourceRecord>> converted) throws InterruptedException {
+        try {
+            return converted.get();
+        } catch(ExecutionException ex) {
+            throw new ConnectException("An error occurred while fetching or converting records.", ex.getCause());
+        }
+    }
+
+    /**
+     * Scheduler of the fetch stage. Subtasks wait in a heap ordered by the time they next want to be polled, and
+     * the request of every subtask that is due is sent, up to the in flight limit. A subtask goes back into the
+     * heap as soon as its own page has been handed over, so a slow table only ever delays itself.
+     */
+    private void runFetchStage() {
+        try {
+            List<TableAPISubTask> due = new ArrayList<>();
+            while(this._running && this._failure == null) {
+
+                synchronized(this._schedule) {
+                    LocalDateTime nowUtc = LocalDateTime.now(ZoneOffset.UTC);
+                    while(this._inFlight < this.MAX_REQUESTS_IN_FLIGHT && isDue(this._schedule.peek(), nowUtc)) {
+                        due.add(this._schedule.poll());
+                        this._inFlight++;
                     }
 
-                    if(LOG.isDebugEnabled()) {
-                        LOG.debug(String.format("Skipping Candidate: %s, Now: %s, Candidate %s s > Now %s s = %s", candidate, nowUtc, candidate.toEpochSecond(ZoneOffset.UTC), nowUtc.toEpochSecond(ZoneOffset.UTC), candidate.isAfter(nowUtc)));
+                    if(due.isEmpty()) {
+                        TableAPISubTask next = this._schedule.peek();
+                        if(next == null && this._inFlight == 0 && this._done > 0) {
+                            // NOTE(millies): every subtask was a backfill slice, and they are all done.
+                            this._schedule.wait();
+                        } else if(next == null && this._inFlight == 0) {
+                            // NOTE(millies): Delaying the polling loop at least a minimum amount of time.
+                            // This kicks in if for whatever reason the connector gets started without any tasks.
+                            final int EMPTY_TASK_POLL_INTERVAL_SECONDS = 120;
+                            LOG.warn(String.format("No tasks have been defined in configuration, defaulting polling interval to %s. At least one table should be configured to be watched.", EMPTY_TASK_POLL_INTERVAL_SECONDS));
+                            this._schedule.wait(EMPTY_TASK_POLL_INTERVAL_SECONDS * 1000L);
+                        } else if(next == null || this._inFlight >= this.MAX_REQUESTS_IN_FLIGHT) {
+                            // NOTE(millies): woken up when a request finishes.
+                            this._schedule.wait();
+                        } else {
+                            long delayMilliseconds = Duration.between(nowUtc, next.getNextPollUtc()).toMillis();
+                            if(delayMilliseconds > 0) {
+                                this._schedule.wait(delayMilliseconds);
+                            }
+                        }
+                        continue;
                     }
-                    // NOTE(millies): skipping tasks that are not ready to be executed yet.
-                    continue;
                 }
 
-                SourceRecordsPage subTaskPage = currentSubTask.poll();
+                // NOTE(millies): sending outside of the lock, so pages being handed over are not held up.
+                this.fetchAll(due);
+                due.clear();
+            }
+        } catch(InterruptedException ex) {
+            // NOTE(millies): interrupted by close(), nothing to do.
+        }
+    }
 
-                // NOTE(millies): Getting the earliest next poll time.
-                candidate = subTaskPage.getNextTimeToPollUtc();
-                if(nextPollUtc == null || candidate.isBefore(nextPollUtc)) {
-                    nextPollUtc = candidate;
-                } else if(LOG.isDebugEnabled()) {
-                    LOG.debug(String.format("Not using Candidate: %s, Next Poll: %s", candidate, nextPollUtc));
-                }
+    private static boolean isDue(TableAPISubTask subTask, LocalDateTime nowUtc) {
+        return subTask != null && (subTask.getNextPollUtc() == null || !subTask.getNextPollUtc().isAfter(nowUtc));
+    }
 
-                // NOTE(millies): add records from subtask to unified page.
-                records.addAll(subTaskPage.getRecords());
-            } finally {
-                // NOTE(millies): requeue. back of the queue.
-                if(currentSubTask != null) {
-                    this._subTasks.add(currentSubTask);
-                }
+    /**
+     * Subtasks draining a backlog are fetched on their own, their pages being large, the others together in batches
+     * when the client sends batches, see {@link ServiceNowTableApiClient.Batch}.
+     */
+    private void fetchAll(List<TableAPISubTask> due) {
+        final int batchMaxRequests = this._client.getBatchMaxRequests();
+        ServiceNowTableApiClient.Batch batch = null;
+        for(TableAPISubTask subTask : due) {
+            if(batchMaxRequests <= 1 || subTask.isLastPageFull()) {
+                this.fetch(subTask, null);
+                continue;
+            }
+
+            if(batch == null) {
+                batch = this._client.newBatch();
+            }
+            this.fetch(subTask, batch);
+            if(batch.size() >= batchMaxRequests) {
+                batch.send();
+                batch = null;
             }
         }
 
-        // NOTE(millies): Delaying the polling loop at least a minimum amount of time.
-        // This kicks in if for whatever reason the connector gets started without any tasks. And
-        // would cpu peg the source task in the polling loop without us forcing at least some delay.
-        if(nextPollUtc == null) {
-            final int EMPTY_TASK_POLL_INTERVAL_SECONDS = 120;
-            LOG.warn(String.format("No tasks have been defined in configuration, defaulting polling interval to %s. At least one table should be configured to be watched.", EMPTY_TASK_POLL_INTERVAL_SECONDS));
-            nextPollUtc = LocalDateTime.now(ZoneOffset.UTC).plusSeconds(EMPTY_TASK_POLL_INTERVAL_SECONDS);
+        if(batch != null) {
+            batch.send();
         }
+    }
+
+    private void fetch(TableAPISubTask subTask, ServiceNowTableApiClient.Batch batch) {
+        this._metrics.recordFetchStarted();
+        final boolean prefetch = subTask.isLastPageFull();
+        final long fetchStartedNs = System.nanoTime();
 
-        return new SourceRecordsPage(records, nextPollUtc);
+        final CompletableFuture<FetchedPage> fetching;
+        try {
+            fetching = subTask.fetchAsync(batch);
+        } catch(Throwable ex) {
+            this.onFetched(subTask, null, ex);
+            return;
+        }
+
+        this._fetches.add(fetching);
+        // NOTE(millies): pages are handed over one at a time on a thread of their own, so a full delivery queue
+        // holds up the pipeline without holding up the threads of the http client, which other tasks share.
+        fetching.whenCompleteAsync((page, ex) -> {
+            this._fetches.remove(fetching);
+            if(ex == null) {
+                this._metrics.recordFetch(System.nanoTime() - fetchStartedNs, prefetch);
+            }
+            this.onFetched(subTask, page, ex);
+        }, this._deliverThread);
+    }
+
+    private void onFetched(TableAPISubTask subTask, FetchedPage page, Throwable failure) {
+        try {
+            if(failure != null) {
+                throw failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            }
+
+            // NOTE(millies): handing the page over before the subtask is rescheduled keeps the pages of a table in order.
+            if(page.size() > 0 || page.getHeartbeat() != null) {
+                this.deliver(page);
+            }
+        } catch(InterruptedException | CancellationException ex) {
+            // NOTE(millies): interrupted by close(), nothing to do.
+            return;
+        } catch(Throwable ex) {
+            if(this._running) {
+                LOG.error("Fetching table [{}] failed with the following error. {}", subTask.getTableName(), ex);
+                this._failure = ex;
+
+                // NOTE(millies): waking up poll() so the failure surfaces right away.
+                CompletableFuture<List<SourceRecord>> failed = new CompletableFuture<>();
+                failed.completeExceptionally(ex);
+                this._deliveryQueue.offer(failed);
+            }
+        } finally {
+            this._metrics.recordFetchFinished();
+            synchronized(this._schedule) {
+                this._inFlight--;
+                if(subTask.isDone()) {
+                    this._done++;
+                } else {
+                    this._schedule.add(subTask);
+                }
+                this._schedule.notifyAll();
+            }
+        }
+    }
+
+    private void deliver(FetchedPage page) throws InterruptedException {
+        Future<List<SourceRecord>> converted = this._convertPool.submit(() -> {
+            final long convertStartedNs = System.nanoTime();
+            List<SourceRecord> records = page.getSubTask().convert(page);
+            this._metrics.recordConvert(System.nanoTime() - convertStartedNs, records.size());
+            return records;
+        });
+
+        if(!this._deliveryQueue.offer(converted)) {
+            final long blockedStartedNs = System.nanoTime();
+            this._deliveryQueue.put(converted);
+            this._metrics.recordDeliverBlocked(System.nanoTime() - blockedStartedNs);
+        }
     }
 
     public void close() {
+        this._running = false;
+        try {
+            if(this._fetcher != null) {
+                this._fetcher.interrupt();
+                this._fetcher.join(CLOSE_TIMEOUT_MS);
+            }
+            this._fetches.forEach(fetching -> fetching.cancel(true));
+            this._deliverThread.shutdownNow();
+            this._deliverThread.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            this._convertPool.shutdownNow();
+            this._convertPool.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            MBeans.unregister(this._metricsName);
+            this._tableMetricsNames.forEach(MBeans::unregister);
+        }
+
         try {
             this._client.close();
         }
@@ -1,26 +1,31 @@
 package com.ibm.ingestion.connect.servicenow.source;
 
+import com.ibm.ingestion.connect.servicenow.metrics.TableMetrics;
 import com.ibm.ingestion.connect.servicenow.source.partitioner.IServiceNowTablePartitioner;
 import com.ibm.ingestion.connect.servicenow.source.partitioner.PartitionerFactory;
-import com.ibm.ingestion.connect.servicenow.util.Helpers;
+import com.ibm.ingestion.http.IRecordHandler;
 import com.ibm.ingestion.http.ServiceNowTableApiClient;
 import com.ibm.ingestion.http.TableAPIQueryBuilder;
+import com.ibm.ingestion.http.TableQueryTemplate;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceRecord;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
-import static com.ibm.ingestion.connect.servicenow.util.Helpers.buildSchemaFromSimpleJsonRecord;
 import static com.ibm.ingestion.connect.servicenow.util.Helpers.commaDelimitedToList;
 
 public class TableAPISubTask {
@@ -28,24 +33,48 @@ public class TableAPISubTask {
     private static final Logger LOG = LoggerFactory.getLogger(TableAPISubTask.class);
 
     private final int UNBOUNDED_FROM_QUERY_KEY = -1;
+    private static final double CHANGE_RATE_SMOOTHING = 0.3;
 
     private TimestampSourceOffset _offset;
     private ServiceNowTableApiClient _client;
     private LocalDateTime _nextPollUtc;
+    private boolean _lastPageFull;
+    private LocalDateTime _lastFetchUtc;
+    private LocalDateTime _lastThroughUtc;
+    private boolean _done;
+    private long _lastPublishedNs;
+    private boolean _published;
+    private Double _changeRatePerSecond;
+    private AdaptiveBatchSizer _batchSizer;
+    private QueryWindow _window;
+    private final TableMetrics _metrics = new TableMetrics();
 
     private long FAST_INTERVAL_NS;
     private long SLOW_INTERVAL_NS;
     private long INITIAL_QUERY_HOURS_AGO;
     private int TIMESTAMP_DELAY_INTERVAL_SECONDS;
     private int MAX_BATCH_SIZE;
+    private long HEARTBEAT_INTERVAL_NS;
+    private String HEARTBEAT_TOPIC;
 
     private String TABLE_NAME;
     private String TIMESTAMP_COLUMN_FIELD;
     private String IDENTIFIER_COLUMN_FIELD;
     private String TARGET_TOPIC;
     private List<String> FIELDS = null;
-
-    private Schema _cachedValueSchema;
+    private TableAPIQueryBuilder FILTER;
+    private Instant BACKFILL_UNTIL;
+    private boolean RAW_OUTPUT;
+
+    static final String OUTPUT_FORMAT_STRUCT = "struct";
+    static final String OUTPUT_FORMAT_RAW = "raw";
+    static final String HEARTBEAT_TOPIC_SUFFIX = "__heartbeat";
+
+    private ValueSchemaCache _valueSchemas;
+    private TableQueryTemplate _unboundedQuery;
+    private TableQueryTemplate _boundedQuery;
+    private TableQueryTemplate _boundedQueryAfterIdentifier;
+    private final StringBuilder _queryBuffer = new StringBuilder(512);
     private TableQueryPartition SOURCE_PARTITION;
     private IServiceNowTablePartitioner DESTINATION_PARTITIONER;
 
@@ -59,13 +88,7 @@ public class TableAPISubTask {
 
     public TableAPISubTask(TableQueryPartition sourcePartition, TimestampSourceOffset offset, ServiceNowTableAPISourceTaskConfig config, ServiceNowTableApiClient client) {
 
-        this._client = client;
-        this._offset = offset;
-        this.FAST_INTERVAL_NS = config.getLong(ServiceNowSourceConnectorConfig.TASK_POLL_FAST_INTERVAL_MS) * 1000000;
-        this.SLOW_INTERVAL_NS = config.getLong(ServiceNowSourceConnectorConfig.TASK_POLL_SLOW_INTERVAL_MS) * 1000000;
-        this.INITIAL_QUERY_HOURS_AGO = config.getLong(ServiceNowSourceConnectorConfig.TIMESTAMP_INITIAL_QUERY_HOURS_AGO);
-        this.TIMESTAMP_DELAY_INTERVAL_SECONDS = config.getInt(ServiceNowSourceConnectorConfig.TIMESTAMP_DELAY_INTERVAL_SECONDS);
-        this.MAX_BATCH_SIZE = config.getInt(ServiceNowSourceConnectorConfig.TASK_POLL_BATCH_MAX_SIZE);
+        this.initPolling(offset, config, client);
 
         this.SOURCE_PARTITION = sourcePartition;
         final String tableKey = this.SOURCE_PARTITION.getTableName();
@@ -106,75 +129,442 @@ public class TableAPISubTask {
         }
 
         this.DESTINATION_PARTITIONER = PartitionerFactory.build(tableKey, config);
+
+        // NOTE(millies): the live tail of a backfilled table starts where its backfill ends.
+        final String BACKFILL_UNTIL_KEY = String.format("table.whitelist.%s.backfill.until", tableKey);
+        final String rawBackfillUntil = tryGetConfig(config, BACKFILL_UNTIL_KEY, "");
+        if(!this.SOURCE_PARTITION.isBackfill() && rawBackfillUntil != null && !rawBackfillUntil.trim().isEmpty()) {
+            this.BACKFILL_UNTIL = TableQueryPartition.parseBackfillTimestamp(rawBackfillUntil, BACKFILL_UNTIL_KEY);
+        }
+
+        final String OUTPUT_FORMAT_KEY = String.format("table.whitelist.%s.output.format", tableKey);
+        final String outputFormat = tryGetConfig(config, OUTPUT_FORMAT_KEY, OUTPUT_FORMAT_STRUCT).trim().toLowerCase();
+        if(!OUTPUT_FORMAT_STRUCT.equals(outputFormat) && !OUTPUT_FORMAT_RAW.equals(outputFormat)) {
+            throw new ConnectException(String.format("Unsupported output format [%s], must be one of [%s, %s]. Configuration [%s]", outputFormat, OUTPUT_FORMAT_STRUCT, OUTPUT_FORMAT_RAW, OUTPUT_FORMAT_KEY));
+        }
+        this.RAW_OUTPUT = OUTPUT_FORMAT_RAW.equals(outputFormat);
+
+        // NOTE(millies): typed schemas are opt in, switching a table over changes the schema of its topic.
+        final String TYPED_SCHEMA_KEY = String.format("table.whitelist.%s.schema.typed", tableKey);
+        TableMetadata metadata = null;
+        if(!this.RAW_OUTPUT && Boolean.parseBoolean(tryGetConfig(config, TYPED_SCHEMA_KEY, "false").trim())) {
+            metadata = TableMetadata.get(
+                    client,
+                    config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_BASEURI),
+                    this.TABLE_NAME,
+                    config.getLong(ServiceNowSourceConnectorConfig.SCHEMA_METADATA_CACHE_TTL_SECONDS) * 1000);
+        }
+
+        this._valueSchemas = new ValueSchemaCache(
+                this.TARGET_TOPIC.replaceAll("[^A-Za-z0-9_.]", "_"),
+                config.getInt(ServiceNowSourceConnectorConfig.SCHEMA_CACHE_MAX_SIZE),
+                metadata);
+
+        this.compileQueries();
+    }
+
+    /**
+     * A subtask polling a table that is not whitelisted, whose records are never converted, such as the audit table
+     * tailed by {@link AuditCaptureSubTask}.
+     * @param filter what every record polled for must match, besides having an identifier, or null.
+     */
+    protected TableAPISubTask(TableQueryPartition sourcePartition, TimestampSourceOffset offset, ServiceNowTableAPISourceTaskConfig config, ServiceNowTableApiClient client,
+                              String tableName, String timestampField, String identifierField, List<String> fields, TableAPIQueryBuilder filter) {
+
+        this.initPolling(offset, config, client);
+
+        this.SOURCE_PARTITION = sourcePartition;
+        this.TABLE_NAME = tableName;
+        this.TIMESTAMP_COLUMN_FIELD = timestampField;
+        this.IDENTIFIER_COLUMN_FIELD = identifierField;
+        this.FIELDS = fields;
+        this.FILTER = filter;
+        this.compileQueries();
+    }
+
+    private void initPolling(TimestampSourceOffset offset, ServiceNowTableAPISourceTaskConfig config, ServiceNowTableApiClient client) {
+        this._client = client;
+        this._offset = offset;
+        this.FAST_INTERVAL_NS = config.getLong(ServiceNowSourceConnectorConfig.TASK_POLL_FAST_INTERVAL_MS) * 1000000;
+        this.SLOW_INTERVAL_NS = config.getLong(ServiceNowSourceConnectorConfig.TASK_POLL_SLOW_INTERVAL_MS) * 1000000;
+        this.INITIAL_QUERY_HOURS_AGO = config.getLong(ServiceNowSourceConnectorConfig.TIMESTAMP_INITIAL_QUERY_HOURS_AGO);
+        this.TIMESTAMP_DELAY_INTERVAL_SECONDS = config.getInt(ServiceNowSourceConnectorConfig.TIMESTAMP_DELAY_INTERVAL_SECONDS);
+        this.MAX_BATCH_SIZE = config.getInt(ServiceNowSourceConnectorConfig.TASK_POLL_BATCH_MAX_SIZE);
+        this._batchSizer = new AdaptiveBatchSizer(
+                config.getInt(ServiceNowSourceConnectorConfig.TASK_POLL_BATCH_MIN_SIZE),
+                this.MAX_BATCH_SIZE,
+                config.getLong(ServiceNowSourceConnectorConfig.TASK_POLL_BATCH_TARGET_RESPONSE_MS));
+        this._metrics.recordBatchSize(this._batchSizer.getBatchSize(), 0);
+        this.HEARTBEAT_INTERVAL_NS = config.getLong(ServiceNowSourceConnectorConfig.HEARTBEAT_INTERVAL_MS) * 1000000;
+        this.HEARTBEAT_TOPIC = config.getString(ServiceNowSourceConnectorConfig.HEARTBEAT_TOPIC);
+        if(this.HEARTBEAT_TOPIC == null || this.HEARTBEAT_TOPIC.trim().isEmpty()) {
+            final String prefix = config.getString(ServiceNowSourceConnectorConfig.STREAM_PREFIX);
+            this.HEARTBEAT_TOPIC = (prefix == null ? "" : prefix.replaceAll("\\.+$", "")) + "." + HEARTBEAT_TOPIC_SUFFIX;
+        }
+        this._window = new QueryWindow(
+                config.getLong(ServiceNowSourceConnectorConfig.TASK_POLL_WINDOW_INITIAL_SECONDS),
+                config.getLong(ServiceNowSourceConnectorConfig.TASK_POLL_WINDOW_MAX_SECONDS));
+    }
+
+    private void compileQueries() {
+        this._unboundedQuery = this.compileUnboundedQuery();
+        this._boundedQuery = this.compileBoundedQuery(false);
+        this._boundedQueryAfterIdentifier = this.compileBoundedQuery(true);
+    }
+
+    public String getTableName() {
+        return this.TABLE_NAME;
+    }
+
+    public String getTableKey() {
+        return this.SOURCE_PARTITION.getTableName();
+    }
+
+    /**
+     * @return the key of the table, along with the shard for a sharded table, see {@link TableQueryPartition#getId()}.
+     */
+    public String getPartitionId() {
+        return this.SOURCE_PARTITION.getId();
+    }
+
+    public TableMetrics getMetrics() {
+        return this._metrics;
     }
 
     public LocalDateTime getNextPollUtc() {
         return this._nextPollUtc;
     }
 
+    /**
+     * @return whether this is a backfill slice that has been read through, and is not to be polled again.
+     */
+    public boolean isDone() {
+        return this._done;
+    }
+
+    /**
+     * @return whether the last page left a backlog behind it: it came back full, or its query window drained short of
+     * the latest timestamp, see {@link QueryWindow}.
+     */
+    public boolean isLastPageFull() {
+        return this._lastPageFull;
+    }
+
     private void setNextPollUtc(LocalDateTime nextPollUtc) {
         this._nextPollUtc = nextPollUtc;
     }
 
-    public SourceRecordsPage poll() throws IOException, InterruptedException {
+    /**
+     * Fetch stage: requests the next page for the table and advances the offset of the subtask past it, so the
+     * page after it can be requested before this one has been converted or delivered. The request is sent without
+     * blocking, and records are decoded on the threads of the http client as they stream in.
+     *
+     * When the page came back full, or drained a query window short of the latest timestamp, there is a backlog
+     * waiting, so the subtask drains it by asking to be polled again right away. Otherwise it backs off for as long
+     * as it takes the table to see another change, going by the change rate observed so far.
+     *
+     * Cancelling the returned future cancels the request behind it.
+     */
+    public CompletableFuture<FetchedPage> fetchAsync() {
+        return this.fetchAsync(null);
+    }
+
+    /**
+     * Same as {@link #fetchAsync()}, the request going out with the given batch of requests when it is sent, if any.
+     */
+    public CompletableFuture<FetchedPage> fetchAsync(ServiceNowTableApiClient.Batch requests) {
+
+        // NOTE(millies): the query of a slice at its end would read the records at the end, those of the next slice.
+        if(this.SOURCE_PARTITION.isBackfilledThrough(this._offset.getLastSeenTimestamp())) {
+            this._done = true;
+            LOG.info("Done backfilling [{}] of table [{}].", this.getPartitionId(), TABLE_NAME);
+            return CompletableFuture.completedFuture(new FetchedPage(this));
+        }
+
+        final int batchSize = this._batchSizer.getBatchSize();
+        this.renderQuery();
+
+        BatchRecordHandler batch = new BatchRecordHandler(true);
+        CompletableFuture<Integer> request = requests == null
+                ? this._client.getRecordsAsync(TABLE_NAME, this._queryBuffer, 0, batchSize, true, this.FIELDS, batch)
+                : requests.add(TABLE_NAME, this._queryBuffer, 0, batchSize, true, this.FIELDS, batch);
+        CompletableFuture<FetchedPage> fetched = request.thenApply(count -> {
+            batch.commitOffset();
+            return this.onFetched(batch.getPage(), batchSize);
+        });
+
+        fetched.whenComplete((page, ex) -> {
+            if(fetched.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return fetched;
+    }
+
+    /**
+     * Requests the current version of the records with the given sys_ids, whatever their timestamp, leaving the
+     * offset of the subtask where it is. Records outside the filter or shard of the subtask are left out. The records of
+     * the page are left without an offset, for the caller to set.
+     * @param sysIds at most {@link #getMaxBatchSize()} of them.
+     */
+    CompletableFuture<FetchedPage> fetchChangedAsync(Collection<String> sysIds, ServiceNowTableApiClient.Batch requests) {
+
+        // NOTE(millies): only the records this subtask polls for, so a filtered or sharded table is captured once.
+        TableAPIQueryBuilder query = this.recordFilter()
+                .and(TableAPIQueryBuilder.Builder().whereIn(AuditCaptureSubTask.KEY_FIELD, sysIds));
 
-        List<SourceRecord> records = getBatch();
-        long nextPollIntervalNs = SLOW_INTERVAL_NS;
-        if(records != null && records.size() > 0) {
-            nextPollIntervalNs = FAST_INTERVAL_NS;
+        BatchRecordHandler batch = new BatchRecordHandler(false);
+        CompletableFuture<Integer> request = requests == null
+                ? this._client.getRecordsAsync(TABLE_NAME, query, 0, sysIds.size(), true, this.FIELDS, batch)
+                : requests.add(TABLE_NAME, query, 0, sysIds.size(), true, this.FIELDS, batch);
+        CompletableFuture<FetchedPage> fetched = request.thenApply(count -> batch.getPage());
+
+        fetched.whenComplete((page, ex) -> {
+            if(fetched.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return fetched;
+    }
+
+    int getMaxBatchSize() {
+        return this.MAX_BATCH_SIZE;
+    }
+
+    private FetchedPage onFetched(FetchedPage page, int batchSize) {
+
+        final LocalDateTime nowUtc = LocalDateTime.now(ZoneOffset.UTC);
+        final boolean pageFull = page.size() >= batchSize;
+
+        // NOTE(millies): a window drained short of the latest timestamp is a backlog all the same.
+        final boolean backlog = this._window.observe(page.size(), pageFull, batchSize) || pageFull;
+
+        // NOTE(millies): pages read while draining a backlog say how fast we can read, not how fast the table changes.
+        if(!backlog && !this._lastPageFull) {
+            this.observeChangeRate(page.size(), nowUtc);
+        }
+        this._lastPageFull = backlog;
+        this._lastFetchUtc = nowUtc;
+
+        if(!backlog) {
+            this.heartbeatIfDue(page);
+        }
+
+        // NOTE(millies): a slice is done once a query reaching its end comes back without a backlog.
+        if(this.SOURCE_PARTITION.isBackfill() && !backlog && !this._lastThroughUtc.isBefore(toUtc(this.SOURCE_PARTITION.getBackfillUntil()))) {
+            this._done = true;
+            LOG.info("Done backfilling [{}] of table [{}].", this.getPartitionId(), TABLE_NAME);
+            return page;
         }
 
-        final LocalDateTime nextPollUtc = LocalDateTime.now(ZoneOffset.UTC).plusNanos(nextPollIntervalNs);
+        final long nextPollIntervalNs = backlog ? 0 : this.getIdleIntervalNs(page.size());
+        final LocalDateTime nextPollUtc = nowUtc.plusNanos(nextPollIntervalNs);
         this.setNextPollUtc(nextPollUtc);
 
-        LOG.info("Received [{}] records for table [{}]. Suggested next poll time for table is [{}].", records.size(), TABLE_NAME, nextPollUtc);
-        return new SourceRecordsPage(records, nextPollUtc);
+        LOG.info("Received [{}] records for table [{}]. Suggested next poll time for table is [{}].", page.size(), TABLE_NAME, nextPollUtc);
+        return page;
+    }
+
+    /**
+     * Moves the offset of a subtask that has found nothing new for a while up to the through timestamp of the query
+     * that found nothing, left out of the query, so resuming from there reads it again. The page carries the offset,
+     * for it to be published with a heartbeat record.
+     */
+    private void heartbeatIfDue(FetchedPage page) {
+        final long nowNs = System.nanoTime();
+        if(page.size() > 0) {
+            this._lastPublishedNs = nowNs;
+            this._published = true;
+            return;
+        }
+
+        if(this.HEARTBEAT_INTERVAL_NS <= 0 || this._lastThroughUtc == null || (this._published && nowNs - this._lastPublishedNs < this.HEARTBEAT_INTERVAL_NS)) {
+            return;
+        }
+
+        final Instant through = this._lastThroughUtc.toInstant(ZoneOffset.UTC);
+        final Instant lastSeen = this._offset.getLastSeenTimestamp();
+        if(lastSeen != null && through.getEpochSecond() <= lastSeen.getEpochSecond()) {
+            return;
+        }
+
+        this._offset.updateOffset(Instant.ofEpochSecond(through.getEpochSecond()), null);
+        page.setHeartbeat(this._offset.toMap());
+        LOG.debug("Nothing new for table [{}], moving its offset to [{}] with a heartbeat.", this.getPartitionId(), this._offset.getLastSeenTimestamp());
+        this._lastPublishedNs = nowNs;
+        this._published = true;
     }
 
-    private List<SourceRecord> getBatch() throws IOException, InterruptedException {
-        TableAPIQueryBuilder builder = buildQuery();
-        LOG.info("Query [{}].", builder.build());
+    /**
+     * The heartbeat record moving the offset of the source partition forward, keyed by the subtask.
+     */
+    SourceRecord buildHeartbeat(Map<String, Object> sourcePartition, Map<String, Object> offset) {
+        return new SourceRecord(
+                sourcePartition,
+                offset,
+                this.HEARTBEAT_TOPIC,
+                null,
+                Schema.STRING_SCHEMA,
+                this.getPartitionId(),
+                Schema.INT64_SCHEMA,
+                ((Number)offset.get(TimestampSourceOffset.TIMESTAMP_KEY)).longValue() * 1000);
+    }
+
+    private void observeChangeRate(int records, LocalDateTime nowUtc) {
+        if(this._lastFetchUtc == null) {
+            return;
+        }
+
+        final double elapsedSeconds = Duration.between(this._lastFetchUtc, nowUtc).toNanos() / 1e9;
+        if(elapsedSeconds <= 0) {
+            return;
+        }
 
-        List<JSONObject> rawRecords = this._client.getRecords(TABLE_NAME, builder, 0, this.MAX_BATCH_SIZE, this.FIELDS);
-        return processBatch(rawRecords);
+        final double observedRate = records / elapsedSeconds;
+        if(this._changeRatePerSecond == null) {
+            this._changeRatePerSecond = observedRate;
+        } else {
+            this._changeRatePerSecond = CHANGE_RATE_SMOOTHING * observedRate + (1 - CHANGE_RATE_SMOOTHING) * this._changeRatePerSecond;
+        }
     }
 
-    private List<SourceRecord> processBatch(List<JSONObject> batch) {
+    /**
+     * The time we expect to wait for the next change to the table, kept between the fast and slow intervals.
+     */
+    private long getIdleIntervalNs(int records) {
+        if(this._changeRatePerSecond == null) {
+            // NOTE(millies): nothing observed yet, fall back to whether the last call returned anything.
+            return records > 0 ? FAST_INTERVAL_NS : SLOW_INTERVAL_NS;
+        }
 
-        List<SourceRecord> records = new ArrayList<>(batch.size());
-        LocalDateTime lastProcessedTimestamp = null;
-        String lastProcessedIdentifier = null;
-        for(JSONObject result : batch) {
+        if(this._changeRatePerSecond <= 0) {
+            return SLOW_INTERVAL_NS;
+        }
 
-            // NOTE(Millies): dynamic building of the value schema. Not sure if this is going to cause an issue.
-            if(this._cachedValueSchema == null && result != null) {
-                this._cachedValueSchema = buildSchemaFromSimpleJsonRecord(result);
-            }
+        final double expectedIntervalNs = 1e9 / this._changeRatePerSecond;
+        return (long)Math.max(FAST_INTERVAL_NS, Math.min(SLOW_INTERVAL_NS, expectedIntervalNs));
+    }
 
-            String rawTimestamp = result.getString(this.TIMESTAMP_COLUMN_FIELD);
-            lastProcessedTimestamp = Helpers.parseServiceNowDateTimeUtc(rawTimestamp);
-            lastProcessedIdentifier = result.getString(this.IDENTIFIER_COLUMN_FIELD);
+    /**
+     * Convert stage: builds the SourceRecords for a page returned by {@link #fetchAsync()}. Safe to call from several
+     * threads at once for different pages.
+     */
+    public List<SourceRecord> convert(FetchedPage page) {
+        return this.convert(page, this.SOURCE_PARTITION.getPartition());
+    }
+
+    /**
+     * Same as {@link #convert(FetchedPage)}, for records whose offsets belong to another source partition.
+     */
+    List<SourceRecord> convert(FetchedPage page, Map<String, Object> sourcePartition) {
 
-            SourceRecord record = SourceRecordBuilder.Builder(DESTINATION_PARTITIONER)
-                    .withSourcePartition(this.SOURCE_PARTITION.getPartition())
-                    .withOffset(TimestampSourceOffset.toMap(lastProcessedTimestamp.toInstant(ZoneOffset.UTC), lastProcessedIdentifier))
+        if(page.size() == 0 && page.getHeartbeat() != null) {
+            return Collections.singletonList(this.buildHeartbeat(sourcePartition, page.getHeartbeat()));
+        }
+
+        final IServiceNowTablePartitioner partitioner = DESTINATION_PARTITIONER.forPage();
+        List<SourceRecord> records = new ArrayList<>(page.size());
+        for(int i = 0; i < page.size(); i++) {
+            SourceRecordBuilder builder = SourceRecordBuilder.Builder(partitioner)
+                    .withSourcePartition(sourcePartition)
+                    .withOffset(page.getOffset(i))
                     .withTopic(this.TARGET_TOPIC)
-                    .withValueSchema(this._cachedValueSchema)
-                    .withRecord(result)
-                    .build();
+                    .withRecord(page.getRecord(i));
 
-            records.add(record);
+            SourceRecord record = this.RAW_OUTPUT
+                    ? builder.withRawValue().build()
+                    : builder.withValueConverter(page.getConverter(i)).build();
 
-            this._offset.updateOffset(lastProcessedTimestamp.toInstant(ZoneOffset.UTC), lastProcessedIdentifier);
+            records.add(record);
         }
 
         return records;
     }
 
+    /**
+     * Collects records as they are streamed off of the response, keeping only what the convert stage needs. The
+     * offset of the subtask is only moved once the page has been fully received.
+     */
+    private class BatchRecordHandler implements IRecordHandler {
+
+        private FetchedPage _page = new FetchedPage(TableAPISubTask.this);
+        private final RecordOffsetTracker _offsets = new RecordOffsetTracker();
+        private final boolean _tracksOffset;
+
+        /**
+         * @param tracksOffset whether the page is the next one after the offset of the subtask, rather than a page
+         *                     of records requested by sys_id, see
+         *                     {@link #fetchChangedAsync(Collection, ServiceNowTableApiClient.Batch)}.
+         */
+        BatchRecordHandler(boolean tracksOffset) {
+            this._tracksOffset = tracksOffset;
+        }
+
+        public void reset() {
+            this._page = new FetchedPage(TableAPISubTask.this);
+            this._offsets.reset();
+        }
+
+        @Override
+        public boolean needsRawRecords() {
+            return RAW_OUTPUT;
+        }
+
+        public void onRecord(ServiceNowRecord result) {
+
+            // NOTE(millies): raw records go out as they came, there is no schema to pick for them.
+            final RecordConverter converter = RAW_OUTPUT || _valueSchemas == null ? null : _valueSchemas.get(result);
+
+            final Map<String, Object> offset = !this._tracksOffset ? null : this._offsets.next(
+                    getRequiredValue(result, TIMESTAMP_COLUMN_FIELD),
+                    getRequiredValue(result, IDENTIFIER_COLUMN_FIELD));
+
+            this._page.add(result, converter, offset);
+        }
+
+        @Override
+        public void onComplete(long responseBytes, long elapsedMs) {
+            _metrics.recordResponse(this._page.size(), responseBytes, elapsedMs);
+            if(this._tracksOffset) {
+                _batchSizer.observe(this._page.size(), responseBytes, elapsedMs);
+                _metrics.recordBatchSize(_batchSizer.getBatchSize(), _batchSizer.getBytesPerRecord());
+            }
+            if(_valueSchemas != null) {
+                _metrics.recordValueSchemaVersion(_valueSchemas.getVersion());
+            }
+        }
+
+        public FetchedPage getPage() {
+            return this._page;
+        }
+
+        public void commitOffset() {
+            if(this._offsets.getLastTimestamp() != null) {
+                this._page.setLastOffset(this._offsets.getLastOffset());
+                _offset.updateOffset(this._offsets.getLastTimestamp(), this._offsets.getLastIdentifier());
+            }
+        }
+    }
+
+    private static String getRequiredValue(ServiceNowRecord record, String field) {
+        final String value = record.getValue(field);
+        if(value == null) {
+            // NOTE(millies): a record we cannot process is not something retrying will fix.
+            throw new ConnectException(String.format("Failed processing record [%s], it has no value for [%s].", record, field));
+        }
+        return value;
+    }
+
     private LocalDateTime getFromDateTimeUtc() {
         final LocalDateTime nowUtc = LocalDateTime.now(ZoneOffset.UTC);
 
         Instant lastSeenTimestamp = this._offset.getLastSeenTimestamp();
+        if(lastSeenTimestamp == null && this.SOURCE_PARTITION.isBackfill()) {
+            return toUtc(this.SOURCE_PARTITION.getBackfillFrom());
+        }
+        if(lastSeenTimestamp == null && this.BACKFILL_UNTIL != null) {
+            return toUtc(this.BACKFILL_UNTIL);
+        }
         if(lastSeenTimestamp == null) {
 
             if(this.INITIAL_QUERY_HOURS_AGO == UNBOUNDED_FROM_QUERY_KEY) {
@@ -201,31 +591,57 @@ public class TableAPISubTask {
         final LocalDateTime nowUtc = LocalDateTime.now(ZoneOffset.UTC);
 
         final int timestampDelaySeconds = this.TIMESTAMP_DELAY_INTERVAL_SECONDS;
-        return nowUtc.minusSeconds(timestampDelaySeconds);
+        final LocalDateTime throughUtc = nowUtc.minusSeconds(timestampDelaySeconds);
+        if(this.SOURCE_PARTITION.isBackfill()) {
+            final LocalDateTime untilUtc = toUtc(this.SOURCE_PARTITION.getBackfillUntil());
+            return untilUtc.isBefore(throughUtc) ? untilUtc : throughUtc;
+        }
+        return throughUtc;
+    }
+
+    private static LocalDateTime toUtc(Instant timestamp) {
+        return LocalDateTime.ofInstant(timestamp, ZoneOffset.UTC);
     }
 
-    private TableAPIQueryBuilder buildQuery() {
-        LocalDateTime fromDateTimeUtc = this.getFromDateTimeUtc();
-        LocalDateTime throughDateTimeUtc = this.getThroughDateTimeUtc();
+    /**
+     * Renders the query for the next page into the reusable query buffer, url encoded. Only the parameters of the
+     * query change between polls, so the query is rendered from one of a handful of templates compiled up front.
+     */
+    private void renderQuery() {
+        final LocalDateTime fromDateTimeUtc = this.getFromDateTimeUtc();
+        final LocalDateTime throughDateTimeUtc = this._window.getThrough(fromDateTimeUtc, this.getThroughDateTimeUtc());
+        this._lastThroughUtc = throughDateTimeUtc;
+        final String lastSeenIdentifier = this._offset.getLastReadIdentifier();
+
+        TableQueryTemplate template;
         if(fromDateTimeUtc == null) {
-            return buildQueryUnboundedQuery(throughDateTimeUtc);
+            template = this._unboundedQuery;
+        } else if(lastSeenIdentifier != null) {
+            template = this._boundedQueryAfterIdentifier;
         } else {
-            return buildQueryBoundedQuery(fromDateTimeUtc, throughDateTimeUtc);
+            template = this._boundedQuery;
         }
-    }
 
-    private TableAPIQueryBuilder buildQueryUnboundedQuery(LocalDateTime throughDateTimeUtc) {
+        this._queryBuffer.setLength(0);
+        template.renderEncoded(this._queryBuffer, fromDateTimeUtc, throughDateTimeUtc, lastSeenIdentifier);
+
+        if(LOG.isDebugEnabled()) {
+            StringBuilder query = new StringBuilder();
+            template.render(query, fromDateTimeUtc, throughDateTimeUtc, lastSeenIdentifier);
+            LOG.debug("Query [{}].", query);
+        }
+    }
 
-        TableAPIQueryBuilder unboundedQuery = TableAPIQueryBuilder.Builder();
+    private TableQueryTemplate compileUnboundedQuery() {
 
         // NOTE(millies): filter out any records with no value for the identifier field.
-        unboundedQuery.whereIsNotEmpty(this.IDENTIFIER_COLUMN_FIELD);
-
-        unboundedQuery
+        TableAPIQueryBuilder unboundedQuery = this.recordFilter()
                 .orderByAsc(this.TIMESTAMP_COLUMN_FIELD)
                 .orderByAsc(this.IDENTIFIER_COLUMN_FIELD);
 
-        return unboundedQuery;
+        return TableQueryTemplate.Builder()
+                .where(unboundedQuery)
+                .build();
     }
 
     /**
@@ -240,40 +656,57 @@ public class TableAPISubTask {
      *          AND (@lastSeenIdentifier = null OR "IDENTIFIER_FIELD" > @lastSeenIdentifier))
      *      OR (
      *          "TIMESTAMP_FIELD" > @lastSeenTimestamp
-     *          AND "TIMESTAMP_FIELD" <= @throughTimestamp
+     *          AND "TIMESTAMP_FIELD" < @throughTimestamp
      *      )
      *  ORDER BY
      *      "TIMESTAMP_FIELD" ASC
      *      "IDENTIFIER_FIELD" ASC
+     *
+     * Compiled once with, and once without, the last seen identifier.
      * @return
      */
-    private TableAPIQueryBuilder buildQueryBoundedQuery(LocalDateTime fromDateTimeUtc, LocalDateTime throughDateTimeUtc) {
-
-        TableAPIQueryBuilder lastSeenTimestampEqualsQuery = TableAPIQueryBuilder.Builder();
-
-        lastSeenTimestampEqualsQuery.whereTimestampEquals(this.TIMESTAMP_COLUMN_FIELD, fromDateTimeUtc);
-        String lastSeenIdentifier = this._offset.getLastReadIdentifier();
-        if(lastSeenIdentifier != null) {
-            lastSeenTimestampEqualsQuery.whereGreaterThan(this.IDENTIFIER_COLUMN_FIELD, lastSeenIdentifier);
-        }
+    private TableQueryTemplate compileBoundedQuery(boolean afterIdentifier) {
 
         // NOTE(millies): filter out any records with no value for the identifier field.
-        lastSeenTimestampEqualsQuery.whereIsNotEmpty(this.IDENTIFIER_COLUMN_FIELD);
+        TableAPIQueryBuilder identifierNotEmpty = this.recordFilter();
 
-        TableAPIQueryBuilder timestampWindowQuery = TableAPIQueryBuilder.Builder();
-        timestampWindowQuery
-                .whereBetweenExclusive(this.TIMESTAMP_COLUMN_FIELD, fromDateTimeUtc, throughDateTimeUtc);
-
-        // NOTE(millies): filter out any records with no value for the identifier field.
-        timestampWindowQuery.whereIsNotEmpty(this.IDENTIFIER_COLUMN_FIELD);
-
-        timestampWindowQuery
+        TableAPIQueryBuilder ordering = TableAPIQueryBuilder.Builder()
                 .orderByAsc(this.TIMESTAMP_COLUMN_FIELD)
                 .orderByAsc(this.IDENTIFIER_COLUMN_FIELD);
 
+        TableQueryTemplate.Builder query = TableQueryTemplate.Builder()
+                .whereTimestampEquals(this.TIMESTAMP_COLUMN_FIELD, TableQueryTemplate.Parameter.FROM_TIMESTAMP);
+        if(afterIdentifier) {
+            query.whereGreaterThan(this.IDENTIFIER_COLUMN_FIELD, TableQueryTemplate.Parameter.LAST_IDENTIFIER);
+        }
+
         // NOTE(Millies): join the queries together with an "or" type of thing.
-        lastSeenTimestampEqualsQuery.union(timestampWindowQuery);
+        return query
+                .where(identifierNotEmpty)
+                .union()
+                .whereBetweenExclusive(this.TIMESTAMP_COLUMN_FIELD, TableQueryTemplate.Parameter.FROM_TIMESTAMP, TableQueryTemplate.Parameter.THROUGH_TIMESTAMP)
+                .where(identifierNotEmpty)
+                .where(ordering)
+                .build();
+    }
+
+    /**
+     * The records polled for: those with an identifier, within the sys_id range of the shard for a sharded table.
+     */
+    private TableAPIQueryBuilder recordFilter() {
+        TableAPIQueryBuilder filter = TableAPIQueryBuilder.Builder()
+                .whereIsNotEmpty(this.IDENTIFIER_COLUMN_FIELD);
+        if(this.FILTER != null) {
+            filter.and(this.FILTER);
+        }
 
-        return lastSeenTimestampEqualsQuery;
+        // NOTE(millies): sys_ids are lower case hex, so comparing with a prefix splits them by their leading digits.
+        if(this.SOURCE_PARTITION.getShardFrom() != null) {
+            filter.whereGreaterThanOrEqual(TableQueryPartition.SHARD_FIELD, this.SOURCE_PARTITION.getShardFrom());
+        }
+        if(this.SOURCE_PARTITION.getShardUntil() != null) {
+            filter.whereLessThan(TableQueryPartition.SHARD_FIELD, this.SOURCE_PARTITION.getShardUntil());
+        }
+        return filter;
     }
 }
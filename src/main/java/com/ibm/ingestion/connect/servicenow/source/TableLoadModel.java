@@ -0,0 +1,85 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The load each table, or shard of a table, puts on the task polling it: its configured weight, in records per
+ * second.
+ *
+ * Tables are packed into tasks heaviest first, each going to the task with the least load so far (longest
+ * processing time first), which keeps the busiest task within a third of the best possible packing.
+ */
+public class TableLoadModel {
+
+    private static final double DEFAULT_WEIGHT = 1.0;
+
+    private final Map<String, Double> WEIGHTS;
+
+    /**
+     * @param weights the configured weight of each table or shard, by partition id. Those missing weigh 1.
+     */
+    public TableLoadModel(Map<String, Double> weights) {
+        this.WEIGHTS = weights;
+    }
+
+    public double getLoad(String partitionId) {
+        return WEIGHTS.getOrDefault(partitionId, DEFAULT_WEIGHT);
+    }
+
+    public List<List<String>> pack(List<String> partitionIds, int groups) {
+        return pack(partitionIds, groups, this::getLoad);
+    }
+
+    public double imbalance(List<List<String>> groups) {
+        return imbalance(groups, this::getLoad);
+    }
+
+    /**
+     * @return the partition ids packed into at most the given number of groups, longest processing time first.
+     * Partitions of equal load are dealt out in turn, in the order given.
+     */
+    public static List<List<String>> pack(List<String> partitionIds, int groups, ToDoubleFunction<String> load) {
+
+        final int count = Math.min(partitionIds.size(), groups);
+        final double[] loads = new double[count];
+        List<List<String>> packed = new ArrayList<>(count);
+        PriorityQueue<Integer> lightest = new PriorityQueue<>(Math.max(1, count),
+                Comparator.<Integer>comparingDouble(group -> loads[group]).thenComparingInt(group -> group));
+        for(int group = 0; group < count; group++) {
+            packed.add(new ArrayList<>());
+            lightest.add(group);
+        }
+
+        // NOTE(millies): a stable sort, so ties keep their order.
+        List<String> heaviestFirst = new ArrayList<>(partitionIds);
+        heaviestFirst.sort(Comparator.comparingDouble(load).reversed());
+        for(String partitionId : heaviestFirst) {
+            final int group = lightest.poll();
+            packed.get(group).add(partitionId);
+            loads[group] += load.applyAsDouble(partitionId);
+            lightest.add(group);
+        }
+
+        return packed;
+    }
+
+    /**
+     * @return the load of the busiest group over the mean load of the groups, 1 when perfectly balanced.
+     */
+    public static double imbalance(List<List<String>> groups, ToDoubleFunction<String> load) {
+        double total = 0;
+        double busiest = 0;
+        for(List<String> group : groups) {
+            final double groupLoad = group.stream().mapToDouble(load).sum();
+            total += groupLoad;
+            busiest = Math.max(busiest, groupLoad);
+        }
+
+        return total <= 0 ? 1.0 : busiest / (total / groups.size());
+    }
+}
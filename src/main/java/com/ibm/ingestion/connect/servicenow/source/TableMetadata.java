@@ -0,0 +1,152 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.http.ServiceNowTableApiClient;
+import com.ibm.ingestion.http.TableAPIQueryBuilder;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The types of the fields of a table, as defined by its entries in sys_dictionary and those of the tables it
+ * extends. Fields with no entry, such as dot-walked ones, are strings.
+ *
+ * Loaded metadata is kept for every task of the worker for a while, so tasks starting up, or restarting after a
+ * rebalance, do not query the dictionary again.
+ */
+public final class TableMetadata {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TableMetadata.class);
+
+    static final String TABLE_OBJECTS_TABLE = "sys_db_object";
+    static final String DICTIONARY_TABLE = "sys_dictionary";
+
+    /**
+     * Guards against a cycle in the table hierarchy, the deepest of the out of the box tables are a handful deep.
+     */
+    private static final int MAX_HIERARCHY_DEPTH = 16;
+    private static final int DICTIONARY_PAGE_SIZE = 1000;
+
+    private static final Map<String, CacheEntry> CACHE = new ConcurrentHashMap<>();
+
+    private final Map<String, FieldType> _types;
+
+    TableMetadata(Map<String, FieldType> types) {
+        this._types = Collections.unmodifiableMap(types);
+    }
+
+    public FieldType getType(String field) {
+        return this._types.getOrDefault(field, FieldType.STRING);
+    }
+
+    public int size() {
+        return this._types.size();
+    }
+
+    /**
+     * @param instance the base uri of the instance, the cache is shared by every task of the worker.
+     * @param ttlMs how long loaded metadata is used for before it is loaded again.
+     * @return the metadata of the table, from the cache when loaded less than the time to live ago.
+     */
+    public static TableMetadata get(ServiceNowTableApiClient client, String instance, String table, long ttlMs) {
+
+        final CacheEntry entry = CACHE.computeIfAbsent(String.format("%s|%s", instance, table), key -> new CacheEntry());
+        synchronized(entry) {
+            final long nowMs = System.currentTimeMillis();
+            if(entry._metadata != null && nowMs < entry._expiresAtMs) {
+                return entry._metadata;
+            }
+
+            try {
+                entry._metadata = load(client, table);
+                entry._expiresAtMs = nowMs + ttlMs;
+                return entry._metadata;
+            } catch(IOException | RuntimeException ex) {
+                if(entry._metadata != null) {
+                    LOG.warn("Failed to reload the metadata of table [{}], keeping the metadata loaded before.", table, ex);
+                    return entry._metadata;
+                }
+                throw new ConnectException(String.format("Failed to load the metadata of table [%s] from [%s].", table, DICTIONARY_TABLE), ex);
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ConnectException(String.format("Interrupted while loading the metadata of table [%s].", table), ex);
+            }
+        }
+    }
+
+    static TableMetadata load(ServiceNowTableApiClient client, String table) throws IOException, InterruptedException {
+
+        final List<String> hierarchy = loadHierarchy(client, table);
+
+        // NOTE(millies): a table may override the dictionary entry of a table it extends, the closest entry wins.
+        TableAPIQueryBuilder query = TableAPIQueryBuilder.Builder();
+        for(int i = 0; i < hierarchy.size(); i++) {
+            if(i == 0) {
+                query.whereEquals("name", hierarchy.get(i));
+            } else {
+                query.orWhereEquals("name", hierarchy.get(i));
+            }
+        }
+        query.whereIsNotEmpty("element").orderByAsc("sys_id");
+
+        final List<String> fields = Arrays.asList("name", "element", "internal_type");
+        Map<String, FieldType> types = new HashMap<>();
+        Map<String, Integer> depths = new HashMap<>();
+        for(long offset = 0; ; offset += DICTIONARY_PAGE_SIZE) {
+            List<ServiceNowRecord> entries = client.getRecords(DICTIONARY_TABLE, query, offset, DICTIONARY_PAGE_SIZE, fields);
+            for(ServiceNowRecord entry : entries) {
+                final String element = valueOrEmpty(entry, "element");
+                final int depth = hierarchy.indexOf(valueOrEmpty(entry, "name"));
+                if(element.isEmpty() || depth < 0 || depth >= depths.getOrDefault(element, Integer.MAX_VALUE)) {
+                    continue;
+                }
+                depths.put(element, depth);
+                types.put(element, FieldType.fromInternalType(entry.getValue("internal_type")));
+            }
+
+            if(entries.size() < DICTIONARY_PAGE_SIZE) {
+                break;
+            }
+        }
+
+        LOG.info("Loaded the types of [{}] fields of table [{}], extending {}.", types.size(), table, hierarchy.subList(1, hierarchy.size()));
+        return new TableMetadata(types);
+    }
+
+    /**
+     * @return the table followed by the tables it extends, closest first.
+     */
+    private static List<String> loadHierarchy(ServiceNowTableApiClient client, String table) throws IOException, InterruptedException {
+
+        final List<String> fields = Arrays.asList("name", "super_class.name");
+        List<String> hierarchy = new ArrayList<>();
+        String current = table;
+        while(current != null && !current.isEmpty() && !hierarchy.contains(current) && hierarchy.size() < MAX_HIERARCHY_DEPTH) {
+            hierarchy.add(current);
+            List<ServiceNowRecord> objects = client.getRecords(TABLE_OBJECTS_TABLE, TableAPIQueryBuilder.Builder().whereEquals("name", current), 0, 1, fields);
+            current = objects.isEmpty() ? null : objects.get(0).getValue("super_class.name");
+        }
+
+        return hierarchy;
+    }
+
+    private static String valueOrEmpty(ServiceNowRecord record, String key) {
+        final String value = record.getValue(key);
+        return value == null ? "" : value;
+    }
+
+    private static class CacheEntry {
+
+        private TableMetadata _metadata;
+        private long _expiresAtMs;
+    }
+}
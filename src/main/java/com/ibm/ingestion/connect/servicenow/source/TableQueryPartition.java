@@ -1,25 +1,232 @@
 package com.ibm.ingestion.connect.servicenow.source;
 
+import com.ibm.ingestion.connect.servicenow.util.Helpers;
+import org.apache.kafka.connect.errors.ConnectException;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * The source partition of a table, of a shard of it, or of a backfill slice of it. A sharded table is split into
+ * disjoint ranges of sys_id, by its leading hex digits, each polled on its own with its own offset, so shards of a
+ * table can be spread over tasks. A backfill slice is a range of the timestamps of the table from before the live
+ * tail started, polled on its own, with its own offset, until it has been read through.
+ *
+ * An unsharded table keeps the partition it always had, so its offsets carry over.
+ */
 public class TableQueryPartition {
 
+    public static final int MAX_SHARDS = 256;
+    public static final int MAX_BACKFILL_SLICES = 1024;
+    static final String SHARD_FIELD = "sys_id";
 
     private static final String PARTITION_KEY = "partition";
+    private static final String SHARD_KEY = "shard";
+    private static final String SHARD_SEPARATOR = "#";
+    private static final String BACKFILL_KEY = "backfill";
+    private static final String BACKFILL_SEPARATOR = "@";
+
     private String _tableName;
+    private final int _shard;
+    private final int _shardCount;
+    private final Instant _backfillFrom;
+    private final Instant _backfillUntil;
+    private final Map<String, Object> _partition;
 
     public TableQueryPartition(String tableName) {
+        this(tableName, 0, 1);
+    }
+
+    public TableQueryPartition(String tableName, int shard, int shardCount) {
+        if(shardCount < 1 || shardCount > MAX_SHARDS || shard < 0 || shard >= shardCount) {
+            throw new ConnectException(String.format("Shard [%d] of [%d] of table [%s] is out of range, a table has between 1 and %d shards.", shard, shardCount, tableName, MAX_SHARDS));
+        }
+
         this._tableName = tableName;
+        this._shard = shard;
+        this._shardCount = shardCount;
+        this._backfillFrom = null;
+        this._backfillUntil = null;
+        if(shardCount == 1) {
+            this._partition = Collections.singletonMap(PARTITION_KEY, tableName);
+        } else {
+            Map<String, Object> partition = new HashMap<>(4);
+            partition.put(PARTITION_KEY, tableName);
+            partition.put(SHARD_KEY, String.format("%d/%d", shard, shardCount));
+            this._partition = Collections.unmodifiableMap(partition);
+        }
+    }
+
+    /**
+     * A backfill slice of the table, of the records from the given timestamp up to, not including, the other.
+     */
+    public TableQueryPartition(String tableName, Instant backfillFrom, Instant backfillUntil) {
+        if(!backfillFrom.isBefore(backfillUntil)) {
+            throw new ConnectException(String.format("The backfill of table [%s] must end after it begins, was from [%s] until [%s].", tableName, backfillFrom, backfillUntil));
+        }
+
+        this._tableName = tableName;
+        this._shard = 0;
+        this._shardCount = 1;
+        this._backfillFrom = backfillFrom;
+        this._backfillUntil = backfillUntil;
+
+        Map<String, Object> partition = new HashMap<>(4);
+        partition.put(PARTITION_KEY, tableName);
+        partition.put(BACKFILL_KEY, String.format("%d-%d", backfillFrom.getEpochSecond(), backfillUntil.getEpochSecond()));
+        this._partition = Collections.unmodifiableMap(partition);
+    }
+
+    /**
+     * @return the time range split into at most the given number of backfill slices of about the same length.
+     */
+    public static List<TableQueryPartition> backfillSlicesOf(String tableName, Instant from, Instant until, int sliceCount) {
+        final long seconds = until.getEpochSecond() - from.getEpochSecond();
+        final int count = (int)Math.max(1, Math.min(sliceCount, seconds));
+
+        List<TableQueryPartition> slices = new ArrayList<>(count);
+        for(int slice = 0; slice < count; slice++) {
+            slices.add(new TableQueryPartition(
+                    tableName,
+                    from.plusSeconds(seconds * slice / count),
+                    slice == count - 1 ? until : from.plusSeconds(seconds * (slice + 1) / count)));
+        }
+        return slices;
+    }
+
+    /**
+     * @param raw a ServiceNow date time, "yyyy-MM-dd HH:mm:ss", in UTC.
+     */
+    public static Instant parseBackfillTimestamp(String raw, String configKey) {
+        try {
+            return Instant.ofEpochMilli(Helpers.parseServiceNowDateTimeEpochMillis(raw.trim()));
+        } catch(DateTimeParseException ex) {
+            throw new ConnectException(String.format("A backfill timestamp must be a date time such as [2019-01-31 23:59:59], in UTC, was [%s]. Configuration [%s]", raw, configKey), ex);
+        }
+    }
+
+    /**
+     * @return every shard of the table.
+     */
+    public static List<TableQueryPartition> shardsOf(String tableName, int shardCount) {
+        List<TableQueryPartition> shards = new ArrayList<>(shardCount);
+        for(int shard = 0; shard < shardCount; shard++) {
+            shards.add(new TableQueryPartition(tableName, shard, shardCount));
+        }
+        return shards;
+    }
+
+    /**
+     * @param id as returned by {@link #getId()}.
+     */
+    public static TableQueryPartition parse(String id) {
+        final int backfillSeparator = id.indexOf(BACKFILL_SEPARATOR);
+        if(backfillSeparator >= 0) {
+            try {
+                final String[] range = id.substring(backfillSeparator + 1).split("-");
+                return new TableQueryPartition(id.substring(0, backfillSeparator), Instant.ofEpochSecond(Long.parseLong(range[0])), Instant.ofEpochSecond(Long.parseLong(range[1])));
+            } catch(NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                throw new ConnectException(String.format("[%s] is not a backfill slice of a table.", id), ex);
+            }
+        }
+
+        final int separator = id.indexOf(SHARD_SEPARATOR);
+        if(separator < 0) {
+            return new TableQueryPartition(id);
+        }
+
+        try {
+            final String[] shard = id.substring(separator + 1).split("/");
+            return new TableQueryPartition(id.substring(0, separator), Integer.parseInt(shard[0]), Integer.parseInt(shard[1]));
+        } catch(NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+            throw new ConnectException(String.format("[%s] is not a table shard.", id), ex);
+        }
+    }
+
+    /**
+     * @return the key of the table, followed by the shard for a sharded table, such as {@code incident#2/4}, or by
+     * the range of epoch seconds of a backfill slice, such as {@code incident@1546300800-1548979200}.
+     */
+    public String getId() {
+        if(this.isBackfill()) {
+            return String.format("%s%s%d-%d", this._tableName, BACKFILL_SEPARATOR, this._backfillFrom.getEpochSecond(), this._backfillUntil.getEpochSecond());
+        }
+        return this._shardCount == 1 ? this._tableName : String.format("%s%s%d/%d", this._tableName, SHARD_SEPARATOR, this._shard, this._shardCount);
     }
 
     public String getTableName() {
         return this._tableName;
     }
 
+    public boolean isSharded() {
+        return this._shardCount > 1;
+    }
+
+    public boolean isBackfill() {
+        return this._backfillFrom != null;
+    }
+
+    /**
+     * @return the first timestamp of a backfill slice, or null if this is not one.
+     */
+    public Instant getBackfillFrom() {
+        return this._backfillFrom;
+    }
+
+    /**
+     * @return the timestamp past the end of a backfill slice, or null if this is not one.
+     */
+    public Instant getBackfillUntil() {
+        return this._backfillUntil;
+    }
+
+    /**
+     * @return whether this is a backfill slice with an offset at or past its end, so every record of it has been read.
+     * The records at the end itself belong to the next slice, or the live tail, and must not be read again.
+     */
+    public boolean isBackfilledThrough(Instant lastSeenTimestamp) {
+        return this.isBackfill() && lastSeenTimestamp != null && !lastSeenTimestamp.isBefore(this._backfillUntil);
+    }
+
+    /**
+     * @return the partition of the table as a whole, the same as this one for an unsharded table.
+     */
+    public Map<String, Object> getTablePartition() {
+        return this.isSharded() ? Collections.singletonMap(PARTITION_KEY, this._tableName) : this._partition;
+    }
+
+    /**
+     * @return the first sys_id prefix of the shard, or null for the first shard.
+     */
+    public String getShardFrom() {
+        return this._shard == 0 ? null : this.prefix(this._shard);
+    }
+
+    /**
+     * @return the first sys_id prefix past the shard, or null for the last shard.
+     */
+    public String getShardUntil() {
+        return this._shard == this._shardCount - 1 ? null : this.prefix(this._shard + 1);
+    }
+
+    /**
+     * The range starting at the given shard, as a prefix just long enough to tell every shard apart.
+     */
+    private String prefix(int shard) {
+        final int digits = this._shardCount <= 16 ? 1 : 2;
+        final int prefixes = digits == 1 ? 16 : 256;
+        return String.format("%0" + digits + "x", shard * prefixes / this._shardCount);
+    }
+
+    /**
+     * @return the same unmodifiable map every time, it is the source partition of every record of the table.
+     */
     public Map<String, Object> getPartition() {
-        HashMap<String, Object> partitionInfo = new HashMap<>(1);
-        partitionInfo.put(PARTITION_KEY, this._tableName);
-        return partitionInfo;
+        return this._partition;
     }
 }
@@ -2,13 +2,14 @@ package com.ibm.ingestion.connect.servicenow.source;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class TimestampSourceOffset {
 
-    private static final String TIMESTAMP_KEY = "timestamp";
-    private static final String LAST_READ_IDENTIFIER = "last_identifier";
+    static final String TIMESTAMP_KEY = "timestamp";
+    static final String LAST_READ_IDENTIFIER = "last_identifier";
     private Instant _lastSeenTimestamp;
     private String _lastReadIdentifier;
 
@@ -31,11 +32,14 @@ public class TimestampSourceOffset {
         return toMap(this._lastSeenTimestamp, this._lastReadIdentifier);
     }
 
+    /**
+     * @return an unmodifiable map, so it can be shared by the records it is the offset of.
+     */
     public static Map<String, Object> toMap(Instant lastSeenTimestamp, String lastReadIdentifier) {
-        Map<String, Object> offsetMap = new HashMap<String, Object>();
+        Map<String, Object> offsetMap = new HashMap<String, Object>(4);
         offsetMap.put(TIMESTAMP_KEY, lastSeenTimestamp.getEpochSecond());
         offsetMap.put(LAST_READ_IDENTIFIER, lastReadIdentifier);
-        return offsetMap;
+        return Collections.unmodifiableMap(offsetMap);
     }
 
     public Instant getLastSeenTimestamp() {
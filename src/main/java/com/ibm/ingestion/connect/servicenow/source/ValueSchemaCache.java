@@ -0,0 +1,154 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Picks the value schema, and its compiled converter, for the records of a table as the fields returned for them
+ * change: a column gets added to the table, or a dot-walked field is left out of a record because the reference
+ * is empty.
+ *
+ * The schema only ever grows. A record with a field the current schema lacks gets a new version of the schema,
+ * with every field of the previous version and the new ones. Since all fields are optional, every version can read
+ * the records written with an earlier one, and records missing fields are written with the current version rather
+ * than flapping between schemas. A version depends on nothing but its set of fields: the fields are sorted by their
+ * key and the schema is named {@code <name>.f<fingerprint>} after them, so every task, shard and restart writing
+ * the same fields writes the same schema. Its converter still looks for the fields in the order of the record that
+ * brought them in, the order records come back in, so converting them stays a pass by position.
+ *
+ * Whether a set of fields fits the current schema is remembered in a bounded LRU keyed by a fingerprint of the field
+ * names, so for all but the first record with a given set of fields picking the schema is a single lookup. Not
+ * thread safe, records of a table are decoded one at a time.
+ */
+public class ValueSchemaCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ValueSchemaCache.class);
+
+    private final String SCHEMA_NAME;
+    private final TableMetadata METADATA;
+    private final Map<Long, RecordConverter> _converters;
+
+    private RecordConverter _current;
+    private int _version;
+    private long _lastFingerprint;
+    private RecordConverter _lastConverter;
+
+    /**
+     * @param schemaName the name the versions of the schema are named after.
+     * @param maxSize the number of distinct sets of fields to remember.
+     * @param metadata the types of the fields of the table, or null to map every field to a string.
+     */
+    public ValueSchemaCache(String schemaName, final int maxSize, TableMetadata metadata) {
+        this.SCHEMA_NAME = schemaName;
+        this.METADATA = metadata;
+        this._converters = new LinkedHashMap<Long, RecordConverter>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RecordConverter> eldest) {
+                return this.size() > maxSize;
+            }
+        };
+    }
+
+    public RecordConverter get(ServiceNowRecord record) {
+
+        final long fingerprint = fingerprint(record);
+
+        // NOTE(millies): records of a page nearly always have the same fields, so not even a lookup for those.
+        if(this._lastConverter != null && fingerprint == this._lastFingerprint) {
+            return this._lastConverter;
+        }
+
+        // NOTE(millies): fingerprints hash the whole of every key over 64 bits, so a known one is trusted to fit.
+        RecordConverter converter = this._converters.get(fingerprint);
+        if(converter == null) {
+            converter = this.resolve(record);
+            this._converters.put(fingerprint, converter);
+        }
+
+        this._lastFingerprint = fingerprint;
+        this._lastConverter = converter;
+        return converter;
+    }
+
+    /**
+     * @return the number of versions of the schema built since the cache was created.
+     */
+    public int getVersion() {
+        return this._version;
+    }
+
+    private RecordConverter resolve(ServiceNowRecord record) {
+
+        if(this._current != null && this._current.fits(record)) {
+            return this._current;
+        }
+
+        // NOTE(millies): fields are looked for in the order of the record that brought them in, the order the Table API
+        // returns the columns of the table in, and the fields of the schema are sorted so they only depend on the keys.
+        Set<String> keys = new LinkedHashSet<>(RecordConverter.keysOf(record));
+        if(this._current != null) {
+            keys.addAll(this._current.getKeys());
+        }
+
+        this._version++;
+        final String name = String.format("%s.f%016x", SCHEMA_NAME, fingerprint(keys));
+        this._current = RecordConverter.compile(keys, new TreeSet<>(keys), name, null, METADATA);
+        LOG.info("Value schema [{}] with [{}] fields.", name, keys.size());
+
+        // NOTE(millies): the new version fits every set of fields seen so far, nothing should use the old one any more.
+        this._converters.clear();
+        this._lastConverter = null;
+        return this._current;
+    }
+
+    /**
+     * Order independent, so the same fields in a different order still get the same fingerprint.
+     */
+    static long fingerprint(ServiceNowRecord record) {
+        long fingerprint = record.size();
+        for(int i = 0; i < record.size(); i++) {
+            fingerprint += mix(hash(record.getKey(i)));
+        }
+        return fingerprint;
+    }
+
+    static long fingerprint(Collection<String> keys) {
+        long fingerprint = keys.size();
+        for(String key : keys) {
+            fingerprint += mix(hash(key));
+        }
+        return fingerprint;
+    }
+
+    /**
+     * A 64 bit hash of the key (FNV-1a), since keys with the same 32 bit hash code are easy to come by.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Spreads the bits of a hash (the murmur3 finalizer), so sums of them rarely collide.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
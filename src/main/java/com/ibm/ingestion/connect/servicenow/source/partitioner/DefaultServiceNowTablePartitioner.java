@@ -1,7 +1,7 @@
 package com.ibm.ingestion.connect.servicenow.source.partitioner;
 
 import org.apache.kafka.connect.data.Schema;
-import org.json.JSONObject;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
 
 /**
  * Sets destination kafka topic partitioning related fields in such a way that kafka-connect uses
@@ -15,7 +15,7 @@ public class DefaultServiceNowTablePartitioner implements IServiceNowTablePartit
     public String getPartitionerId() {
         return Partitioners.Default;
     }
-    public Integer getTargetPartition() {
+    public Integer getTargetPartition(ServiceNowRecord record) {
         // Default partitioner just uses a single partition.
         return 0;
     }
@@ -24,7 +24,7 @@ public class DefaultServiceNowTablePartitioner implements IServiceNowTablePartit
         return null;
     }
 
-    public Object getKeyValue(JSONObject record) {
+    public Object getKeyValue(ServiceNowRecord record) {
         return null;
     }
 }
@@ -1,36 +1,123 @@
 package com.ibm.ingestion.connect.servicenow.source.partitioner;
 
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
-import org.json.JSONObject;
+import org.apache.kafka.connect.data.Struct;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
-import static com.ibm.ingestion.connect.servicenow.util.Helpers.buildKeyStruct;
 import static com.ibm.ingestion.connect.servicenow.util.Helpers.buildSchemaForKey;
 
+/**
+ * Keys records by a set of fields, so records about the same entity go to the same partition.
+ *
+ * The key is a Struct of the fields by default. A key of a single field, such as sys_id, can instead be the plain
+ * string, or its UTF-8 bytes, which is smaller on the wire than a struct envelope. The fields of the key are looked
+ * up once, when the partitioner is built.
+ *
+ * The partition is left to the producer, which hashes the serialized key, unless the partitioner is given the number
+ * of partitions of the topic, in which case it picks the partition itself with the murmur2 hash of the UTF-8 values of
+ * the key fields. For a string key with the StringConverter, or a bytes key with the ByteArrayConverter, those are
+ * the bytes the producer would hash, so records land on the same partitions either way.
+ */
 public class FieldBasedServiceNowTablePartitioner implements IServiceNowTablePartitioner {
 
-    private Schema _keySchema;
-    private List<String> _keyFields;
+    public enum KeyFormat {
+        STRUCT,
+        STRING,
+        BYTES
+    }
+
+    private final KeyFormat KEY_FORMAT;
+    private final int PARTITION_COUNT;
+    private final String[] _keyFields;
+    private final Schema _keySchema;
+    private final Field[] _structFields;
 
     public FieldBasedServiceNowTablePartitioner(List<String> keyFields) {
-        this._keyFields = keyFields;
-        this._keySchema = buildSchemaForKey(this._keyFields);
+        this(keyFields, KeyFormat.STRUCT, 0);
+    }
+
+    /**
+     * @param keyFormat a format other than struct takes a single key field.
+     * @param partitionCount the number of partitions of the destination topic to hash keys onto, or 0 to leave the
+     *                       partition to the producer.
+     */
+    public FieldBasedServiceNowTablePartitioner(List<String> keyFields, KeyFormat keyFormat, int partitionCount) {
+        if(keyFormat != KeyFormat.STRUCT && keyFields.size() != 1) {
+            throw new IllegalArgumentException(String.format("A key of format [%s] is made of a single field, not %s.", keyFormat, keyFields));
+        }
+
+        this.KEY_FORMAT = keyFormat;
+        this.PARTITION_COUNT = partitionCount;
+        this._keyFields = keyFields.toArray(new String[0]);
+        switch(keyFormat) {
+            case STRING:
+                this._keySchema = Schema.OPTIONAL_STRING_SCHEMA;
+                this._structFields = null;
+                break;
+            case BYTES:
+                this._keySchema = Schema.OPTIONAL_BYTES_SCHEMA;
+                this._structFields = null;
+                break;
+            default:
+                this._keySchema = buildSchemaForKey(keyFields);
+                this._structFields = this._keySchema.fields().toArray(new Field[0]);
+        }
     }
 
     public String getPartitionerId() {
         return Partitioners.FieldBased;
     }
 
-    public Integer getTargetPartition() {
-        return null; // NOTE(Millies): letting kafka connect framework determine partition based on getKeyValue.
+    public Integer getTargetPartition(ServiceNowRecord record) {
+        if(PARTITION_COUNT <= 0) {
+            return null; // NOTE(Millies): letting kafka connect framework determine partition based on getKeyValue.
+        }
+
+        return Utils.toPositive(Utils.murmur2(this.keyBytes(record))) % PARTITION_COUNT;
     }
 
     public Schema getKeySchema() {
         return this._keySchema;
     }
 
-    public Object getKeyValue(JSONObject record) {
-        return buildKeyStruct(this._keySchema, this._keyFields, record);
+    public Object getKeyValue(ServiceNowRecord record) {
+        switch(KEY_FORMAT) {
+            case STRING:
+                return record.getValue(this._keyFields[0]);
+            case BYTES:
+                final String value = record.getValue(this._keyFields[0]);
+                return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            default:
+                Struct key = new Struct(this._keySchema);
+                for(int i = 0; i < this._structFields.length; i++) {
+                    key.put(this._structFields[i], record.getValue(this._keyFields[i]));
+                }
+                return key;
+        }
+    }
+
+    /**
+     * The values of the key fields, separated by a NUL, with a missing value taken as empty.
+     */
+    private byte[] keyBytes(ServiceNowRecord record) {
+        if(this._keyFields.length == 1) {
+            final String value = record.getValue(this._keyFields[0]);
+            return (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        }
+
+        StringBuilder key = new StringBuilder(64);
+        for(int i = 0; i < this._keyFields.length; i++) {
+            if(i > 0) {
+                key.append('\u0000');
+            }
+            final String value = record.getValue(this._keyFields[i]);
+            key.append(value == null ? "" : value);
+        }
+        return key.toString().getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -1,11 +1,23 @@
 package com.ibm.ingestion.connect.servicenow.source.partitioner;
 
 import org.apache.kafka.connect.data.Schema;
-import org.json.JSONObject;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
 
 public interface IServiceNowTablePartitioner {
     String getPartitionerId();
-    Integer getTargetPartition();
+
+    /**
+     * @return the partition of the record, or null to leave it to the producer, which hashes the key if there is one.
+     */
+    Integer getTargetPartition(ServiceNowRecord record);
     Schema getKeySchema();
-    Object getKeyValue(JSONObject record);
+    Object getKeyValue(ServiceNowRecord record);
+
+    /**
+     * Called by the convert stage before the records of a page, which are then assigned by the partitioner returned.
+     * Pages may be converted on several threads at once, the partitioner returned is only used by one of them.
+     */
+    default IServiceNowTablePartitioner forPage() {
+        return this;
+    }
 }
@@ -15,6 +15,9 @@ public final class PartitionerFactory {
 
     private static final Logger LOG = LoggerFactory.getLogger(PartitionerFactory.class);
 
+    private static final String PARTITION_HASH_NONE = "none";
+    private static final String PARTITION_HASH_MURMUR2 = "murmur2";
+
     private static String tryGetConfig(ServiceNowTableAPISourceTaskConfig config, String key, String defaultValue) {
         try {
             return config.getString(key);
@@ -31,6 +34,8 @@ public final class PartitionerFactory {
         switch(partitionType) {
             case Partitioners.FieldBased:
                 return buildFieldBasedPartitioner(tableKey, config);
+            case Partitioners.Sticky:
+                return buildStickyPartitioner(tableKey, config);
             case Partitioners.RoundRobin:
                 return new RoundRobinServiceNowTablePartitioner();
             case Partitioners.Default:
@@ -40,6 +45,50 @@ public final class PartitionerFactory {
         }
     }
 
+    private static IServiceNowTablePartitioner buildStickyPartitioner(String tableKey, ServiceNowTableAPISourceTaskConfig config) {
+        final String PARTITION_COUNT_KEY = String.format("table.whitelist.%s.partition.count", tableKey);
+        final int partitionCount = tryGetInt(config, PARTITION_COUNT_KEY, -1);
+        if(partitionCount < 1) {
+            throw new ConnectException(String.format("Must specify the number of partitions of the destination topic, at least 1. Configuration [%s]", PARTITION_COUNT_KEY));
+        }
+
+        final String RUN_LENGTH_KEY = String.format("table.whitelist.%s.partition.sticky.records", tableKey);
+        final int runLength = tryGetInt(config, RUN_LENGTH_KEY, 0);
+        if(runLength < 0) {
+            throw new ConnectException(String.format("The number of records sent to a partition at a time must be 0, for a whole page, or more. Configuration [%s]", RUN_LENGTH_KEY));
+        }
+
+        final String PARTITION_FIELDS_KEY = String.format("table.whitelist.%s.partition.fields", tableKey);
+        final String rawPartitionFields = tryGetConfig(config, PARTITION_FIELDS_KEY, "");
+        List<String> keyFields = null;
+        if(rawPartitionFields != null && !rawPartitionFields.trim().isEmpty()) {
+            keyFields = commaDelimitedToList(rawPartitionFields);
+        }
+
+        final String KEY_ORDERING_KEY = String.format("table.whitelist.%s.partition.sticky.key.ordering", tableKey);
+        final boolean keyOrdering = Boolean.parseBoolean(tryGetConfig(config, KEY_ORDERING_KEY, "false").trim());
+        if(keyOrdering && (keyFields == null || keyFields.isEmpty())) {
+            throw new ConnectException(String.format("If specifying [%s], then [%s] must include at least one field name.", KEY_ORDERING_KEY, PARTITION_FIELDS_KEY));
+        }
+
+        LOG.info("Table [{}] sticking runs of [{}] records to one of [{}] partitions, key fields [{}], ordered by key [{}]",
+                tableKey, runLength == 0 ? "page" : runLength, partitionCount, rawPartitionFields, keyOrdering);
+        return new StickyServiceNowTablePartitioner(partitionCount, runLength, keyFields, keyOrdering);
+    }
+
+    private static int tryGetInt(ServiceNowTableAPISourceTaskConfig config, String key, int defaultValue) {
+        final String raw = tryGetConfig(config, key, null);
+        if(raw == null || raw.trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(raw.trim());
+        } catch(NumberFormatException ex) {
+            throw new ConnectException(String.format("Configuration [%s] must be a whole number, was [%s].", key, raw), ex);
+        }
+    }
+
     private static IServiceNowTablePartitioner buildFieldBasedPartitioner(String tableKey, ServiceNowTableAPISourceTaskConfig config) {
         final String PARTITION_FIELDS_KEY = String.format("table.whitelist.%s.partition.fields", tableKey);
         final String rawPartitionFields = tryGetConfig(config, PARTITION_FIELDS_KEY, "");
@@ -47,10 +96,54 @@ public final class PartitionerFactory {
         if(rawPartitionFields != null && !rawPartitionFields.trim().isEmpty()) {
             List<String> keyFields = commaDelimitedToList(rawPartitionFields);
             if(!keyFields.isEmpty()) {
-                return new FieldBasedServiceNowTablePartitioner(keyFields);
+                return new FieldBasedServiceNowTablePartitioner(
+                        keyFields,
+                        getKeyFormat(tableKey, config, keyFields),
+                        getHashedPartitionCount(tableKey, config));
             }
         }
 
         throw new ConnectException(String.format("If specifying [%s], then it must include at least one field name.", PARTITION_FIELDS_KEY));
     }
+
+    private static FieldBasedServiceNowTablePartitioner.KeyFormat getKeyFormat(String tableKey, ServiceNowTableAPISourceTaskConfig config, List<String> keyFields) {
+        final String KEY_FORMAT_KEY = String.format("table.whitelist.%s.partition.key.format", tableKey);
+        final String rawKeyFormat = tryGetConfig(config, KEY_FORMAT_KEY, "struct").trim();
+
+        FieldBasedServiceNowTablePartitioner.KeyFormat keyFormat;
+        try {
+            keyFormat = FieldBasedServiceNowTablePartitioner.KeyFormat.valueOf(rawKeyFormat.toUpperCase());
+        } catch(IllegalArgumentException ex) {
+            throw new ConnectException(String.format("The specified key format [%s] is not supported, must be one of [struct, string, bytes]. Configuration [%s]", rawKeyFormat, KEY_FORMAT_KEY));
+        }
+
+        if(keyFormat != FieldBasedServiceNowTablePartitioner.KeyFormat.STRUCT && keyFields.size() != 1) {
+            throw new ConnectException(String.format("A key of format [%s] is made of a single field, but %s were specified. Configuration [%s]", rawKeyFormat, keyFields, KEY_FORMAT_KEY));
+        }
+
+        LOG.info("Table [{}] key format [{}]", tableKey, keyFormat);
+        return keyFormat;
+    }
+
+    /**
+     * @return the number of partitions to hash keys onto, or 0 to leave it to the producer.
+     */
+    private static int getHashedPartitionCount(String tableKey, ServiceNowTableAPISourceTaskConfig config) {
+        final String HASH_KEY = String.format("table.whitelist.%s.partition.hash", tableKey);
+        final String hash = tryGetConfig(config, HASH_KEY, PARTITION_HASH_NONE).trim();
+        switch(hash) {
+            case PARTITION_HASH_NONE:
+                return 0;
+            case PARTITION_HASH_MURMUR2:
+                final String PARTITION_COUNT_KEY = String.format("table.whitelist.%s.partition.count", tableKey);
+                final int partitionCount = tryGetInt(config, PARTITION_COUNT_KEY, -1);
+                if(partitionCount < 1) {
+                    throw new ConnectException(String.format("Must specify the number of partitions of the destination topic, at least 1, to hash keys onto. Configuration [%s]", PARTITION_COUNT_KEY));
+                }
+                LOG.info("Table [{}] hashing keys onto [{}] partitions", tableKey, partitionCount);
+                return partitionCount;
+            default:
+                throw new ConnectException(String.format("The specified partition hash [%s] is not supported, must be one of [%s, %s]. Configuration [%s]", hash, PARTITION_HASH_NONE, PARTITION_HASH_MURMUR2, HASH_KEY));
+        }
+    }
 }
@@ -4,4 +4,5 @@ public final class Partitioners {
     public static final String Default = "default";
     public static final String RoundRobin = "round-robin";
     public static final String FieldBased = "field-based";
+    public static final String Sticky = "sticky";
 }
@@ -1,7 +1,7 @@
 package com.ibm.ingestion.connect.servicenow.source.partitioner;
 
 import org.apache.kafka.connect.data.Schema;
-import org.json.JSONObject;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
 
 /**
  * Sets destination kafka topic partitioning related fields in such a way that kafka-connect uses
@@ -13,7 +13,7 @@ public class RoundRobinServiceNowTablePartitioner implements IServiceNowTablePar
         return Partitioners.RoundRobin;
     }
 
-    public Integer getTargetPartition() {
+    public Integer getTargetPartition(ServiceNowRecord record) {
         return null;
     }
 
@@ -21,7 +21,7 @@ public class RoundRobinServiceNowTablePartitioner implements IServiceNowTablePar
         return null;
     }
 
-    public Object getKeyValue(JSONObject record) {
+    public Object getKeyValue(ServiceNowRecord record) {
         return null;
     }
 }
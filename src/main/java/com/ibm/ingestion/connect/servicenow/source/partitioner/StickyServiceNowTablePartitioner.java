@@ -0,0 +1,114 @@
+package com.ibm.ingestion.connect.servicenow.source.partitioner;
+
+import org.apache.kafka.connect.data.Schema;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ibm.ingestion.connect.servicenow.util.Helpers.buildKeyStruct;
+import static com.ibm.ingestion.connect.servicenow.util.Helpers.buildSchemaForKey;
+
+/**
+ * Sends a whole page, or runs of a set number of records of it, to one partition before moving on to the next, so
+ * the producer fills large batches for a single partition, which compress well, while every partition of the topic
+ * still gets its share.
+ *
+ * With key fields, records carry a key built from them. When ordering by key is asked for, records with a key are
+ * left to the producer to partition by the hash of the key, as the field-based partitioner does, and only records
+ * whose key fields are all empty stick.
+ */
+public class StickyServiceNowTablePartitioner implements IServiceNowTablePartitioner {
+
+    private final int PARTITION_COUNT;
+    private final int RUN_LENGTH;
+    private final boolean KEY_ORDERING;
+    private final List<String> _keyFields;
+    private final Schema _keySchema;
+    private final AtomicInteger _nextPartition = new AtomicInteger();
+
+    /**
+     * @param partitionCount the number of partitions of the destination topic.
+     * @param runLength the number of records sent to a partition before moving on, 0 for the whole page.
+     * @param keyFields the fields to build the key from, or null for records without a key.
+     * @param keyOrdering whether records with a key go to the partition of their key.
+     */
+    public StickyServiceNowTablePartitioner(int partitionCount, int runLength, List<String> keyFields, boolean keyOrdering) {
+        this.PARTITION_COUNT = partitionCount;
+        this.RUN_LENGTH = runLength;
+        this.KEY_ORDERING = keyOrdering;
+        this._keyFields = keyFields;
+        this._keySchema = keyFields == null ? null : buildSchemaForKey(keyFields);
+    }
+
+    public String getPartitionerId() {
+        return Partitioners.Sticky;
+    }
+
+    public Integer getTargetPartition(ServiceNowRecord record) {
+        // NOTE(Millies): only pages know which run a record belongs to, see forPage.
+        return this.stickyPartition(this._nextPartition.get(), record);
+    }
+
+    public Schema getKeySchema() {
+        return this._keySchema;
+    }
+
+    public Object getKeyValue(ServiceNowRecord record) {
+        return this._keySchema == null ? null : buildKeyStruct(this._keySchema, this._keyFields, record);
+    }
+
+    @Override
+    public IServiceNowTablePartitioner forPage() {
+        // NOTE(Millies): each page starts where the one before it left off, so partitions take turns page by page.
+        return new PagePartitioner(Math.floorMod(this._nextPartition.getAndIncrement(), PARTITION_COUNT));
+    }
+
+    private Integer stickyPartition(int partition, ServiceNowRecord record) {
+        if(KEY_ORDERING && this.hasKey(record)) {
+            return null;
+        }
+        return Math.floorMod(partition, PARTITION_COUNT);
+    }
+
+    private boolean hasKey(ServiceNowRecord record) {
+        for(String field : this._keyFields) {
+            final String value = record.getValue(field);
+            if(value != null && !value.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Assigns the records of a single page, moving on to the next partition every run.
+     */
+    private class PagePartitioner implements IServiceNowTablePartitioner {
+
+        private final int _firstPartition;
+        private int _records;
+
+        private PagePartitioner(int firstPartition) {
+            this._firstPartition = firstPartition;
+        }
+
+        public String getPartitionerId() {
+            return Partitioners.Sticky;
+        }
+
+        public Integer getTargetPartition(ServiceNowRecord record) {
+            final int run = RUN_LENGTH > 0 ? this._records / RUN_LENGTH : 0;
+            this._records++;
+            return stickyPartition(this._firstPartition + run, record);
+        }
+
+        public Schema getKeySchema() {
+            return StickyServiceNowTablePartitioner.this.getKeySchema();
+        }
+
+        public Object getKeyValue(ServiceNowRecord record) {
+            return StickyServiceNowTablePartitioner.this.getKeyValue(record);
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package com.ibm.ingestion.connect.servicenow.util;
 
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
-import org.json.JSONObject;
 
 import java.time.LocalDateTime;
 
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class Helpers {
 
@@ -23,6 +25,74 @@ public final class Helpers {
         return LocalDateTime.parse(raw, ServiceNowDateTimeFormat);
     }
 
+    /**
+     * Same as {@link #parseServiceNowDateTimeUtc(String)}, but reads the fixed width "yyyy-MM-dd HH:mm:ss" digits
+     * in place rather than going through a formatter.
+     * @return the milliseconds since the epoch.
+     */
+    public static long parseServiceNowDateTimeEpochMillis(CharSequence raw) {
+        if(raw.length() < 19 || raw.charAt(10) != ' ' || raw.charAt(13) != ':' || raw.charAt(16) != ':'
+                || (raw.length() > 19 && (raw.length() != 20 || raw.charAt(19) != 'Z'))) {
+            throw new DateTimeParseException(String.format("Text [%s] is not a ServiceNow date time.", raw), raw, 0);
+        }
+
+        final long epochDay = parseServiceNowDateEpochDay(raw);
+        final int hours = digits(raw, 11, 2);
+        final int minutes = digits(raw, 14, 2);
+        final int seconds = digits(raw, 17, 2);
+        if(hours > 23 || minutes > 59 || seconds > 59) {
+            throw new DateTimeParseException(String.format("Text [%s] is not a ServiceNow date time.", raw), raw, 11);
+        }
+
+        return ((epochDay * 24 + hours) * 60 + minutes) * 60000L + seconds * 1000L;
+    }
+
+    /**
+     * Reads a "yyyy-MM-dd" date, or the date of a date time.
+     * @return the days since the epoch.
+     */
+    public static long parseServiceNowDateEpochDay(CharSequence raw) {
+        if(raw.length() < 10 || raw.charAt(4) != '-' || raw.charAt(7) != '-') {
+            throw new DateTimeParseException(String.format("Text [%s] is not a ServiceNow date.", raw), raw, 0);
+        }
+
+        final int year = digits(raw, 0, 4);
+        final int month = digits(raw, 5, 2);
+        final int day = digits(raw, 8, 2);
+        if(month < 1 || month > 12 || day < 1 || day > 31) {
+            throw new DateTimeParseException(String.format("Text [%s] is not a ServiceNow date.", raw), raw, 5);
+        }
+
+        // NOTE(millies): days from the civil date, see http://howardhinnant.github.io/date_algorithms.html
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = y / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int digits(CharSequence raw, int start, int count) {
+        int value = 0;
+        for(int i = start; i < start + count; i++) {
+            final int digit = raw.charAt(i) - '0';
+            if(digit < 0 || digit > 9) {
+                throw new DateTimeParseException(String.format("Text [%s] has no digit at [%d].", raw, i), raw, i);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    public static ThreadFactory daemonThreadFactory(String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-%s", prefix, count.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     public static List<String> commaDelimitedToList(String commaDelimited) {
         List<String> result = new ArrayList<>();
         if(commaDelimited == null) {
@@ -40,36 +110,45 @@ public final class Helpers {
     }
 
     public static String underscoresForPeriods(String periods) {
-        return periods.replaceAll("\\.", "__");
+        // NOTE(millies): called for every field of every record on the by-name paths, so no regex.
+        if(periods.indexOf('.') < 0) {
+            return periods;
+        }
+
+        StringBuilder result = new StringBuilder(periods.length() + 8);
+        for(int i = 0; i < periods.length(); i++) {
+            final char c = periods.charAt(i);
+            if(c == '.') {
+                result.append("__");
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
     }
 
-    public static Struct buildKeyStruct(Schema keySchema, List<String> keyFields, JSONObject record) {
+    public static Struct buildKeyStruct(Schema keySchema, List<String> keyFields, ServiceNowRecord record) {
         Struct value = new Struct(keySchema);
         for(String field : keyFields) {
-            if(record.isNull(field)) {
-                value.put(underscoresForPeriods(field), null);
-            } else {
-                value.put(underscoresForPeriods(field), record.get(field).toString());
-            }
+            value.put(underscoresForPeriods(field), record.getValue(field));
         }
 
         return value;
     }
 
     /**
-     * Naive mapping of a JSONObject to a Kafka Connect Schema.
+     * Naive mapping of a record to a Kafka Connect Schema.
      *
-     * Assumes the JSONObject is simple in that it is only a set of key-value pairs, no complex fields. Also, assumes
+     * Assumes the record is simple in that it is only a set of key-value pairs, no complex fields. Also, assumes
      * all fields are set as strings.
      * @param record
      * @return
      */
-    public static Schema buildSchemaFromSimpleJsonRecord(JSONObject record) {
+    public static Schema buildSchemaFromSimpleJsonRecord(ServiceNowRecord record) {
 
-        Iterator<String> keys = record.keys();
         SchemaBuilder builder = SchemaBuilder.struct();
-        while(keys.hasNext()) {
-            String key = keys.next();
+        for(int i = 0; i < record.size(); i++) {
+            String key = record.getKey(i);
             if(key != null && !key.trim().isEmpty()) {
                 // TODO(Millies): Potentially enhance to interrogate the values to determine datatype mapping?
                 builder
@@ -79,19 +158,14 @@ public final class Helpers {
         return builder.build();
     }
 
-    public static Struct buildStruct(Schema schema, JSONObject record) {
+    public static Struct buildStruct(Schema schema, ServiceNowRecord record) {
 
         Struct value = new Struct(schema);
-        Iterator<String> keys = record.keys();
-        while(keys.hasNext()) {
-            String key = keys.next();
+        for(int i = 0; i < record.size(); i++) {
+            String key = record.getKey(i);
             if(key != null && !key.trim().isEmpty()) {
-                if(record.isNull(key)) {
-                    value.put(underscoresForPeriods(key), null);
-                } else {
-                    // TODO(millies): potentially enhance to interrogate the values to determine data types?
-                    value.put(underscoresForPeriods(key), record.get(key).toString());
-                }
+                // TODO(millies): potentially enhance to interrogate the values to determine data types?
+                value.put(underscoresForPeriods(key), record.getValue(i));
             }
         }
 
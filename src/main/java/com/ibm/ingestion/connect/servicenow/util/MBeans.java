@@ -0,0 +1,52 @@
+package com.ibm.ingestion.connect.servicenow.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers the connector's metrics with the platform MBean server so they show up next to the metrics the Kafka
+ * Connect worker already exposes over JMX.
+ */
+public final class MBeans {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MBeans.class);
+
+    public static final String DOMAIN = "com.ibm.ingestion.connect.servicenow";
+
+    public static ObjectName register(Object mbean, String type, String... keyValues) {
+        StringBuilder name = new StringBuilder(DOMAIN).append(":type=").append(type);
+        for(int i = 0; i + 1 < keyValues.length; i += 2) {
+            name.append(",").append(keyValues[i]).append("=").append(ObjectName.quote(keyValues[i + 1]));
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name.toString());
+            if(server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            return objectName;
+        } catch(Exception ex) {
+            // NOTE(millies): metrics are nice to have, never worth failing a task over.
+            LOG.warn("Failed to register metrics [{}]. {}", name, ex);
+            return null;
+        }
+    }
+
+    public static void unregister(ObjectName objectName) {
+        if(objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch(Exception ex) {
+            LOG.debug("Failed to unregister metrics [{}]. {}", objectName, ex);
+        }
+    }
+}
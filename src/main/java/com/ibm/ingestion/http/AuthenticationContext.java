@@ -2,14 +2,49 @@ package com.ibm.ingestion.http;
 
 import org.json.JSONObject;
 
+/**
+ * A token issued by the instance, along with when it should be refreshed and when it stops being usable.
+ */
 public class AuthenticationContext {
 
+    /**
+     * NOTE(millies): ServiceNow's default access token lifespan, for responses that leave out expires_in.
+     */
+    private static final long DEFAULT_EXPIRES_IN_SECONDS = 1800;
+
+    /**
+     * Tokens are treated as expired a little early, so a request is never sent with one that runs out in transit.
+     */
+    private static final long EXPIRY_MARGIN_MS = 10 * 1000L;
+
     private String _accessToken;
     private String _refreshToken;
+    private long _refreshAtMs;
+    private long _expiresAtMs;
 
     public AuthenticationContext(JSONObject jwtToken) {
+        this(jwtToken, null, System.currentTimeMillis(), 1.0);
+    }
+
+    /**
+     * @param fallbackRefreshToken used when the response does not hand out a new refresh token.
+     * @param issuedAtMs when the token was requested.
+     * @param refreshRatio the fraction of the lifetime of the token after which it should be refreshed.
+     */
+    public AuthenticationContext(JSONObject jwtToken, String fallbackRefreshToken, long issuedAtMs, double refreshRatio) {
         this._accessToken = jwtToken.getString("access_token");
-        this._refreshToken = jwtToken.getString("refresh_token");
+        this._refreshToken = jwtToken.optString("refresh_token", fallbackRefreshToken);
+
+        final long lifetimeMs = Math.max(0, jwtToken.optLong("expires_in", DEFAULT_EXPIRES_IN_SECONDS) * 1000L - EXPIRY_MARGIN_MS);
+        this._expiresAtMs = issuedAtMs + lifetimeMs;
+        this._refreshAtMs = issuedAtMs + (long)(lifetimeMs * refreshRatio);
+    }
+
+    private AuthenticationContext(AuthenticationContext other, long expiresAtMs) {
+        this._accessToken = other._accessToken;
+        this._refreshToken = other._refreshToken;
+        this._refreshAtMs = Math.min(other._refreshAtMs, expiresAtMs);
+        this._expiresAtMs = expiresAtMs;
     }
 
     public String getAccessToken() {
@@ -20,4 +55,19 @@ public class AuthenticationContext {
         return _refreshToken;
     }
 
+    public boolean isExpired(long nowMs) {
+        return nowMs >= this._expiresAtMs;
+    }
+
+    public boolean shouldRefresh(long nowMs) {
+        return nowMs >= this._refreshAtMs;
+    }
+
+    /**
+     * @return a copy of this context that has already expired, keeping its refresh token.
+     */
+    public AuthenticationContext expire() {
+        return new AuthenticationContext(this, 0);
+    }
+
 }
@@ -0,0 +1,124 @@
+package com.ibm.ingestion.http;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.ibm.ingestion.http.codec.UnreadableBodyException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * The body of a request to the ServiceNow Batch API, which carries several REST requests at once, and the body of
+ * its response, in which the body of each serviced request is base64 encoded. Requests are identified by their
+ * index in the batch.
+ */
+final class BatchEnvelope {
+
+    static final String PATH = "/api/now/v1/batch";
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    interface IServicedRequestHandler {
+
+        /**
+         * @param executionTimeMs how long the instance took to service the request, or -1 if it did not say.
+         */
+        void onServiced(int index, int statusCode, byte[] body, long executionTimeMs) throws IOException;
+    }
+
+    private BatchEnvelope() {
+    }
+
+    /**
+     * @param urls the url of each GET request, relative to the instance.
+     */
+    static byte[] encode(String batchRequestId, List<? extends CharSequence> urls) throws IOException {
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256 + urls.size() * 256);
+        try(JsonGenerator generator = FACTORY.createGenerator(body, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("batch_request_id", batchRequestId);
+            generator.writeArrayFieldStart("rest_requests");
+            for(int i = 0; i < urls.size(); i++) {
+                generator.writeStartObject();
+                generator.writeStringField("id", String.valueOf(i));
+                generator.writeStringField("method", "GET");
+                generator.writeStringField("url", urls.get(i).toString());
+                generator.writeArrayFieldStart("headers");
+                generator.writeStartObject();
+                generator.writeStringField("name", "Accept");
+                generator.writeStringField("value", "application/json");
+                generator.writeEndObject();
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        return body.toByteArray();
+    }
+
+    /**
+     * Hands the body of every serviced request to the handler. Requests the instance did not service are left out.
+     */
+    static void decode(InputStream body, IServicedRequestHandler handler) throws IOException {
+        try(JsonParser parser = FACTORY.createParser(body)) {
+            if(parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new UnreadableBodyException("A batch response body must begin with '{'.", null);
+            }
+
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String key = parser.getCurrentName();
+                if(parser.nextToken() != JsonToken.START_ARRAY || !"serviced_requests".equals(key)) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                while(parser.nextToken() == JsonToken.START_OBJECT) {
+                    readServicedRequest(parser, handler);
+                }
+            }
+        } catch(JsonProcessingException | IllegalArgumentException ex) {
+            throw new UnreadableBodyException("Failed parsing the body of the batch response.", ex);
+        }
+    }
+
+    private static void readServicedRequest(JsonParser parser, IServicedRequestHandler handler) throws IOException {
+
+        String id = null;
+        String encodedBody = null;
+        int statusCode = -1;
+        long executionTimeMs = -1;
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String key = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if(token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            } else if("id".equals(key)) {
+                id = parser.getValueAsString();
+            } else if("body".equals(key)) {
+                encodedBody = parser.getValueAsString();
+            } else if("status_code".equals(key)) {
+                statusCode = parser.getValueAsInt(-1);
+            } else if("execution_time".equals(key)) {
+                executionTimeMs = parser.getValueAsLong(-1);
+            }
+        }
+
+        if(id == null) {
+            throw new UnreadableBodyException("A serviced request of the batch response has no id.", null);
+        }
+
+        // NOTE(millies): the mime decoder lets line breaks in the encoded body through.
+        final byte[] decodedBody = encodedBody == null ? new byte[0] : Base64.getMimeDecoder().decode(encodedBody);
+        handler.onServiced(Integer.parseInt(id), statusCode, decodedBody, executionTimeMs);
+    }
+}
@@ -1,46 +1,63 @@
 package com.ibm.ingestion.http;
 
-//import org.apache.http.impl.client.CloseableHttpClient;
-// import org.apache.http.impl.client.HttpClientBuilder;
+import com.ibm.ingestion.connect.servicenow.source.ServiceNowSourceConnectorConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Serves up the same http client to every task of the worker talking to a given ServiceNow instance with the same
+ * credentials, so they share one connection pool and one view of the load on the instance. Clients are reference
+ * counted, and shut down when the last task using them releases them.
+ */
 public class HttpClientFactory {
 
     public static final Logger log = LoggerFactory.getLogger(HttpClientFactory.class);
 
-//    public static CloseableHttpClient getClientInstance() {
-//
-//        // TODO(millies): Update to serve up same instanace of httpclient for app
-//        // while generating individual httpcontexts for each requesting thread.
-//
-//        //try {
-//            // HACK(Millies): fix when CORE-API is fixed.
-////            SSLContextBuilder builder = new SSLContextBuilder();
-////            builder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
-//
-//            return HttpClientBuilder.create()
-//                    //.setSSLContext(builder.build())
-////                    .setSSLHostnameVerifier(new HostnameVerifier() {
-////                        @Override
-////                        public boolean verify(String hostname, SSLSession session) {
-////                            // FIX ME WHEN CORE-API has a real certificate.
-////                            return true;
-////                        }
-////                    })
-//                    .build();
-//
-////        } catch (KeyManagementException e) {
-////            // TODO Auto-generated catch block
-////            e.printStackTrace();
-////        } catch (NoSuchAlgorithmException e) {
-////            // TODO Auto-generated catch block
-////            e.printStackTrace();
-////        } catch (KeyStoreException e) {
-////            // TODO Auto-generated catch block
-////            e.printStackTrace();
-////        }
-//
-//        //return null;
-//    }
+    private static final Map<String, SharedHttpClient> CLIENTS = new HashMap<>();
+
+    public static SharedHttpClient acquire(ServiceNowSourceConnectorConfig config) {
+        final String key = getKey(config);
+        synchronized(CLIENTS) {
+            SharedHttpClient client = CLIENTS.get(key);
+            if(client == null) {
+                log.info("Creating http client for [{}].", config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_BASEURI));
+                client = new SharedHttpClient(key, config);
+                CLIENTS.put(key, client);
+            }
+
+            client.retain();
+            return client;
+        }
+    }
+
+    static void release(SharedHttpClient client) {
+        synchronized(CLIENTS) {
+            if(client.releaseReference() > 0) {
+                return;
+            }
+
+            CLIENTS.remove(client.getKey());
+        }
+
+        client.shutdown();
+    }
+
+    /**
+     * NOTE(millies): secrets only make it into the key as a hash, so rotated credentials get a client of their own
+     * without the key ever holding them in the clear.
+     */
+    private static String getKey(ServiceNowSourceConnectorConfig config) {
+        final String baseUri = config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_BASEURI);
+        return String.format("%s|%s|%s|%08x",
+                baseUri == null ? "" : baseUri.trim().replaceAll("/+$", "").toLowerCase(),
+                config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_CLIENTID),
+                config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_USERNAME),
+                Objects.hash(
+                        config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_CLIENTSECRET),
+                        config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_USERPASSWORD)));
+    }
 }
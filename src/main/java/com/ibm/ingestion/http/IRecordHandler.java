@@ -0,0 +1,34 @@
+package com.ibm.ingestion.http;
+
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
+
+/**
+ * Receives the records of a Table API response one at a time, as they are decoded from the response stream.
+ *
+ * A request may be attempted more than once, so implementations need to discard anything accumulated by a
+ * previous attempt when {@link #reset()} is called.
+ */
+public interface IRecordHandler {
+
+    /**
+     * Called before every attempt of a request.
+     */
+    void reset();
+
+    void onRecord(ServiceNowRecord record);
+
+    /**
+     * @return whether the records handed over need to carry their JSON, see {@link ServiceNowRecord#getRaw()}.
+     */
+    default boolean needsRawRecords() {
+        return false;
+    }
+
+    /**
+     * Called once the response of the successful attempt has been fully read.
+     * @param responseBytes the size of the response body.
+     * @param elapsedMs the time from sending the request until the last byte of the response was decoded.
+     */
+    default void onComplete(long responseBytes, long elapsedMs) {
+    }
+}
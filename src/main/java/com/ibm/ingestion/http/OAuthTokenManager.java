@@ -0,0 +1,219 @@
+package com.ibm.ingestion.http;
+
+import com.ibm.ingestion.connect.servicenow.source.ServiceNowSourceConnectorConfig;
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Hands out OAuth access tokens for an instance, shared by every task using the same credentials.
+ *
+ * Tokens are refreshed once a configurable fraction of their lifetime has passed, using the refresh_token grant and
+ * falling back to logging in with the password grant. Only one refresh is ever in flight, run on the dispatcher of the
+ * http client rather than by any caller: while a token is still valid, callers keep using it as it is refreshed, and
+ * once it has expired they all wait on that same refresh.
+ */
+public class OAuthTokenManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OAuthTokenManager.class);
+
+    private static final String GRANT_TYPE_KEY = "grant_type";
+    private static final String CLIENTID_KEY = "client_id";
+    private static final String CLIENTSECRET_KEY = "client_secret";
+    private static final String USERNAME_KEY = "username";
+    private static final String USERPASSWORD_KEY = "password";
+    private static final String REFRESH_TOKEN_KEY = "refresh_token";
+
+    private final OkHttpClient _okHttpClient;
+    private final String TOKEN_URL;
+    private final String CLIENT_ID;
+    private final String CLIENT_SECRET;
+    private final String USER_NAME;
+    private final String USER_PASSWORD;
+    private final double REFRESH_RATIO;
+
+    private volatile AuthenticationContext _current;
+    private CompletableFuture<AuthenticationContext> _refreshing;
+
+    public OAuthTokenManager(OkHttpClient okHttpClient, ServiceNowSourceConnectorConfig config) {
+        this._okHttpClient = okHttpClient;
+
+        final String baseUri = getRequiredConfig(config, ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_BASEURI).replaceAll("/+$", "");
+        final String path = config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_PATH);
+        this.TOKEN_URL = baseUri + (path == null || path.trim().isEmpty() ? ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_PATH_DEFAULT : path.trim());
+        this.CLIENT_ID = getRequiredConfig(config, ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_CLIENTID);
+        this.CLIENT_SECRET = getRequiredConfig(config, ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_CLIENTSECRET);
+        this.USER_NAME = getRequiredConfig(config, ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_USERNAME);
+        this.USER_PASSWORD = getRequiredConfig(config, ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_USERPASSWORD);
+        this.REFRESH_RATIO = config.getDouble(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_TOKEN_REFRESH_RATIO);
+    }
+
+    /**
+     * @return a valid access token, refreshing it first if need be.
+     * @throws IOException if the instance could not be reached to get a new token.
+     * @throws ConnectException if the instance turned the credentials down.
+     */
+    public String getAccessToken() throws IOException {
+        try {
+            return this.getAccessTokenAsync().get();
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the authentication token.", ex);
+        } catch(ExecutionException ex) {
+            if(ex.getCause() instanceof IOException) {
+                throw (IOException)ex.getCause();
+            } else if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * Never blocks: a token that has to be refreshed first is requested on the dispatcher of the http client, and
+     * the returned future completes there.
+     * @return a valid access token, completed exceptionally with an IOException if the instance could not be reached
+     * to get a new token, or with a ConnectException if it turned the credentials down.
+     */
+    public CompletableFuture<String> getAccessTokenAsync() {
+        final long nowMs = System.currentTimeMillis();
+        AuthenticationContext current = this._current;
+        if(current == null || current.isExpired(nowMs)) {
+            return this.refresh(current).thenApply(AuthenticationContext::getAccessToken);
+        }
+
+        // NOTE(millies): the current token is still good while it is refreshed in the background.
+        if(current.shouldRefresh(nowMs)) {
+            this.refresh(current);
+        }
+        return CompletableFuture.completedFuture(current.getAccessToken());
+    }
+
+    /**
+     * Marks a token the instance turned down as expired, unless it has already been replaced, so the tasks that
+     * all got a 401 with it only trigger one refresh between them.
+     */
+    public synchronized void invalidate(String accessToken) {
+        AuthenticationContext current = this._current;
+        if(current != null && current.getAccessToken().equals(accessToken)) {
+            this._current = current.expire();
+        }
+    }
+
+    /**
+     * Starts a refresh unless one is in flight already.
+     * @param seen the token the caller found in need of a refresh.
+     */
+    private synchronized CompletableFuture<AuthenticationContext> refresh(AuthenticationContext seen) {
+        if(this._refreshing != null) {
+            return this._refreshing;
+        }
+
+        AuthenticationContext current = this._current;
+        if(current != seen && current != null && !current.shouldRefresh(System.currentTimeMillis())) {
+            // NOTE(millies): refreshed by another caller while we were getting here.
+            return CompletableFuture.completedFuture(current);
+        }
+
+        final CompletableFuture<AuthenticationContext> refreshing = new CompletableFuture<>();
+        this._refreshing = refreshing;
+        try {
+            this._okHttpClient.dispatcher().executorService().execute(() -> {
+                try {
+                    this._current = this.login(current);
+                    this.finishRefresh(refreshing);
+                    refreshing.complete(this._current);
+                } catch(IOException | RuntimeException ex) {
+                    LOG.warn("Failed to refresh authentication token. {}", ex);
+                    this.finishRefresh(refreshing);
+                    refreshing.completeExceptionally(ex);
+                }
+            });
+        } catch(RejectedExecutionException ex) {
+            // NOTE(millies): the http client has been shut down.
+            this._refreshing = null;
+            refreshing.completeExceptionally(new IOException("The http client has been shut down.", ex));
+        }
+        return refreshing;
+    }
+
+    private synchronized void finishRefresh(CompletableFuture<AuthenticationContext> refreshing) {
+        if(this._refreshing == refreshing) {
+            this._refreshing = null;
+        }
+    }
+
+    private AuthenticationContext login(AuthenticationContext previous) throws IOException {
+        if(previous != null && previous.getRefreshToken() != null && !previous.getRefreshToken().isEmpty()) {
+            try {
+                LOG.debug("Refreshing authentication token using the refresh token.");
+                return this.requestToken(new FormBody.Builder()
+                        .add(GRANT_TYPE_KEY, REFRESH_TOKEN_KEY)
+                        .add(CLIENTID_KEY, this.CLIENT_ID)
+                        .add(CLIENTSECRET_KEY, this.CLIENT_SECRET)
+                        .add(REFRESH_TOKEN_KEY, previous.getRefreshToken())
+                        .build(), previous.getRefreshToken());
+            } catch(IOException | RuntimeException ex) {
+                LOG.info("Failed to refresh authentication token using the refresh token, logging in again. {}", ex.getMessage());
+            }
+        }
+
+        LOG.info("Logging into [{}] as [{}].", this.TOKEN_URL, this.USER_NAME);
+        return this.requestToken(new FormBody.Builder()
+                .add(GRANT_TYPE_KEY, "password")
+                .add(CLIENTID_KEY, this.CLIENT_ID)
+                .add(CLIENTSECRET_KEY, this.CLIENT_SECRET)
+                .add(USERNAME_KEY, this.USER_NAME)
+                .add(USERPASSWORD_KEY, this.USER_PASSWORD)
+                .build(), null);
+    }
+
+    private AuthenticationContext requestToken(RequestBody form, String previousRefreshToken) throws IOException {
+
+        // NOTE(millies): token requests bypass the request limiter, so a task holding a permit can always get
+        // the token it needs.
+        Request req = new Request.Builder()
+                .url(this.TOKEN_URL)
+                .post(form)
+                .addHeader("content-type", "application/x-www-form-urlencoded")
+                .build();
+
+        final long requestedAtMs = System.currentTimeMillis();
+        try(Response response = this._okHttpClient.newCall(req).execute()) {
+            final String body = response.body() == null ? "" : response.body().string();
+            if(!response.isSuccessful()) {
+                if(response.code() == 429 || response.code() >= 500) {
+                    throw new IOException(String.format("Received [%s] [%s]", response.code(), body));
+                }
+                throw new ConnectException(String.format("Received [%s] [%s]", response.code(), body));
+            }
+
+            try {
+                return new AuthenticationContext(new JSONObject(body), previousRefreshToken, requestedAtMs, this.REFRESH_RATIO);
+            } catch(JSONException ex) {
+                throw new IOException("Received an unreadable authentication token.", ex);
+            }
+        }
+    }
+
+    private static String getRequiredConfig(ServiceNowSourceConnectorConfig config, String key) {
+        final String candidate = config.getString(key);
+        if(candidate == null || candidate.trim().length() == 0) {
+            throw new RuntimeException(String.format("Missing [%s] configuration.", key));
+        }
+
+        return candidate;
+    }
+}
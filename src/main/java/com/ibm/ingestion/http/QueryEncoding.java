@@ -0,0 +1,59 @@
+package com.ibm.ingestion.http;
+
+import org.apache.kafka.connect.errors.ConnectException;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+/**
+ * Url encoding of query parameters, producing the same output as URLEncoder with UTF-8, but able to append straight
+ * into a buffer without going through intermediate strings.
+ */
+final class QueryEncoding {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private QueryEncoding() {
+    }
+
+    static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch(UnsupportedEncodingException ex) {
+            throw new ConnectException(String.format("The following error occurred while trying to encode [%s].", value), ex);
+        }
+    }
+
+    static void appendEncoded(StringBuilder out, CharSequence value) {
+        for(int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '*' || c == '_') {
+                out.append(c);
+            } else if(c == ' ') {
+                out.append('+');
+            } else if(c < 0x80) {
+                appendEscaped(out, c);
+            } else if(c < 0x800) {
+                appendEscaped(out, 0xC0 | (c >> 6));
+                appendEscaped(out, 0x80 | (c & 0x3F));
+            } else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(out, 0xF0 | (codePoint >> 18));
+                appendEscaped(out, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEscaped(out, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEscaped(out, 0x80 | (codePoint & 0x3F));
+            } else if(Character.isSurrogate(c)) {
+                // NOTE(millies): an unpaired surrogate, which URLEncoder turns into a question mark.
+                appendEscaped(out, '?');
+            } else {
+                appendEscaped(out, 0xE0 | (c >> 12));
+                appendEscaped(out, 0x80 | ((c >> 6) & 0x3F));
+                appendEscaped(out, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static void appendEscaped(StringBuilder out, int b) {
+        out.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+    }
+}
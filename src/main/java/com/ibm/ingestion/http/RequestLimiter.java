@@ -0,0 +1,181 @@
+package com.ibm.ingestion.http;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Caps the requests sent to a ServiceNow instance, across every task sharing it, both in how many can be in flight
+ * at once and in how many can start each second. Requests over the rate are spaced out evenly rather than sent in
+ * bursts.
+ *
+ * Permits are either waited for by the calling thread, see {@link #acquire()}, or handed to a callback once one
+ * frees up, see {@link #acquireAsync(ScheduledExecutorService, Runnable, Consumer)}.
+ */
+public class RequestLimiter {
+
+    private final int MAX_CONCURRENT_REQUESTS;
+    private final long INTERVAL_NS;
+
+    private int _available;
+    private final Queue<AsyncWaiter> _asyncWaiters = new ArrayDeque<>();
+    private long _nextFreeSlotNs = System.nanoTime();
+
+    private final AtomicInteger _inFlight = new AtomicInteger();
+    private final AtomicLong _waitedNs = new AtomicLong();
+
+    /**
+     * @param maxConcurrentRequests 0 or less for no limit.
+     * @param maxRequestsPerSecond 0 or less for no limit.
+     */
+    public RequestLimiter(int maxConcurrentRequests, double maxRequestsPerSecond) {
+        this.MAX_CONCURRENT_REQUESTS = maxConcurrentRequests;
+        this.INTERVAL_NS = maxRequestsPerSecond > 0 ? (long)(TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond) : 0;
+        this._available = maxConcurrentRequests;
+    }
+
+    private boolean isConcurrencyLimited() {
+        return this.MAX_CONCURRENT_REQUESTS > 0;
+    }
+
+    /**
+     * Blocks until the request may be sent. Every call must be followed by a call to {@link #release()}.
+     */
+    public void acquire() throws InterruptedException {
+        final long startedNs = System.nanoTime();
+        long waitNs;
+        synchronized(this) {
+            if(this.isConcurrencyLimited()) {
+                while(this._available <= 0) {
+                    this.wait();
+                }
+                this._available--;
+            }
+            waitNs = this.reserveSlot();
+        }
+
+        if(waitNs > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNs);
+            } catch(InterruptedException ex) {
+                this.releasePermit();
+                throw ex;
+            }
+        }
+
+        this.recordAcquired(startedNs);
+    }
+
+    /**
+     * Runs the callback, on the scheduler, once the request may be sent. The callback must see to it that
+     * {@link #release()} gets called.
+     * @param onRejected called instead, on the thread handing the permit over, if the scheduler has been shut down
+     *                   and the request is not to be sent at all.
+     */
+    public void acquireAsync(ScheduledExecutorService scheduler, Runnable onAcquired, Consumer<RejectedExecutionException> onRejected) {
+        AsyncWaiter waiter = new AsyncWaiter(scheduler, onAcquired, onRejected);
+        synchronized(this) {
+            if(this.isConcurrencyLimited()) {
+                if(this._available <= 0) {
+                    this._asyncWaiters.add(waiter);
+                    return;
+                }
+                this._available--;
+            }
+        }
+
+        this.handOver(waiter);
+    }
+
+    public void release() {
+        this._inFlight.decrementAndGet();
+        this.releasePermit();
+    }
+
+    private void releasePermit() {
+        if(!this.isConcurrencyLimited()) {
+            return;
+        }
+
+        AsyncWaiter waiter;
+        synchronized(this) {
+            waiter = this._asyncWaiters.poll();
+            if(waiter == null) {
+                this._available++;
+                this.notify();
+                return;
+            }
+        }
+
+        // NOTE(millies): the permit goes straight to the waiter, without ever becoming available.
+        this.handOver(waiter);
+    }
+
+    private void handOver(AsyncWaiter waiter) {
+        final long waitNs;
+        synchronized(this) {
+            waitNs = this.reserveSlot();
+        }
+
+        try {
+            waiter._scheduler.schedule(() -> {
+                this.recordAcquired(waiter._startedNs);
+                waiter._onAcquired.run();
+            }, waitNs, TimeUnit.NANOSECONDS);
+        } catch(RejectedExecutionException ex) {
+            // NOTE(millies): the client has been shut down, the request is told it will never be sent.
+            this.releasePermit();
+            waiter._onRejected.accept(ex);
+        }
+    }
+
+    private void recordAcquired(long startedNs) {
+        this._inFlight.incrementAndGet();
+        this._waitedNs.addAndGet(System.nanoTime() - startedNs);
+    }
+
+    /**
+     * @return how long to wait for the reserved slot to come up.
+     */
+    private long reserveSlot() {
+        if(this.INTERVAL_NS == 0) {
+            return 0;
+        }
+
+        final long nowNs = System.nanoTime();
+        final long slotNs = Math.max(nowNs, this._nextFreeSlotNs);
+        this._nextFreeSlotNs = slotNs + this.INTERVAL_NS;
+        return slotNs - nowNs;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return this.MAX_CONCURRENT_REQUESTS;
+    }
+
+    public int getRequestsInFlight() {
+        return this._inFlight.get();
+    }
+
+    public long getWaitedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(this._waitedNs.get());
+    }
+
+    private static class AsyncWaiter {
+
+        private final ScheduledExecutorService _scheduler;
+        private final Runnable _onAcquired;
+        private final Consumer<RejectedExecutionException> _onRejected;
+        private final long _startedNs = System.nanoTime();
+
+        AsyncWaiter(ScheduledExecutorService scheduler, Runnable onAcquired, Consumer<RejectedExecutionException> onRejected) {
+            this._scheduler = scheduler;
+            this._onAcquired = onAcquired;
+            this._onRejected = onRejected;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.ibm.ingestion.http;
+
+import com.ibm.ingestion.connect.servicenow.metrics.RetryMetrics;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether, and how long after, a failed request to ServiceNow gets retried.
+ *
+ *  - Failures are classified by cause. Client errors (other than 401, 408 and 429) are not retried, since sending
+ *    the same request again will not change the answer.
+ *  - Waits grow exponentially with decorrelated jitter (each wait is drawn between the base backoff and three times
+ *    the previous wait, up to a maximum), so tasks that were throttled together do not retry together.
+ *  - When ServiceNow says how long to wait, through Retry-After or X-RateLimit-Reset, that is what we wait, plus a
+ *    little jitter. Every request sent through the client holds off until then, not only the one that failed.
+ *  - Retries draw from a budget that successful requests refill. Once it is spent, every retry waits the maximum
+ *    backoff, so a struggling instance sees at most a trickle of retries from us rather than a multiple of our
+ *    normal load.
+ */
+public class RetryPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RetryPolicy.class);
+
+    public enum Cause {
+        CONNECTION_ERROR,
+        TIMEOUT,
+        UNAUTHORIZED,
+        THROTTLED,
+        UNAVAILABLE,
+        SERVER_ERROR,
+        UNREADABLE_RESPONSE
+    }
+
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+    public static final String RATE_LIMIT_RESET_HEADER = "X-RateLimit-Reset";
+    public static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    /**
+     * Number of retries that can be spent back to back before the budget runs dry.
+     */
+    private static final double BUDGET_CAPACITY = 10.0;
+
+    /**
+     * Upper bound on a wait asked for by the server, so a bogus header cannot stall a task indefinitely.
+     */
+    private static final long MAX_SERVER_REQUESTED_WAIT_MS = 60 * 60 * 1000L;
+
+    private final long BASE_BACKOFF_MS;
+    private final long MAX_BACKOFF_MS;
+    private final double BUDGET_RATIO;
+
+    private double _budgetBalance = BUDGET_CAPACITY;
+    private volatile long _blockedUntilMs;
+    private final RetryMetrics _metrics = new RetryMetrics(this::getBudgetBalance);
+
+    /**
+     * @param baseBackoffMs the shortest wait before a retry.
+     * @param maxBackoffMs the longest wait before a retry, unless the server asks for longer.
+     * @param budgetRatio the fraction of a retry earned back by every successful request.
+     */
+    public RetryPolicy(long baseBackoffMs, long maxBackoffMs, double budgetRatio) {
+        this.BASE_BACKOFF_MS = Math.max(0, baseBackoffMs);
+        this.MAX_BACKOFF_MS = Math.max(this.BASE_BACKOFF_MS, maxBackoffMs);
+        this.BUDGET_RATIO = budgetRatio;
+    }
+
+    /**
+     * @return the cause to retry a response with the given status code for, or null if it should not be retried.
+     */
+    public static Cause classify(int statusCode) {
+        if(statusCode == 401) {
+            return Cause.UNAUTHORIZED;
+        } else if(statusCode == 408) {
+            return Cause.TIMEOUT;
+        } else if(statusCode == 429) {
+            return Cause.THROTTLED;
+        } else if(statusCode == 502 || statusCode == 503 || statusCode == 504) {
+            return Cause.UNAVAILABLE;
+        } else if(statusCode >= 500) {
+            return Cause.SERVER_ERROR;
+        }
+
+        return null;
+    }
+
+    public static Cause classify(IOException ex) {
+        // NOTE(millies): okhttp reports read, connect and call timeouts as InterruptedIOException subclasses.
+        return ex instanceof InterruptedIOException ? Cause.TIMEOUT : Cause.CONNECTION_ERROR;
+    }
+
+    /**
+     * Starts tracking the retries of a single request.
+     */
+    public Attempts newAttempts() {
+        return new Attempts();
+    }
+
+    /**
+     * Refills the budget, and takes note of the rate limit state the server reported on the response.
+     */
+    public void recordSuccess(Response response) {
+        synchronized(this) {
+            this._budgetBalance = Math.min(BUDGET_CAPACITY, this._budgetBalance + this.BUDGET_RATIO);
+        }
+
+        // NOTE(millies): the next request is bound to be throttled if the window has been used up, so waiting for
+        // the window to reset right away.
+        if("0".equals(response.header(RATE_LIMIT_REMAINING_HEADER))) {
+            long waitMs = getServerRequestedWaitMs(null, response.header(RATE_LIMIT_RESET_HEADER), System.currentTimeMillis());
+            if(waitMs > 0) {
+                LOG.info("Rate limit of the instance used up, holding off requests for [{}] ms.", waitMs);
+                this.blockFor(waitMs);
+            }
+        }
+    }
+
+    /**
+     * @return how long requests should hold off for, following a wait asked for by the server.
+     */
+    public long getBlockedForMs() {
+        return Math.max(0, this._blockedUntilMs - System.currentTimeMillis());
+    }
+
+    public RetryMetrics getMetrics() {
+        return this._metrics;
+    }
+
+    public synchronized double getBudgetBalance() {
+        return this._budgetBalance;
+    }
+
+    private synchronized boolean tryWithdrawBudget() {
+        if(this._budgetBalance < 1.0) {
+            return false;
+        }
+
+        this._budgetBalance -= 1.0;
+        return true;
+    }
+
+    private synchronized void blockFor(long waitMs) {
+        this._blockedUntilMs = Math.max(this._blockedUntilMs, System.currentTimeMillis() + waitMs);
+    }
+
+    /**
+     * @return the wait asked for by Retry-After (delay seconds or an HTTP date) or X-RateLimit-Reset (epoch seconds),
+     * whichever is longer, or -1 if neither is present.
+     */
+    static long getServerRequestedWaitMs(String retryAfter, String rateLimitReset, long nowMs) {
+        long waitMs = -1;
+        if(retryAfter != null && !retryAfter.trim().isEmpty()) {
+            final String value = retryAfter.trim();
+            try {
+                waitMs = Math.max(waitMs, Long.parseLong(value) * 1000L);
+            } catch(NumberFormatException ignored) {
+                try {
+                    waitMs = Math.max(waitMs, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - nowMs);
+                } catch(DateTimeParseException ex) {
+                    LOG.warn("Ignoring unreadable [{}] header [{}].", RETRY_AFTER_HEADER, value);
+                }
+            }
+        }
+
+        if(rateLimitReset != null && !rateLimitReset.trim().isEmpty()) {
+            try {
+                waitMs = Math.max(waitMs, Long.parseLong(rateLimitReset.trim()) * 1000L - nowMs);
+            } catch(NumberFormatException ex) {
+                LOG.warn("Ignoring unreadable [{}] header [{}].", RATE_LIMIT_RESET_HEADER, rateLimitReset);
+            }
+        }
+
+        return waitMs < 0 ? -1 : Math.min(waitMs, MAX_SERVER_REQUESTED_WAIT_MS);
+    }
+
+    /**
+     * The retries of a single request.
+     */
+    public class Attempts {
+
+        private long _previousBackoffMs = BASE_BACKOFF_MS;
+        private boolean _refreshedAuthentication;
+
+        /**
+         * Records a retry and works out how long to wait before sending it.
+         * @param response the failed response, or null if none was received.
+         */
+        public long nextDelayMs(Cause cause, Response response) {
+
+            long delayMs;
+            long serverRequestedMs = -1;
+            if(response != null && (cause == Cause.THROTTLED || cause == Cause.UNAVAILABLE)) {
+                serverRequestedMs = getServerRequestedWaitMs(response.header(RETRY_AFTER_HEADER), response.header(RATE_LIMIT_RESET_HEADER), System.currentTimeMillis());
+            }
+
+            if(cause == Cause.UNAUTHORIZED && !this._refreshedAuthentication) {
+                // NOTE(millies): the token has just been refreshed, so the first retry goes out right away.
+                this._refreshedAuthentication = true;
+                delayMs = 0;
+            } else if(serverRequestedMs >= 0) {
+                delayMs = serverRequestedMs + ThreadLocalRandom.current().nextLong(Math.max(1000L, serverRequestedMs / 10));
+                blockFor(delayMs);
+            } else {
+                final long upper = Math.min(MAX_BACKOFF_MS, this._previousBackoffMs * 3);
+                delayMs = upper > BASE_BACKOFF_MS ? ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MS, upper + 1) : BASE_BACKOFF_MS;
+                this._previousBackoffMs = delayMs;
+            }
+
+            final boolean withinBudget = tryWithdrawBudget();
+            if(!withinBudget) {
+                delayMs = Math.max(delayMs, MAX_BACKOFF_MS);
+            }
+
+            _metrics.recordRetry(cause, delayMs, withinBudget);
+            return delayMs;
+        }
+    }
+}
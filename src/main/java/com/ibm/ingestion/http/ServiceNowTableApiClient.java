@@ -1,24 +1,34 @@
 package com.ibm.ingestion.http;
 
 import com.ibm.ingestion.connect.servicenow.source.ServiceNowSourceConnectorConfig;
+import com.ibm.ingestion.http.codec.IJsonCodec;
+import com.ibm.ingestion.http.codec.JsonCodecs;
+import com.ibm.ingestion.http.codec.ServiceNowRecord;
+import com.ibm.ingestion.http.codec.UnreadableBodyException;
 import okhttp3.*;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
 
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.errors.ConnectException;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public class ServiceNowTableApiClient {
@@ -27,15 +37,27 @@ public class ServiceNowTableApiClient {
 
     private static class Urls {
         public static final String DEFAULT_TABLEAPI_PATH = "/api/now/table";
-        public static final String LOGIN = "/oauth_token.do";
     }
 
     private ServiceNowSourceConnectorConfig _config;
+    private SharedHttpClient _sharedClient;
     private OkHttpClient _okHttpClient;
+    private RequestLimiter _limiter;
+    private String _baseUri;
+    private String _tableApiUri;
+    private int BATCH_MAX_REQUESTS;
+    private volatile long _batchPausedUntilMs;
+    private OAuthTokenManager _tokenManager;
+    private IJsonCodec _codec;
 
     private final int UNBOUNDED_NUMBER_OF_RETRIES = -1;
+
+    /**
+     * How long requests go out on their own after a batch failed, in case the instance does not allow the Batch API.
+     */
+    private static final long BATCH_FAILURE_PAUSE_MS = 10 * 60 * 1000;
     private int MAX_RETRIES;
-    private int RETRY_BACKOFF_MS;
+    private RetryPolicy _retryPolicy;
 
     /**
      * EXAMPLE: https://ibmmhasdev2.service-now.com
@@ -63,214 +85,769 @@ public class ServiceNowTableApiClient {
         public static final String FIELDS = "sysparm_fields";
     }
 
-    private JSONObject _currentJwtToken;
-
     public void init() throws IOException {
 
-        final int CONNECTION_TIMEOUT_SECONDS = this.getConfigOrDefault(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_CONNECTION_TIMEOUT_SECONDS, 10);
-        final int CALL_TIMEOUT_SECONDS = this.getConfigOrDefault(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_TIMEOUT_SECONDS, 30); // Disabled by default. Read/Write timeouts will be respected.
-        final int READ_TIMEOUT_SECONDS = this.getConfigOrDefault(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_READ_TIMEOUT_SECONDS, 25);
-        final int MAX_IDLE_CONNECTIONS = this.getConfigOrDefault(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_MAX_IDLE_CONNECTIONS, 2);
-        final int KEEP_ALIVE_DURATION_SECONDS = this.getConfigOrDefault(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_KEEP_ALIVE_DURATION_SECONDS, 30);
-
-        this._okHttpClient = new OkHttpClient.Builder()
-                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION_SECONDS, TimeUnit.SECONDS))
-                .connectTimeout(CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .callTimeout(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .build();
+        // NOTE(millies): tasks talking to the same instance share a client, see HttpClientFactory.
+        this._sharedClient = HttpClientFactory.acquire(this._config);
+        this._okHttpClient = this._sharedClient.getOkHttpClient();
+        this._limiter = this._sharedClient.getLimiter();
+        this._retryPolicy = this._sharedClient.getRetryPolicy();
+        this._tokenManager = this._sharedClient.getTokenManager();
 
-        this.refreshAuthenticationToken();
+        // NOTE(millies): failing fast on bad credentials. Tasks sharing the client only log in once between them.
+        this._tokenManager.getAccessToken();
 
         this.MAX_RETRIES = this.getRequiredConfigInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_MAX_RETRIES);
-        this.RETRY_BACKOFF_MS = this.getRequiredConfigInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_RETRY_BACKOFF_SECONDS) * 1000;
+        this._codec = JsonCodecs.forName(this.getConfigOrDefault(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_JSON_CODEC, ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_JSON_CODEC_DEFAULT));
+        this._baseUri = this.getBaseUri().toString();
+        this._tableApiUri = this._baseUri + Urls.DEFAULT_TABLEAPI_PATH;
+        this.BATCH_MAX_REQUESTS = this._config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_BATCH_MAX_REQUESTS);
+    }
+
+    /**
+     * @return the most requests sent together in a single request to the Batch API, 1 or less when disabled.
+     */
+    public int getBatchMaxRequests() {
+        return this.BATCH_MAX_REQUESTS;
+    }
+
+    /**
+     * Starts a batch of requests to be sent together, see {@link Batch}.
+     */
+    public Batch newBatch() {
+        return new Batch();
     }
 
     public void close() {
-        try {
-            this._okHttpClient.connectionPool().evictAll();
-        } catch(Exception ex) {
-            LOG.debug("Error while cleaning up connection pool. [{}]", ex);
+        if(this._sharedClient != null) {
+            this._sharedClient.release();
+            this._sharedClient = null;
         }
     }
 
-    public List<JSONObject> getRecords(String table, TableAPIQueryBuilder query) throws InterruptedException, IOException {
+    public List<ServiceNowRecord> getRecords(String table, TableAPIQueryBuilder query) throws InterruptedException, IOException {
         return this.getRecords(table, query, 0, 1);
     }
 
-    public List<JSONObject> getRecords(String table, TableAPIQueryBuilder query, long offset, int limit) throws InterruptedException, IOException {
+    public List<ServiceNowRecord> getRecords(String table, TableAPIQueryBuilder query, long offset, int limit) throws InterruptedException, IOException {
         return this.getRecords(table, query, offset, limit, true, null);
     }
 
-    public List<JSONObject> getRecords(String table, TableAPIQueryBuilder query, long offset, int limit, List<String> fields) throws InterruptedException, IOException {
+    public List<ServiceNowRecord> getRecords(String table, TableAPIQueryBuilder query, long offset, int limit, List<String> fields) throws InterruptedException, IOException {
         return this.getRecords(table, query, offset, limit, true, fields);
     }
 
-    public List<JSONObject> getRecords(String table, TableAPIQueryBuilder query, long offset, int limit, boolean excludeReferenceLink, List<String> fields) throws InterruptedException, IOException {
+    public List<ServiceNowRecord> getRecords(String table, TableAPIQueryBuilder query, long offset, int limit, boolean excludeReferenceLink, List<String> fields) throws InterruptedException, IOException {
+        ListRecordHandler handler = new ListRecordHandler();
+        this.getRecords(table, query, offset, limit, excludeReferenceLink, fields, handler);
+        return handler.getRecords();
+    }
+
+    public int getRecords(String table, TableAPIQueryBuilder query, long offset, int limit, List<String> fields, IRecordHandler handler) throws InterruptedException, IOException {
+        return this.getRecords(table, query, offset, limit, true, fields, handler);
+    }
 
-        final StringBuilder requestUrl = this.getBaseUri();
-        requestUrl.append(Urls.DEFAULT_TABLEAPI_PATH);
-        requestUrl.append("/" + table.replaceAll("^/+", ""));
+    /**
+     * Streams the records of the requested page into the handler as they are decoded, rather than materializing
+     * the whole page first.
+     * @return the number of records handed to the handler by the successful attempt.
+     */
+    public int getRecords(String table, TableAPIQueryBuilder query, long offset, int limit, boolean excludeReferenceLink, List<String> fields, IRecordHandler handler) throws InterruptedException, IOException {
+        return this.sendWithRetry(this.buildRequest(table, query, offset, limit, excludeReferenceLink, fields), handler);
+    }
 
-        List<String> queryArgs = new ArrayList<String>();
-        queryArgs.add(String.format("%s=%s", ServiceNowParams.EXCLUDE_REFERENCES, excludeReferenceLink));
+    public CompletableFuture<Integer> getRecordsAsync(String table, TableAPIQueryBuilder query, long offset, int limit, List<String> fields, IRecordHandler handler) {
+        return this.getRecordsAsync(table, query, offset, limit, true, fields, handler);
+    }
 
-        if(offset != Long.MIN_VALUE) {
-            queryArgs.add(String.format("%s=%s", ServiceNowParams.OFFSET, offset));
-        }
+    /**
+     * Same as {@link #getRecords(String, TableAPIQueryBuilder, long, int, boolean, List, IRecordHandler)}, without
+     * tying up a thread while the request is waiting: on the request limits, on the instance, or to be retried.
+     * Records are streamed into the handler on one of the threads of the http client.
+     *
+     * Cancelling the returned future cancels the request in flight, or the retry waiting to be sent.
+     * @return the number of records handed to the handler by the successful attempt.
+     */
+    public CompletableFuture<Integer> getRecordsAsync(String table, TableAPIQueryBuilder query, long offset, int limit, boolean excludeReferenceLink, List<String> fields, IRecordHandler handler) {
+        AsyncRequest request = new AsyncRequest(this.buildRequest(table, query, offset, limit, excludeReferenceLink, fields), handler);
+        request.send();
+        return request.getFuture();
+    }
 
-        if(limit != Integer.MIN_VALUE) {
-            queryArgs.add(String.format("%s=%s", ServiceNowParams.LIMIT, limit));
-        }
+    /**
+     * Same as {@link #getRecordsAsync(String, TableAPIQueryBuilder, long, int, boolean, List, IRecordHandler)}, for a
+     * query that has already been url encoded, such as one rendered from a {@link TableQueryTemplate}. The query is
+     * copied before this returns, so the buffer it was rendered into can be reused right away.
+     */
+    public CompletableFuture<Integer> getRecordsAsync(String table, CharSequence encodedQuery, long offset, int limit, boolean excludeReferenceLink, List<String> fields, IRecordHandler handler) {
+        AsyncRequest request = new AsyncRequest(this.buildRequest(table, encodedQuery, offset, limit, excludeReferenceLink, fields), handler);
+        request.send();
+        return request.getFuture();
+    }
 
+    private Request.Builder buildRequest(String table, TableAPIQueryBuilder query, long offset, int limit, boolean excludeReferenceLink, List<String> fields) {
         if(query == null) {
             throw new RuntimeException("A query is required even if it is empty.");
         }
 
-        try {
-            queryArgs.add(String.format("%s=%s", ServiceNowParams.QUERY, URLEncoder.encode(query.build(), "UTF-8")));
-        } catch(UnsupportedEncodingException ex) {
-            throw new ConnectException(String.format("The following error occurred while trying to encode the following query string. [%s]", query.build()), ex);
+        return this.buildRequest(table, QueryEncoding.encode(query.build()), offset, limit, excludeReferenceLink, fields);
+    }
+
+    private Request.Builder buildRequest(String table, CharSequence encodedQuery, long offset, int limit, boolean excludeReferenceLink, List<String> fields) {
+        return new Request.Builder()
+                .url(this.buildUrl(table, encodedQuery, offset, limit, excludeReferenceLink, fields))
+                .addHeader("Accept", "application/json")
+                .get();
+    }
+
+    private String buildUrl(String table, CharSequence encodedQuery, long offset, int limit, boolean excludeReferenceLink, List<String> fields) {
+
+        final StringBuilder requestUrl = new StringBuilder(this._tableApiUri.length() + table.length() + encodedQuery.length() + 128);
+        requestUrl.append(this._tableApiUri);
+        requestUrl.append('/');
+        // NOTE(millies): avoiding a regex for the common case of a table name without leading slashes.
+        int tableStart = 0;
+        while(tableStart < table.length() && table.charAt(tableStart) == '/') {
+            tableStart++;
         }
+        requestUrl.append(table, tableStart, table.length());
 
+        requestUrl.append('?').append(ServiceNowParams.EXCLUDE_REFERENCES).append('=').append(excludeReferenceLink);
 
-        if(fields != null) {
-            queryArgs.add(String.format("%s=%s", ServiceNowParams.FIELDS, String.join(",", fields)));
+        if(offset != Long.MIN_VALUE) {
+            requestUrl.append('&').append(ServiceNowParams.OFFSET).append('=').append(offset);
         }
 
-        requestUrl.append("?");
-        requestUrl.append(String.join("&", queryArgs));
+        if(limit != Integer.MIN_VALUE) {
+            requestUrl.append('&').append(ServiceNowParams.LIMIT).append('=').append(limit);
+        }
 
-        Request.Builder req = new Request.Builder()
-                .url(requestUrl.toString())
-                .addHeader("Accept", "application/json")
-                .get();
+        requestUrl.append('&').append(ServiceNowParams.QUERY).append('=').append(encodedQuery);
 
-        return this.sendWithRetry(req);
+        if(fields != null) {
+            requestUrl.append('&').append(ServiceNowParams.FIELDS).append('=');
+            for(int i = 0; i < fields.size(); i++) {
+                if(i > 0) {
+                    requestUrl.append(',');
+                }
+                requestUrl.append(fields.get(i));
+            }
+        }
+
+        return requestUrl.toString();
     }
 
     /**
-     * Guaranteed to throw exception if it cannot get a successful response.
+     * Guaranteed to throw exception if it cannot get a successful response. How long to wait between attempts, and
+     * whether a failure is worth retrying at all, is left to the RetryPolicy.
      * @param requestBuilder
+     * @param handler
      * @return
      * @throws InterruptedException
      */
-    private List<JSONObject> sendWithRetry(Request.Builder requestBuilder) throws InterruptedException {
+    private int sendWithRetry(Request.Builder requestBuilder, IRecordHandler handler) throws InterruptedException {
+
+        PendingRequest pending = new PendingRequest(requestBuilder, handler);
+        while(true) {
+
+            // NOTE(millies): ServiceNow told us to back off, whether on this request or another one.
+            final long blockedForMs = this._retryPolicy.getBlockedForMs();
+            if(blockedForMs > 0) {
+                Thread.sleep(blockedForMs);
+            }
+
+            Request request = pending.prepare();
+            if(request != null) {
+                // NOTE(millies): the permit is held until the response has been read, since the instance is busy with
+                // the request until then.
+                this._limiter.acquire();
+                try {
+                    final long attemptStartedNs = System.nanoTime();
+                    Response candidate = null;
+                    try {
+                        candidate = this._okHttpClient.newCall(request).execute();
+                    }
+                    catch(IOException ex) {
+                        pending.recordFailure(request, ex);
+                    }
+
+                    if(candidate != null) {
+                        final int result = pending.readResponse(request, candidate, attemptStartedNs);
+                        if(result >= 0) {
+                            return result;
+                        }
+                    }
+                } finally {
+                    this._limiter.release();
+                }
+            }
 
-        List<JSONObject> result = null;
-        final String AUTHORIZATION_HEADER = "Authorization";
-        int remainingRetries = this.MAX_RETRIES;
-        while(this.MAX_RETRIES == this.UNBOUNDED_NUMBER_OF_RETRIES || remainingRetries-- > 0) {
+            final long delayMs = pending.nextDelayMs();
+            if(delayMs < 0) {
+                throw new ConnectException("Failed the maximum number of retries while making request. Bailing.");
+            }
+
+            // NOTE(millies): as a result of a failure on the response, we're going to wait a little bit before
+            // retrying.
+            Thread.sleep(delayMs);
+        }
+    }
+
+    /**
+     * The attempts at a single request, whichever way they end up being sent.
+     */
+    private class PendingRequest {
 
-            Response candidate = null;
-            Request request = requestBuilder
+        private static final String AUTHORIZATION_HEADER = "Authorization";
+
+        private final Request.Builder _requestBuilder;
+        private final IRecordHandler _handler;
+        private final RetryPolicy.Attempts _attempts = _retryPolicy.newAttempts();
+        // NOTE(millies): the max retries have always counted the first attempt, so a request is sent that many times.
+        private int _remainingRetries = MAX_RETRIES - 1;
+
+        private String _accessToken;
+        private RetryPolicy.Cause _cause;
+        private Response _failedResponse;
+
+        PendingRequest(Request.Builder requestBuilder, IRecordHandler handler) {
+            this._requestBuilder = requestBuilder;
+            this._handler = handler;
+        }
+
+        /**
+         * @return the request to send for the next attempt, or null if no authentication token could be had.
+         */
+        Request prepare() {
+            final String accessToken;
+            try {
+                accessToken = _tokenManager.getAccessToken();
+            } catch(IOException ex) {
+                return this.failedToAuthenticate(ex);
+            }
+            return this.prepare(accessToken);
+        }
+
+        /**
+         * @return null, the attempt having failed for the lack of an authentication token.
+         */
+        Request failedToAuthenticate(IOException ex) {
+            LOG.error("The following error occurred while getting an authentication token. {}", ex);
+            this._failedResponse = null;
+            this._cause = RetryPolicy.classify(ex);
+            return null;
+        }
+
+        /**
+         * @return the request to send for the next attempt, authenticated with the given token.
+         */
+        Request prepare(String accessToken) {
+            this._cause = null;
+            this._failedResponse = null;
+            this._accessToken = accessToken;
+
+            return this._requestBuilder
                     .removeHeader(AUTHORIZATION_HEADER)
-                    .addHeader(AUTHORIZATION_HEADER, String.format("Bearer %s", this.getAccessToken()))
+                    .addHeader(AUTHORIZATION_HEADER, String.format("Bearer %s", this._accessToken))
                     .build();
+        }
+
+        void recordFailure(Request request, IOException ex) {
+            LOG.error("The following error occurred while sending request {}. {}", request, ex);
+            this._cause = RetryPolicy.classify(ex);
+        }
+
+        /**
+         * @return the number of records read, or -1 if the attempt failed and may be retried.
+         */
+        int readResponse(Request request, Response candidate, long attemptStartedNs) {
+
+            // NOTE(millies): handling a failed response and trying to log as much info as we can.
+            if(!candidate.isSuccessful()) {
+                ResponseBody body = candidate.body();
+                String bodyContents = "";
+                try {
+                    if(body != null) {
+                        bodyContents = body.string();
+                        body.close();
+                    }
+                } catch(Exception ignored) {
+                    // ignored.
+                }
 
+                LOG.error("Request {} failed with code {} and the following body. {}", request, candidate.code(), bodyContents);
+                this._cause = RetryPolicy.classify(candidate.code());
+                this._failedResponse = candidate;
+                if(this._cause == null) {
+                    throw new ConnectException(String.format("Request [%s] failed with code [%s], which retrying will not fix. %s", request, candidate.code(), bodyContents));
+                }
+
+                if(this._cause == RetryPolicy.Cause.UNAUTHORIZED) {
+                    LOG.info("Received 401 from server, refreshing authentication token.");
+                    _tokenManager.invalidate(this._accessToken);
+                }
+                return -1;
+            }
+
+            // NOTE(millies): Received a successful response attempt parsing.
             try {
-                candidate = this._okHttpClient.newCall(request).execute();
+                final int result = this.readBody(candidate, attemptStartedNs);
+                // NOTE(millies): Successful parsing.
+                _retryPolicy.recordSuccess(candidate);
+                return result;
+            } catch(IOException ex) {
+                LOG.error("Failed parsing response with error [{}].", ex);
+                this._cause = ex instanceof UnreadableBodyException ? RetryPolicy.Cause.UNREADABLE_RESPONSE : RetryPolicy.classify(ex);
+                return -1;
             }
-            catch(IOException ex) {
-                LOG.error("The following error occurred while sending request {}. {}", request, ex);
+        }
+
+        /**
+         * Reads the body of a successful response.
+         * @return the number of records read.
+         */
+        int readBody(Response candidate, long attemptStartedNs) throws IOException {
+            this._handler.reset();
+            return parseJSONBody(candidate, this._handler, attemptStartedNs);
+        }
+
+        /**
+         * @return how long to wait before the next attempt, or -1 if there are no retries left.
+         */
+        long nextDelayMs() {
+            if(MAX_RETRIES != UNBOUNDED_NUMBER_OF_RETRIES && this._remainingRetries-- <= 0) {
+                return -1;
             }
 
-            // NOTE(millies): handling a failed response and trying to log as much info as we can.
-            if(candidate == null || !candidate.isSuccessful()) {
-                if(candidate != null) {
-                    ResponseBody body = candidate.body();
-                    String bodyContents = "";
-                    try {
-                        if(body != null) {
-                            bodyContents = body.string();
-                            body.close();
-                        }
-                    } catch(Exception ignored) {
-                        // ignored.
-                    }
+            final long delayMs = this._attempts.nextDelayMs(this._cause, this._failedResponse);
+            LOG.info("Retrying after [{}] in [{}] ms. [{}] retries remaining.", this._cause, delayMs, MAX_RETRIES == UNBOUNDED_NUMBER_OF_RETRIES ? "unlimited" : this._remainingRetries);
+            return delayMs;
+        }
+    }
 
-                    LOG.error("Request {} failed with code {} and the following body. {}", request, candidate.code(), bodyContents);
-                    if(candidate.code() == 401) {
-                        LOG.info("Received 401 from server, attempting to refresh authentication token.");
-                        try {
-                            this.refreshAuthenticationToken();
-                        } catch(Exception ex) {
-                            LOG.error("Failed to refresh authentication token: {}", ex);
-                        }
-                    }
+    /**
+     * Drives the attempts at a request without blocking: permits are handed over by the request limiter when one
+     * frees up, the call is enqueued on the dispatcher of the http client, and waits are scheduled on a timer.
+     */
+    private class AsyncRequest extends PendingRequest implements Callback {
+
+        private final CompletableFuture<Integer> _future = new CompletableFuture<>();
+        private volatile Request _request;
+        private volatile long _attemptStartedNs;
+        private volatile Call _call;
+        private volatile ScheduledFuture<?> _scheduled;
+
+        AsyncRequest(Request.Builder requestBuilder, IRecordHandler handler) {
+            super(requestBuilder, handler);
+            this._future.whenComplete((result, ex) -> {
+                if(this._future.isCancelled()) {
+                    this.cancel();
                 }
+            });
+        }
+
+        CompletableFuture<Integer> getFuture() {
+            return this._future;
+        }
+
+        void send() {
+            if(this._future.isDone()) {
+                return;
+            }
+
+            // NOTE(millies): ServiceNow told us to back off, whether on this request or another one.
+            final long blockedForMs = _retryPolicy.getBlockedForMs();
+            if(blockedForMs > 0) {
+                this.schedule(blockedForMs);
+                return;
+            }
+
+            // NOTE(millies): a token that has to be refreshed first is waited for off the timer, see OAuthTokenManager.
+            _tokenManager.getAccessTokenAsync().whenComplete(this::sendWith);
+        }
+
+        private void sendWith(String accessToken, Throwable ex) {
+            if(this._future.isDone()) {
+                return;
+            }
+
+            final Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if(cause instanceof IOException) {
+                this._request = this.failedToAuthenticate((IOException)cause);
+            } else if(cause != null) {
+                this._future.completeExceptionally(cause);
+                return;
             } else {
-                // NOTE(millies): Received a successful response attempt parsing.
-                try {
-                    result = parseJSONBody(candidate);
-                    // NOTE(millies): Successful parsing.
-                    break;
-                } catch(IOException ex) {
-                    LOG.error("Failed parsing response with error [{}].", ex);
+                this._request = this.prepare(accessToken);
+            }
+
+            if(this._request == null) {
+                this.retry();
+            } else {
+                _limiter.acquireAsync(_sharedClient.getScheduler(), this::execute, this._future::completeExceptionally);
+            }
+        }
+
+        private void execute() {
+            if(this._future.isDone()) {
+                _limiter.release();
+                return;
+            }
+
+            this._attemptStartedNs = System.nanoTime();
+            Call call = _okHttpClient.newCall(this._request);
+            this._call = call;
+            call.enqueue(this);
+            if(this._future.isCancelled()) {
+                call.cancel();
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException ex) {
+            _limiter.release();
+            if(this._future.isDone()) {
+                return;
+            }
+
+            this.recordFailure(this._request, ex);
+            this.retry();
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            final int result;
+            try {
+                result = this.readResponse(this._request, response, this._attemptStartedNs);
+            } catch(RuntimeException ex) {
+                this._future.completeExceptionally(ex);
+                return;
+            } finally {
+                _limiter.release();
+            }
+
+            if(result >= 0) {
+                this._future.complete(result);
+            } else {
+                this.retry();
+            }
+        }
+
+        private void retry() {
+            if(this._future.isDone()) {
+                return;
+            }
+
+            final long delayMs = this.nextDelayMs();
+            if(delayMs < 0) {
+                this._future.completeExceptionally(new ConnectException("Failed the maximum number of retries while making request. Bailing."));
+            } else {
+                this.schedule(delayMs);
+            }
+        }
+
+        private void schedule(long delayMs) {
+            try {
+                this._scheduled = _sharedClient.getScheduler().schedule(this::send, delayMs, TimeUnit.MILLISECONDS);
+            } catch(RejectedExecutionException ex) {
+                // NOTE(millies): the client has been shut down.
+                this._future.completeExceptionally(ex);
+                return;
+            }
+
+            if(this._future.isCancelled()) {
+                this._scheduled.cancel(false);
+            }
+        }
+
+        private void cancel() {
+            Call call = this._call;
+            if(call != null) {
+                call.cancel();
+            }
+
+            ScheduledFuture<?> scheduled = this._scheduled;
+            if(scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Requests for pages of several tables, sent together as a single request to the ServiceNow Batch API, saving a
+     * round trip, and a permit of the request limiter, for each of them. Meant for tables that have little to return,
+     * since the responses of a batch come back base64 encoded in a single body, held in memory until it is decoded.
+     *
+     * The responses are handed to the handler of each request once the whole batch has been received. A request the
+     * instance did not service, answered with an error, or answered with a response that could not be read, is sent
+     * again on its own, and so is every request of a batch that failed altogether, in which case requests go out on
+     * their own for a while.
+     */
+    public class Batch {
+
+        private final List<Request.Builder> _requests = new ArrayList<>();
+        private final List<String> _urls = new ArrayList<>();
+        private final List<IRecordHandler> _handlers = new ArrayList<>();
+        private final List<CompletableFuture<Integer>> _futures = new ArrayList<>();
+
+        private Batch() {
+        }
+
+        /**
+         * Same as {@link #getRecordsAsync(String, TableAPIQueryBuilder, long, int, boolean, List, IRecordHandler)},
+         * the request only going out once the batch is sent.
+         */
+        public CompletableFuture<Integer> add(String table, TableAPIQueryBuilder query, long offset, int limit, boolean excludeReferenceLink, List<String> fields, IRecordHandler handler) {
+            return this.add(table, QueryEncoding.encode(query.build()), offset, limit, excludeReferenceLink, fields, handler);
+        }
+
+        /**
+         * Same as {@link #getRecordsAsync(String, CharSequence, long, int, boolean, List, IRecordHandler)}, the
+         * request only going out once the batch is sent.
+         */
+        public CompletableFuture<Integer> add(String table, CharSequence encodedQuery, long offset, int limit, boolean excludeReferenceLink, List<String> fields, IRecordHandler handler) {
+            final String url = buildUrl(table, encodedQuery, offset, limit, excludeReferenceLink, fields);
+            this._requests.add(new Request.Builder().url(url).addHeader("Accept", "application/json").get());
+            this._urls.add(url.substring(_baseUri.length()));
+            this._handlers.add(handler);
+
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            this._futures.add(future);
+            return future;
+        }
+
+        public int size() {
+            return this._futures.size();
+        }
+
+        public void send() {
+            if(this.size() == 0) {
+                return;
+            }
+
+            if(this.size() == 1 || System.currentTimeMillis() < _batchPausedUntilMs) {
+                for(int i = 0; i < this.size(); i++) {
+                    this.sendOnItsOwn(i);
                 }
+                return;
             }
 
-            LOG.info("Retrying in [{}] ms. [{}] retries remaining.", this.RETRY_BACKOFF_MS, remainingRetries);
+            final byte[] body;
+            try {
+                body = BatchEnvelope.encode(UUID.randomUUID().toString(), this._urls);
+            } catch(IOException ex) {
+                this.onBatchFailed(ex);
+                return;
+            }
 
-            // NOTE(millies): as a result of a failure on the response, we're going to wait a little bit before
-            // retrying.
-            Thread.sleep(this.RETRY_BACKOFF_MS);
+            BatchRequest request = new BatchRequest(new Request.Builder()
+                    .url(_baseUri + BatchEnvelope.PATH)
+                    .addHeader("Accept", "application/json")
+                    .post(RequestBody.create(MediaType.parse("application/json; charset=utf-8"), body)), this);
+            request.getFuture().whenComplete((count, ex) -> {
+                if(ex != null) {
+                    this.onBatchFailed(ex);
+                } else {
+                    this.onBatchRead(request.getCounts());
+                }
+            });
+
+            // NOTE(millies): the batch is only worth cancelling once every request in it is.
+            for(CompletableFuture<Integer> future : this._futures) {
+                future.whenComplete((count, ex) -> {
+                    if(this._futures.stream().allMatch(CompletableFuture::isCancelled)) {
+                        request.getFuture().cancel(true);
+                    }
+                });
+            }
+
+            request.send();
+        }
+
+        private void onBatchRead(int[] counts) {
+            for(int i = 0; i < this.size(); i++) {
+                if(counts[i] >= 0) {
+                    this._futures.get(i).complete(counts[i]);
+                } else {
+                    this.sendOnItsOwn(i);
+                }
+            }
+        }
+
+        private void onBatchFailed(Throwable ex) {
+            if(this._futures.stream().allMatch(CompletableFuture::isCancelled)) {
+                return;
+            }
+
+            LOG.warn("A batch of [{}] requests failed, sending them on their own and pausing batches for [{}] ms.", this.size(), BATCH_FAILURE_PAUSE_MS, ex);
+            _batchPausedUntilMs = System.currentTimeMillis() + BATCH_FAILURE_PAUSE_MS;
+            for(int i = 0; i < this.size(); i++) {
+                this.sendOnItsOwn(i);
+            }
+        }
+
+        private void sendOnItsOwn(int index) {
+            final CompletableFuture<Integer> future = this._futures.get(index);
+            if(future.isDone()) {
+                return;
+            }
+
+            AsyncRequest request = new AsyncRequest(this._requests.get(index), this._handlers.get(index));
+            request.getFuture().whenComplete((count, ex) -> {
+                if(ex != null) {
+                    future.completeExceptionally(ex);
+                } else {
+                    future.complete(count);
+                }
+            });
+            future.whenComplete((count, ex) -> {
+                if(future.isCancelled()) {
+                    request.getFuture().cancel(true);
+                }
+            });
+            request.send();
+        }
+    }
+
+    /**
+     * The attempts at sending a batch, reading the response of each request in it into the handler of that request.
+     */
+    private class BatchRequest extends AsyncRequest {
+
+        private final Batch _batch;
+        private volatile int[] _counts;
+
+        BatchRequest(Request.Builder requestBuilder, Batch batch) {
+            super(requestBuilder, null);
+            this._batch = batch;
         }
 
-        if(result == null) {
-            throw new ConnectException("Failed the maximum number of retries while making request. Bailing.");
+        /**
+         * @return the number of records read for each request of the batch, -1 for those that failed.
+         */
+        int[] getCounts() {
+            return this._counts;
         }
 
-        return result;
+        @Override
+        int readBody(Response candidate, long attemptStartedNs) throws IOException {
+
+            final int[] counts = new int[this._batch.size()];
+            Arrays.fill(counts, -1);
+            ResponseBody body = candidate.body();
+            if(body == null) {
+                throw new UnreadableBodyException("The batch response has no body.", null);
+            }
+
+            try {
+                BatchEnvelope.decode(body.byteStream(), (index, statusCode, bytes, executionTimeMs) -> {
+                    if(index < 0 || index >= counts.length) {
+                        throw new UnreadableBodyException(String.format("The batch response holds request [%d], which was not sent.", index), null);
+                    }
+                    if(statusCode != 200) {
+                        LOG.warn("Request [{}] of a batch failed with code [{}], sending it on its own.", this._batch._urls.get(index), statusCode);
+                        return;
+                    }
+
+                    // NOTE(millies): whatever goes wrong with one request of the batch is left to that request alone, sent
+                    // on its own, rather than failing the other requests of the batch with it.
+                    IRecordHandler handler = this._batch._handlers.get(index);
+                    handler.reset();
+                    try {
+                        final int count = JsonCodecs.forHandler(_codec, handler).readResult(new ByteArrayInputStream(bytes), handler);
+                        if(count < 0) {
+                            LOG.warn("The response to request [{}] of a batch has no result array, sending it on its own.", this._batch._urls.get(index));
+                            return;
+                        }
+                        handler.onComplete(bytes.length, executionTimeMs >= 0 ? executionTimeMs : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attemptStartedNs));
+                        counts[index] = count;
+                    } catch(UnreadableBodyException | RuntimeException ex) {
+                        LOG.warn("Failed reading the response to request [{}] of a batch, sending it on its own.", this._batch._urls.get(index), ex);
+                    }
+                });
+            } finally {
+                body.close();
+            }
+
+            this._counts = counts;
+            return Arrays.stream(counts).filter(count -> count > 0).sum();
+        }
     }
 
-    private List<JSONObject>  parseJSONBody(Response response) throws IOException {
-        JSONObject page = null;
+    /**
+     * Hands each record of the response body to the handler as soon as the codec has decoded it. Only a single
+     * record of the page is held in memory at any time.
+     */
+    private int parseJSONBody(Response response, IRecordHandler handler, long attemptStartedNs) throws IOException {
+
+        int count = 0;
         ResponseBody body = null;
         try {
             body = response.body();
-            if(body != null) {
-                page = new JSONObject(body.string());
+            if(body == null) {
+                // NOTE(millies): put this here so we have visibility of this situation.
+                LOG.error("Page ended up being null during query of table.");
+                return count;
+            }
+
+            ByteCountingSource counter = new ByteCountingSource(body.source());
+            count = JsonCodecs.forHandler(this._codec, handler).readResult(Okio.buffer(counter).inputStream(), handler);
+            if(count < 0) {
+                // NOTE(millies): put this here so we have visibility of this situation.
+                LOG.error("Received a body without a result array during query of table.");
+                count = 0;
             }
+
+            handler.onComplete(counter.getByteCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attemptStartedNs));
         } finally {
             if(body != null) {
                 body.close();
             }
         }
 
-        List<JSONObject> results = new ArrayList<JSONObject>();
-        if(page != null) {
-            JSONArray records = page.optJSONArray("result");
-            if(records != null) {
-                for(int i = 0; i < records.length() ;i++) {
-                    results.add(records.getJSONObject(i));
-                }
-            } else {
-                // NOTE(millies): put this here so we have visibility of this situation.
-                LOG.error("Received the following body that could not be parsed. {}", page);
+        return count;
+    }
+
+    private static class ByteCountingSource extends ForwardingSource {
+
+        private long _byteCount;
+
+        public ByteCountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            final long read = super.read(sink, byteCount);
+            if(read > 0) {
+                this._byteCount += read;
             }
-        } else {
-            // NOTE(millies): put this here so we have visibility of this situation.
-            LOG.error("Page ended up being null during query of table.");
+            return read;
         }
 
-        return results;
+        public long getByteCount() {
+            return this._byteCount;
+        }
     }
 
-    private String getAccessToken() {
-        if(this._currentJwtToken != null) {
-            return this._currentJwtToken.getString("access_token");
-        }
+    /**
+     * Collects streamed records into a list for the callers which want the whole page at once.
+     */
+    private static class ListRecordHandler implements IRecordHandler {
 
-        return null;
-    }
+        private List<ServiceNowRecord> _records = new ArrayList<>();
+
+        public void reset() {
+            this._records = new ArrayList<>();
+        }
 
-    private String getRefreshToken() {
-        if(this._currentJwtToken != null) {
-            return this._currentJwtToken.getString("refresh_token");
+        public void onRecord(ServiceNowRecord record) {
+            this._records.add(record);
         }
 
-        return null;
+        public List<ServiceNowRecord> getRecords() {
+            return this._records;
+        }
     }
 
     public ServiceNowTableApiClient(ServiceNowSourceConnectorConfig config) {
@@ -313,53 +890,6 @@ public class ServiceNowTableApiClient {
         return new StringBuilder(baseUrl.replaceAll("/+$", ""));
     }
 
-    private JSONObject getAuthenticationToken() throws IOException {
-
-        final String GRANT_TYPE_KEY = "grant_type";
-        final String CLIENTID_KEY = "client_id";
-        final String CLIENTSECRET_KEY = "client_secret";
-        final String USERNAME_KEY = "username";
-        final String USERPASSWORD_KEY = "password";
-
-        final String clientId = this.getRequiredConfig(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_CLIENTID);
-        final String clientSecret = this.getRequiredConfig(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_CLIENTSECRET);
-        final String userName = this.getRequiredConfig(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_USERNAME);
-        final String userPassword = this.getRequiredConfig(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_USERPASSWORD);
-
-        final StringBuilder requestUrl = this.getBaseUri();
-        requestUrl.append(Urls.LOGIN);
-
-        RequestBody form = new FormBody.Builder()
-                .add(GRANT_TYPE_KEY, "password")
-                .add(CLIENTID_KEY, clientId)
-                .add(CLIENTSECRET_KEY, clientSecret)
-                .add(USERNAME_KEY, userName)
-                .add(USERPASSWORD_KEY, userPassword)
-                .build();
-
-        Request req = new Request.Builder()
-                .url(requestUrl.toString())
-                .post(form)
-                .addHeader("content-type", "application/x-www-form-urlencoded")
-                .build();
-
-        Response response = this._okHttpClient.newCall(req).execute();
-        JSONObject authenticationInfo = null;
-        try {
-            if(!response.isSuccessful()) {
-                throw new ConnectException(String.format("Received [%s] [%s]", response.code(), response.body().string()));
-            }
-
-            authenticationInfo = new JSONObject(response.body().string());
-        } finally {
-            if(response != null) {
-                response.close();
-            }
-        }
-
-        return authenticationInfo;
-    }
-
     public static String toLogFormat(Exception ex) {
         StringBuilder sb = new StringBuilder();
         StringWriter sw = new StringWriter();
@@ -375,8 +905,4 @@ public class ServiceNowTableApiClient {
         sb.append(sw.toString());
         return sb.toString();
     }
-
-    private void refreshAuthenticationToken() throws JSONException, IOException {
-        this._currentJwtToken = this.getAuthenticationToken();
-    }
 }
@@ -0,0 +1,144 @@
+package com.ibm.ingestion.http;
+
+import com.ibm.ingestion.connect.servicenow.metrics.InstanceMetrics;
+import com.ibm.ingestion.connect.servicenow.source.ServiceNowSourceConnectorConfig;
+import com.ibm.ingestion.connect.servicenow.util.Helpers;
+import com.ibm.ingestion.connect.servicenow.util.MBeans;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ObjectName;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything the tasks of a worker talking to the same ServiceNow instance, as the same user, share: the http client
+ * along with its connection pool and dispatcher, the limits on requests, and the retry policy (ServiceNow rate
+ * limits per user, so a 429 on one task is news to all of them).
+ *
+ * Handed out by {@link HttpClientFactory}, and settings are taken from the configuration of the first task to ask
+ * for it.
+ */
+public class SharedHttpClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedHttpClient.class);
+
+    private final String _key;
+    private final OkHttpClient _okHttpClient;
+    private final RequestLimiter _limiter;
+    private final RetryPolicy _retryPolicy;
+    private final OAuthTokenManager _tokenManager;
+    private final ScheduledExecutorService _scheduler;
+    private int _references;
+
+    private final ObjectName _metricsName;
+    private final ObjectName _retryMetricsName;
+
+    SharedHttpClient(String key, ServiceNowSourceConnectorConfig config) {
+        this._key = key;
+
+        final int CONNECTION_TIMEOUT_SECONDS = config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_CONNECTION_TIMEOUT_SECONDS);
+        final int CALL_TIMEOUT_SECONDS = config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_TIMEOUT_SECONDS);
+        final int READ_TIMEOUT_SECONDS = config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_READ_TIMEOUT_SECONDS);
+        final int MAX_IDLE_CONNECTIONS = config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_MAX_IDLE_CONNECTIONS);
+        final int KEEP_ALIVE_DURATION_SECONDS = config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_KEEP_ALIVE_DURATION_SECONDS);
+        final int MAX_CONCURRENT_REQUESTS = config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_INSTANCE_MAX_CONCURRENT_REQUESTS);
+        final double MAX_REQUESTS_PER_SECOND = config.getDouble(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_INSTANCE_MAX_REQUESTS_PER_SECOND);
+
+        Dispatcher dispatcher = new Dispatcher();
+        if(MAX_CONCURRENT_REQUESTS > 0) {
+            dispatcher.setMaxRequests(MAX_CONCURRENT_REQUESTS);
+        }
+        // NOTE(millies): every request goes to the same host, the per host limit would only get in the way.
+        dispatcher.setMaxRequestsPerHost(dispatcher.getMaxRequests());
+
+        this._okHttpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION_SECONDS, TimeUnit.SECONDS))
+                .connectTimeout(CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .callTimeout(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        this._limiter = new RequestLimiter(MAX_CONCURRENT_REQUESTS, MAX_REQUESTS_PER_SECOND);
+        this._retryPolicy = new RetryPolicy(
+                config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_RETRY_BACKOFF_SECONDS) * 1000L,
+                config.getInt(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_RETRY_BACKOFF_MAX_SECONDS) * 1000L,
+                config.getDouble(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_RETRY_BUDGET_RATIO));
+
+        this._tokenManager = new OAuthTokenManager(this._okHttpClient, config);
+        this._scheduler = Executors.newSingleThreadScheduledExecutor(Helpers.daemonThreadFactory("servicenow-client-timer"));
+
+        final String instance = config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_BASEURI);
+        final String user = config.getString(ServiceNowSourceConnectorConfig.SERVICENOW_CLIENT_OAUTH_USERNAME);
+        this._metricsName = MBeans.register(new InstanceMetrics(this), "servicenow-instance", "instance", instance, "user", user);
+        this._retryMetricsName = MBeans.register(this._retryPolicy.getMetrics(), "servicenow-instance-retries", "instance", instance, "user", user);
+    }
+
+    String getKey() {
+        return this._key;
+    }
+
+    public OkHttpClient getOkHttpClient() {
+        return this._okHttpClient;
+    }
+
+    public RequestLimiter getLimiter() {
+        return this._limiter;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return this._retryPolicy;
+    }
+
+    public OAuthTokenManager getTokenManager() {
+        return this._tokenManager;
+    }
+
+    /**
+     * Timer used by asynchronous requests to wait without holding up a thread. Tasks must only schedule short,
+     * non-blocking work on it.
+     */
+    public ScheduledExecutorService getScheduler() {
+        return this._scheduler;
+    }
+
+    public synchronized int getReferences() {
+        return this._references;
+    }
+
+    synchronized void retain() {
+        this._references++;
+    }
+
+    /**
+     * @return the number of references left.
+     */
+    synchronized int releaseReference() {
+        return --this._references;
+    }
+
+    /**
+     * Hands this client back to the factory, which shuts it down once the last task using it has let go.
+     */
+    public void release() {
+        HttpClientFactory.release(this);
+    }
+
+    void shutdown() {
+        try {
+            this._scheduler.shutdownNow();
+            this._okHttpClient.dispatcher().executorService().shutdown();
+            this._okHttpClient.connectionPool().evictAll();
+        } catch(Exception ex) {
+            LOG.debug("Error while cleaning up connection pool. [{}]", ex);
+        } finally {
+            MBeans.unregister(this._metricsName);
+            MBeans.unregister(this._retryMetricsName);
+        }
+    }
+}
@@ -1,18 +1,17 @@
 package com.ibm.ingestion.http;
 
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 
 public class TableAPIQueryBuilder {
 
-    private static class ServiceNowQuerySyntax {
+    static class ServiceNowQuerySyntax {
         public static final String AND = "^";
         public static final String OR = "^OR";
         public static final String NEW_QUERY = "^NQ";
         public static final String IS = "=";
         public static final String IS_NOT = "!=";
+        public static final String IN = "IN";
         public static final String STARTS_WITH = "STARTSWITH";
         public static final String LIKE = "LIKE";
         public static final String NOT_LIKE = "NOTLIKE";
@@ -36,15 +35,30 @@ public class TableAPIQueryBuilder {
         return new TableAPIQueryBuilder();
     }
 
-    private String SERVICENOW_QUERY_SEPARATOR_PATTERN = String.format("\\%s", ServiceNowQuerySyntax.AND);
-    private String ESCAPED_QUERY_SEPARATOR = String.format("%s%s", ServiceNowQuerySyntax.AND, ServiceNowQuerySyntax.AND);
     private String sanitizeValue(String value) {
 
-        if(value == null || value.trim().length() == 0) {
+        if(value == null || value.indexOf(QUERY_SEPARATOR) < 0) {
             return value;
         }
 
-        return value.replaceAll(SERVICENOW_QUERY_SEPARATOR_PATTERN, ESCAPED_QUERY_SEPARATOR);
+        StringBuilder sanitized = new StringBuilder(value.length() + 4);
+        appendSanitized(sanitized, value);
+        return sanitized.toString();
+    }
+
+    private static final char QUERY_SEPARATOR = '^';
+
+    /**
+     * Appends the value with every query separator escaped, by doubling it up.
+     */
+    static void appendSanitized(StringBuilder out, CharSequence value) {
+        for(int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            out.append(c);
+            if(c == QUERY_SEPARATOR) {
+                out.append(QUERY_SEPARATOR);
+            }
+        }
     }
 
     /**
@@ -52,90 +66,109 @@ public class TableAPIQueryBuilder {
      * @return
      */
     public String build() {
-        return this._query.toString().replaceAll("^\\^", "");
+        if(this._query.length() > 0 && this._query.charAt(0) == QUERY_SEPARATOR) {
+            return this._query.substring(1);
+        }
+        return this._query.toString();
     }
 
     public TableAPIQueryBuilder whereEquals(String field, String value) {
         value = this.sanitizeValue(value);
-        this._query.append(String.format("%s%s%s%s",ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.IS, value));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.IS).append(value);
         return this;
     }
 
     public TableAPIQueryBuilder orWhereEquals(String field, String value) {
         value = this.sanitizeValue(value);
-        this._query.append(String.format("%s%s%s%s",ServiceNowQuerySyntax.OR, field, ServiceNowQuerySyntax.IS, value));
+        this._query.append(ServiceNowQuerySyntax.OR).append(field).append(ServiceNowQuerySyntax.IS).append(value);
         return this;
     }
 
     public TableAPIQueryBuilder whereNotEquals(String field, String value) {
         value = this.sanitizeValue(value);
-        this._query.append(String.format("%s%s%s%s",ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.IS_NOT, value));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.IS_NOT).append(value);
         return this;
     }
 
     public TableAPIQueryBuilder orWhereNotEquals(String field, String value) {
         value = this.sanitizeValue(value);
-        this._query.append(String.format("%s%s%s%s",ServiceNowQuerySyntax.OR, field, ServiceNowQuerySyntax.IS_NOT, value));
+        this._query.append(ServiceNowQuerySyntax.OR).append(field).append(ServiceNowQuerySyntax.IS_NOT).append(value);
+        return this;
+    }
+
+    /**
+     * EXAMPLE: "sys_idIN1234,5678"
+     */
+    public TableAPIQueryBuilder whereIn(String field, Collection<String> values) {
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.IN);
+        boolean first = true;
+        for(String value : values) {
+            if(!first) {
+                this._query.append(',');
+            }
+            appendSanitized(this._query, value);
+            first = false;
+        }
         return this;
     }
 
     public TableAPIQueryBuilder whereGreaterThan(String field, String value) {
         value = this.sanitizeValue(value);
-        this._query.append(String.format("%s%s%s%s",ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.GREATER_THAN, value));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.GREATER_THAN).append(value);
         return this;
     }
 
     public TableAPIQueryBuilder whereGreaterThanOrEqual(String field, String value) {
         value = this.sanitizeValue(value);
-        this._query.append(String.format("%s%s%s%s",ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.GREATER_THAN_OR_EQUAL, value));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.GREATER_THAN_OR_EQUAL).append(value);
         return this;
     }
 
     public TableAPIQueryBuilder whereLessThan(String field, String value) {
         value = this.sanitizeValue(value);
-        this._query.append(String.format("%s%s%s%s",ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.LESS_THAN, value));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.LESS_THAN).append(value);
         return this;
     }
 
     public TableAPIQueryBuilder whereLessThanOrEqual(String field, String value) {
         value = this.sanitizeValue(value);
-        this._query.append(String.format("%s%s%s%s",ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.LESS_THAN_OR_EQUAL, value));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.LESS_THAN_OR_EQUAL).append(value);
         return this;
     }
 
     public TableAPIQueryBuilder whereIsAnything(String field) {
         field = this.sanitizeValue(field);
-        this._query.append(String.format("%s%s%s", ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.IS_ANYTHING));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.IS_ANYTHING);
         return this;
     }
 
     public TableAPIQueryBuilder whereIsEmptyString(String field) {
         field = this.sanitizeValue(field);
-        this._query.append(String.format("%s%s%s", ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.IS_EMPTY_STRING));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.IS_EMPTY_STRING);
         return this;
     }
 
     public TableAPIQueryBuilder whereIsEmpty(String field) {
         field = this.sanitizeValue(field);
-        this._query.append(String.format("%s%s%s", ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.IS_EMPTY));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.IS_EMPTY);
         return this;
     }
 
     public TableAPIQueryBuilder whereIsNotEmpty(String field) {
         field = this.sanitizeValue(field);
-        this._query.append(String.format("%s%s%s", ServiceNowQuerySyntax.AND, field, ServiceNowQuerySyntax.IS_NOT_EMPTY));
+        this._query.append(ServiceNowQuerySyntax.AND).append(field).append(ServiceNowQuerySyntax.IS_NOT_EMPTY);
         return this;
     }
 
     public TableAPIQueryBuilder orderByAsc(String field) {
         field = this.sanitizeValue(field);
-        this._query.append(String.format("%s%s%s", ServiceNowQuerySyntax.AND, ServiceNowQuerySyntax.ORDERBY_ASC, field));
+        this._query.append(ServiceNowQuerySyntax.AND).append(ServiceNowQuerySyntax.ORDERBY_ASC).append(field);
         return this;
     }
 
     public TableAPIQueryBuilder orderByDesc(String field) {
         field = this.sanitizeValue(field);
-        this._query.append(String.format("%s%s%s", ServiceNowQuerySyntax.AND, ServiceNowQuerySyntax.ORDERBY_DESC, field));
+        this._query.append(ServiceNowQuerySyntax.AND).append(ServiceNowQuerySyntax.ORDERBY_DESC).append(field);
         return this;
     }
 
@@ -156,6 +189,17 @@ public class TableAPIQueryBuilder {
         return this;
     }
 
+    /**
+     * Appends the clauses of the given query, which every record must match as well.
+     */
+    public TableAPIQueryBuilder and(TableAPIQueryBuilder builder) {
+        final String clauses = builder.build();
+        if(!clauses.isEmpty()) {
+            this._query.append(ServiceNowQuerySyntax.AND).append(clauses);
+        }
+        return this;
+    }
+
     public TableAPIQueryBuilder union(TableAPIQueryBuilder builder) {
         this._query.append(ServiceNowQuerySyntax.NEW_QUERY);
         this._query.append(builder.build());
@@ -163,8 +207,51 @@ public class TableAPIQueryBuilder {
     }
 
     private static String toServiceNowDateTime(LocalDateTime timestamp) {
-        final String fromDate = DateTimeFormatter.ofPattern("yyyy-LL-dd").format(timestamp);
-        final String fromTime = DateTimeFormatter.ofPattern("HH:mm:ss").format(timestamp);
-        return String.format("javascript:gs.dateGenerate('%s','%s')", fromDate, fromTime);
+        StringBuilder dateTime = new StringBuilder(48);
+        appendServiceNowDateTime(dateTime, timestamp, false);
+        return dateTime.toString();
+    }
+
+    private static final String DATE_GENERATE_PREFIX = "javascript:gs.dateGenerate('";
+    private static final String DATE_GENERATE_SEPARATOR = "','";
+    private static final String DATE_GENERATE_SUFFIX = "')";
+    private static final String ENCODED_DATE_GENERATE_PREFIX = QueryEncoding.encode(DATE_GENERATE_PREFIX);
+    private static final String ENCODED_DATE_GENERATE_SEPARATOR = QueryEncoding.encode(DATE_GENERATE_SEPARATOR);
+    private static final String ENCODED_DATE_GENERATE_SUFFIX = QueryEncoding.encode(DATE_GENERATE_SUFFIX);
+    private static final String ENCODED_TIME_SEPARATOR = QueryEncoding.encode(":");
+
+    /**
+     * Appends javascript:gs.dateGenerate('yyyy-MM-dd','HH:mm:ss') for the timestamp digit by digit, optionally url
+     * encoded, rather than going through a DateTimeFormatter and String.format.
+     */
+    static void appendServiceNowDateTime(StringBuilder out, LocalDateTime timestamp, boolean encoded) {
+        final String timeSeparator = encoded ? ENCODED_TIME_SEPARATOR : ":";
+        out.append(encoded ? ENCODED_DATE_GENERATE_PREFIX : DATE_GENERATE_PREFIX);
+        appendDigits(out, timestamp.getYear(), 4);
+        out.append('-');
+        appendDigits(out, timestamp.getMonthValue(), 2);
+        out.append('-');
+        appendDigits(out, timestamp.getDayOfMonth(), 2);
+        out.append(encoded ? ENCODED_DATE_GENERATE_SEPARATOR : DATE_GENERATE_SEPARATOR);
+        appendDigits(out, timestamp.getHour(), 2);
+        out.append(timeSeparator);
+        appendDigits(out, timestamp.getMinute(), 2);
+        out.append(timeSeparator);
+        appendDigits(out, timestamp.getSecond(), 2);
+        out.append(encoded ? ENCODED_DATE_GENERATE_SUFFIX : DATE_GENERATE_SUFFIX);
+    }
+
+    private static void appendDigits(StringBuilder out, int value, int width) {
+        int divisor = 1;
+        for(int i = 1; i < width; i++) {
+            divisor *= 10;
+        }
+
+        for(; divisor > 1; divisor /= 10) {
+            if(value < divisor) {
+                out.append('0');
+            }
+        }
+        out.append(value);
     }
 }
@@ -0,0 +1,158 @@
+package com.ibm.ingestion.http;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An encoded query compiled ahead of time, in which only the timestamp and identifier parameters change from one
+ * poll to the next. Everything else is assembled, sanitized and url encoded once, when the template is built, so
+ * rendering a query is a matter of appending a handful of precomputed segments and the parameters into a buffer.
+ *
+ * Templates are immutable and may be shared between threads.
+ */
+public final class TableQueryTemplate {
+
+    public enum Parameter {
+        FROM_TIMESTAMP,
+        THROUGH_TIMESTAMP,
+        LAST_IDENTIFIER
+    }
+
+    private final Segment[] _segments;
+
+    private TableQueryTemplate(List<Segment> segments) {
+        this._segments = segments.toArray(new Segment[0]);
+    }
+
+    public static Builder Builder() {
+        return new Builder();
+    }
+
+    /**
+     * Appends the query, url encoded, ready to be passed on as sysparm_query.
+     */
+    public void renderEncoded(StringBuilder out, LocalDateTime fromTimestamp, LocalDateTime throughTimestamp, String lastIdentifier) {
+        this.render(out, fromTimestamp, throughTimestamp, lastIdentifier, true);
+    }
+
+    /**
+     * Appends the query as it would be built by {@link TableAPIQueryBuilder}, for logging.
+     */
+    public void render(StringBuilder out, LocalDateTime fromTimestamp, LocalDateTime throughTimestamp, String lastIdentifier) {
+        this.render(out, fromTimestamp, throughTimestamp, lastIdentifier, false);
+    }
+
+    private void render(StringBuilder out, LocalDateTime fromTimestamp, LocalDateTime throughTimestamp, String lastIdentifier, boolean encoded) {
+        for(Segment segment : this._segments) {
+            if(segment._parameter == null) {
+                out.append(encoded ? segment._encoded : segment._text);
+            } else if(segment._parameter == Parameter.FROM_TIMESTAMP) {
+                TableAPIQueryBuilder.appendServiceNowDateTime(out, fromTimestamp, encoded);
+            } else if(segment._parameter == Parameter.THROUGH_TIMESTAMP) {
+                TableAPIQueryBuilder.appendServiceNowDateTime(out, throughTimestamp, encoded);
+            } else if(encoded && lastIdentifier.indexOf('^') < 0) {
+                QueryEncoding.appendEncoded(out, lastIdentifier);
+            } else if(encoded) {
+                // NOTE(millies): only identifiers holding a query separator pay for an intermediate buffer.
+                StringBuilder sanitized = new StringBuilder(lastIdentifier.length() + 4);
+                TableAPIQueryBuilder.appendSanitized(sanitized, lastIdentifier);
+                QueryEncoding.appendEncoded(out, sanitized);
+            } else {
+                TableAPIQueryBuilder.appendSanitized(out, lastIdentifier);
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final String _text;
+        private final String _encoded;
+        private final Parameter _parameter;
+
+        private Segment(String text, Parameter parameter) {
+            this._text = text;
+            this._encoded = text == null ? null : QueryEncoding.encode(text);
+            this._parameter = parameter;
+        }
+    }
+
+    /**
+     * Builds a template with the same syntax {@link TableAPIQueryBuilder} produces, with parameters in place of
+     * the timestamps and identifier that change between polls.
+     */
+    public static final class Builder {
+
+        private final List<Segment> _segments = new ArrayList<>();
+        private final StringBuilder _pending = new StringBuilder();
+        private boolean _atQueryStart = true;
+
+        private Builder() {
+        }
+
+        private Builder literal(String text) {
+            this._pending.append(text);
+            return this;
+        }
+
+        private Builder parameter(Parameter parameter) {
+            this.flush();
+            this._segments.add(new Segment(null, parameter));
+            return this;
+        }
+
+        private Builder clause(String field, String operator, Parameter parameter) {
+            return this.and().literal(field).literal(operator).parameter(parameter);
+        }
+
+        private Builder and() {
+            // NOTE(millies): same as TableAPIQueryBuilder.build(), no separator at the start of a query.
+            if(this._atQueryStart) {
+                this._atQueryStart = false;
+                return this;
+            }
+            return this.literal(TableAPIQueryBuilder.ServiceNowQuerySyntax.AND);
+        }
+
+        public Builder whereTimestampEquals(String field, Parameter parameter) {
+            return this.clause(field, TableAPIQueryBuilder.ServiceNowQuerySyntax.IS, parameter);
+        }
+
+        public Builder whereGreaterThan(String field, Parameter parameter) {
+            return this.clause(field, TableAPIQueryBuilder.ServiceNowQuerySyntax.GREATER_THAN, parameter);
+        }
+
+        public Builder whereLessThan(String field, Parameter parameter) {
+            return this.clause(field, TableAPIQueryBuilder.ServiceNowQuerySyntax.LESS_THAN, parameter);
+        }
+
+        public Builder whereBetweenExclusive(String field, Parameter from, Parameter through) {
+            return this.whereGreaterThan(field, from).whereLessThan(field, through);
+        }
+
+        /**
+         * Clauses that take no parameter are written by the query builder itself, so they are bound to match.
+         */
+        public Builder where(TableAPIQueryBuilder clauses) {
+            final String built = clauses.build();
+            return built.isEmpty() ? this : this.and().literal(built);
+        }
+
+        public Builder union() {
+            this._atQueryStart = true;
+            return this.literal(TableAPIQueryBuilder.ServiceNowQuerySyntax.NEW_QUERY);
+        }
+
+        private void flush() {
+            if(this._pending.length() > 0) {
+                this._segments.add(new Segment(this._pending.toString(), null));
+                this._pending.setLength(0);
+            }
+        }
+
+        public TableQueryTemplate build() {
+            this.flush();
+            return new TableQueryTemplate(this._segments);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ibm.ingestion.http.codec;
+
+import java.util.Arrays;
+
+/**
+ * A record held as two parallel arrays of keys and values, in the order the fields were read.
+ *
+ * Looking a field up by name scans the keys from just after the field found last, so reading the fields of a
+ * record in the order they were read costs a single comparison per field, with no map to build per record.
+ */
+public class FlatRecord implements ServiceNowRecord {
+
+    private String[] _keys;
+    private String[] _values;
+    private int _size;
+    private int _cursor;
+    private byte[] _raw;
+
+    public FlatRecord() {
+        this(16);
+    }
+
+    public FlatRecord(int capacity) {
+        this._keys = new String[Math.max(1, capacity)];
+        this._values = new String[this._keys.length];
+    }
+
+    public FlatRecord add(String key, String value) {
+        if(this._size == this._keys.length) {
+            this._keys = Arrays.copyOf(this._keys, this._size * 2);
+            this._values = Arrays.copyOf(this._values, this._size * 2);
+        }
+
+        this._keys[this._size] = key;
+        this._values[this._size] = value;
+        this._size++;
+        return this;
+    }
+
+    public int size() {
+        return this._size;
+    }
+
+    public String getKey(int index) {
+        return this._keys[index];
+    }
+
+    public String getValue(int index) {
+        return this._values[index];
+    }
+
+    public String getValue(String key) {
+        final int index = this.indexOf(key);
+        return index < 0 ? null : this._values[index];
+    }
+
+    public byte[] getRaw() {
+        return this._raw;
+    }
+
+    public void setRaw(byte[] raw) {
+        this._raw = raw;
+    }
+
+    public boolean has(String key) {
+        return this.indexOf(key) >= 0;
+    }
+
+    private int indexOf(String key) {
+        for(int i = 0; i < this._size; i++) {
+            int candidate = this._cursor + i;
+            if(candidate >= this._size) {
+                candidate -= this._size;
+            }
+
+            final String candidateKey = this._keys[candidate];
+            // NOTE(millies): keys are interned by the parser, so the identity check nearly always settles it.
+            if(candidateKey == key || candidateKey.equals(key)) {
+                this._cursor = candidate + 1 == this._size ? 0 : candidate + 1;
+                return candidate;
+            }
+        }
+
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("{");
+        for(int i = 0; i < this._size; i++) {
+            if(i > 0) {
+                text.append(", ");
+            }
+            text.append(this._keys[i]).append('=').append(this._values[i]);
+        }
+        return text.append('}').toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.ibm.ingestion.http.codec;
+
+import com.ibm.ingestion.http.IRecordHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the bodies of Table API responses into records.
+ *
+ * Implementations are stateless and shared by every request of the client, see {@link JsonCodecs}.
+ */
+public interface IJsonCodec {
+
+    String getName();
+
+    /**
+     * Walks a response body of the form {"result": [...]}, handing each element of the result array to the handler
+     * as soon as it has been decoded, so only a single record of the page is held in memory at any time. Anything
+     * else in the body is skipped.
+     * @return the number of records handed to the handler, or -1 if the body had no result array.
+     */
+    int readResult(InputStream body, IRecordHandler handler) throws IOException;
+}
@@ -0,0 +1,109 @@
+package com.ibm.ingestion.http.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.ibm.ingestion.http.IRecordHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+/**
+ * Decodes records with the Jackson streaming parser, straight from the bytes of the response into a
+ * {@link FlatRecord}. Field names are interned by the parser, so the keys of every record of a table are the same
+ * String instances, and no maps are built along the way. Raw records are sliced out of the bytes of the response.
+ */
+public class JacksonJsonCodec implements IJsonCodec {
+
+    public static final String NAME = "jackson";
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    public String getName() {
+        return NAME;
+    }
+
+    public int readResult(InputStream body, IRecordHandler handler) throws IOException {
+        try {
+            return this.readResultOrFail(body, handler);
+        } catch(JsonProcessingException ex) {
+            throw new UnreadableBodyException("Failed parsing the body of the response.", ex);
+        }
+    }
+
+    private int readResultOrFail(InputStream body, IRecordHandler handler) throws IOException {
+
+        int count = 0;
+        boolean receivedResult = false;
+        final RecordingInputStream recording = handler != null && handler.needsRawRecords() ? new RecordingInputStream(body) : null;
+        try(JsonParser parser = FACTORY.createParser(recording != null ? recording : body)) {
+            if(parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "A response body must begin with '{'");
+            }
+
+            // NOTE(millies): record sizes follow the previous record, so wide tables do not regrow every record.
+            int capacity = 16;
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String key = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if(!JsonCodecs.RESULT_KEY.equals(key) || token != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                receivedResult = true;
+                JsonToken element;
+                while((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if(element != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    final long start = parser.getTokenLocation().getByteOffset();
+                    FlatRecord record = readRecord(parser, capacity);
+                    capacity = Math.max(16, record.size());
+                    if(recording != null) {
+                        // NOTE(millies): the bytes of the record as they came, nothing gets encoded again.
+                        final long end = parser.getCurrentLocation().getByteOffset();
+                        record.setRaw(recording.slice(start, end));
+                        recording.discardBefore(end);
+                    }
+                    handler.onRecord(record);
+                    count++;
+                }
+            }
+        }
+
+        return receivedResult ? count : -1;
+    }
+
+    private static FlatRecord readRecord(JsonParser parser, int capacity) throws IOException {
+        FlatRecord record = new FlatRecord(capacity);
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String key = parser.getCurrentName();
+            record.add(key, readValue(parser, parser.nextToken()));
+        }
+        return record;
+    }
+
+    private static String readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch(token) {
+            case VALUE_NULL:
+                return null;
+            case START_OBJECT:
+            case START_ARRAY:
+                // NOTE(millies): only reference links and the odd list come back nested, kept as their JSON text.
+                StringWriter text = new StringWriter();
+                try(JsonGenerator generator = FACTORY.createGenerator(text)) {
+                    generator.copyCurrentStructure(parser);
+                }
+                return text.toString();
+            default:
+                return parser.getText();
+        }
+    }
+}
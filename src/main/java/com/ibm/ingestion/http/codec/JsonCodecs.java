@@ -0,0 +1,37 @@
+package com.ibm.ingestion.http.codec;
+
+import com.ibm.ingestion.http.IRecordHandler;
+import org.apache.kafka.connect.errors.ConnectException;
+
+/**
+ * The codecs that can be picked by name through configuration.
+ */
+public final class JsonCodecs {
+
+    static final String RESULT_KEY = "result";
+
+    private static final IJsonCodec JACKSON = new JacksonJsonCodec();
+    private static final IJsonCodec ORG_JSON = new OrgJsonCodec();
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * @return the codec to decode records with for the given handler: the configured one, unless the handler needs the
+     * JSON of its records as it was in the response, which only the streaming codec keeps.
+     */
+    public static IJsonCodec forHandler(IJsonCodec configured, IRecordHandler handler) {
+        return handler != null && handler.needsRawRecords() ? JACKSON : configured;
+    }
+
+    public static IJsonCodec forName(String name) {
+        switch(name == null ? "" : name.trim()) {
+            case JacksonJsonCodec.NAME:
+                return JACKSON;
+            case OrgJsonCodec.NAME:
+                return ORG_JSON;
+            default:
+                throw new ConnectException(String.format("The json codec [%s] is not supported. Use [%s] or [%s].", name, JacksonJsonCodec.NAME, OrgJsonCodec.NAME));
+        }
+    }
+}
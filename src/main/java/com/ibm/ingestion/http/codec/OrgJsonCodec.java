@@ -0,0 +1,139 @@
+package com.ibm.ingestion.http.codec;
+
+import com.ibm.ingestion.http.IRecordHandler;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes records with org.json, each into a JSONObject.
+ */
+public class OrgJsonCodec implements IJsonCodec {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrgJsonCodec.class);
+
+    public static final String NAME = "org.json";
+
+    public String getName() {
+        return NAME;
+    }
+
+    public int readResult(InputStream body, IRecordHandler handler) throws IOException {
+        try {
+            return this.readResultOrFail(body, handler);
+        } catch(JSONException ex) {
+            throw new UnreadableBodyException("Failed parsing the body of the response.", ex);
+        }
+    }
+
+    private int readResultOrFail(InputStream body, IRecordHandler handler) {
+
+        int count = 0;
+        boolean receivedResult = false;
+        JSONTokener tokener = new JSONTokener(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if(tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A JSONObject text must begin with '{'");
+        }
+
+        char c = tokener.nextClean();
+        while(c != '}') {
+            if(c != '"') {
+                throw tokener.syntaxError("Expected a quoted key");
+            }
+
+            final String key = tokener.nextString('"');
+            if(tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+
+            if(JsonCodecs.RESULT_KEY.equals(key) && tokener.nextClean() == '[') {
+                receivedResult = true;
+                c = tokener.nextClean();
+                while(c != ']') {
+                    tokener.back();
+                    Object record = tokener.nextValue();
+                    if(record instanceof JSONObject) {
+                        handler.onRecord(new OrgJsonRecord((JSONObject)record));
+                        count++;
+                    }
+
+                    c = tokener.nextClean();
+                    if(c == ',') {
+                        c = tokener.nextClean();
+                    } else if(c != ']') {
+                        throw tokener.syntaxError("Expected a ',' or ']'");
+                    }
+                }
+            } else {
+                if(JsonCodecs.RESULT_KEY.equals(key)) {
+                    tokener.back();
+                }
+
+                Object value = tokener.nextValue();
+                LOG.debug("Skipping [{}] in the body of the response. {}", key, value);
+            }
+
+            c = tokener.nextClean();
+            if(c == ',') {
+                c = tokener.nextClean();
+            } else if(c != '}') {
+                throw tokener.syntaxError("Expected a ',' or '}'");
+            }
+        }
+
+        return receivedResult ? count : -1;
+    }
+
+    /**
+     * A JSONObject seen through the record interface. Its keys are copied out once, since a JSONObject has no
+     * order of its own to read them by position in. org.json does not keep the text it decoded, so records needing
+     * it are decoded with {@link JacksonJsonCodec} instead, see {@link JsonCodecs#forHandler}.
+     */
+    static class OrgJsonRecord implements ServiceNowRecord {
+
+        private final JSONObject _record;
+        private final String[] _keys;
+
+        OrgJsonRecord(JSONObject record) {
+            this._record = record;
+            this._keys = record.keySet().toArray(new String[0]);
+        }
+
+        public byte[] getRaw() {
+            return null;
+        }
+
+        public int size() {
+            return this._keys.length;
+        }
+
+        public String getKey(int index) {
+            return this._keys[index];
+        }
+
+        public String getValue(int index) {
+            return this.getValue(this._keys[index]);
+        }
+
+        public String getValue(String key) {
+            final Object value = this._record.opt(key);
+            return value == null || value == JSONObject.NULL ? null : value.toString();
+        }
+
+        public boolean has(String key) {
+            return this._record.has(key);
+        }
+
+        @Override
+        public String toString() {
+            return this._record.toString();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ibm.ingestion.http.codec;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Keeps the bytes read through it, from the last point they were discarded up to, so the bytes of a record can be
+ * sliced out once a parser reading ahead of it has found where the record ends. Only the current record and the
+ * read ahead of the parser are held at any time.
+ */
+final class RecordingInputStream extends FilterInputStream {
+
+    private byte[] _buffer = new byte[16 * 1024];
+    private long _base;
+    private int _length;
+
+    RecordingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if(b >= 0) {
+            this.ensureCapacity(1);
+            this._buffer[this._length++] = (byte)b;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int read = super.read(b, off, len);
+        if(read > 0) {
+            this.ensureCapacity(read);
+            System.arraycopy(b, off, this._buffer, this._length, read);
+            this._length += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // NOTE(millies): skipped bytes still need recording, so reading them instead.
+        final byte[] scratch = new byte[(int)Math.min(n, 8192)];
+        final int read = this.read(scratch, 0, scratch.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * @param start the offset in the stream of the first byte.
+     * @param end the offset in the stream just past the last byte.
+     */
+    byte[] slice(long start, long end) {
+        return Arrays.copyOfRange(this._buffer, (int)(start - this._base), (int)(end - this._base));
+    }
+
+    /**
+     * Lets go of the bytes before the offset in the stream.
+     */
+    void discardBefore(long offset) {
+        final int discard = (int)Math.min(this._length, offset - this._base);
+        if(discard <= 0) {
+            return;
+        }
+
+        System.arraycopy(this._buffer, discard, this._buffer, 0, this._length - discard);
+        this._length -= discard;
+        this._base += discard;
+    }
+
+    private void ensureCapacity(int additional) {
+        if(this._length + additional > this._buffer.length) {
+            this._buffer = Arrays.copyOf(this._buffer, Math.max(this._buffer.length * 2, this._length + additional));
+        }
+    }
+}
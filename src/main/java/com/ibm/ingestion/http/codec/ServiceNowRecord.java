@@ -0,0 +1,33 @@
+package com.ibm.ingestion.http.codec;
+
+/**
+ * A record returned by the Table API: an ordered set of fields, each holding the text of its value.
+ *
+ * The Table API returns every field as a string, so values are handed out as strings. A value that is not a
+ * string, such as the link and value object of a reference field when reference links are not excluded, is handed
+ * out as its JSON text. A JSON null, or a field the record does not have, is null.
+ *
+ * Fields can be read by position, which is the cheap way when reading the fields of many records that come back in
+ * the same order, or by name.
+ */
+public interface ServiceNowRecord {
+
+    int size();
+
+    String getKey(int index);
+
+    String getValue(int index);
+
+    /**
+     * @return the value of the field, or null if the value is null or the record has no such field.
+     */
+    String getValue(String key);
+
+    boolean has(String key);
+
+    /**
+     * @return the record as UTF-8 JSON, as it was in the response, or null if the handler decoding it did not ask for
+     * it, see {@link com.ibm.ingestion.http.IRecordHandler#needsRawRecords()}.
+     */
+    byte[] getRaw();
+}
@@ -0,0 +1,13 @@
+package com.ibm.ingestion.http.codec;
+
+import java.io.IOException;
+
+/**
+ * The body of a response is not the JSON it should be, as opposed to the connection failing while it was read.
+ */
+public class UnreadableBodyException extends IOException {
+
+    public UnreadableBodyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class AdaptiveBatchSizerTests {
+
+    @Test
+    public void testFixedSizeWhenDisabled() {
+
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 500, 0);
+        sizer.observe(500, 500 * 1000, 60000);
+
+        assertEquals(500, sizer.getBatchSize());
+    }
+
+    @Test
+    public void testGrowsAtMostDoubleForFastFullPages() {
+
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 10000, 1000);
+        sizer.observe(10, 10 * 100, 10);
+        assertEquals(20, sizer.getBatchSize());
+
+        sizer.observe(20, 20 * 100, 20);
+        assertEquals(40, sizer.getBatchSize());
+    }
+
+    @Test
+    public void testDoesNotGrowOnPartialPages() {
+
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 10000, 1000);
+        sizer.observe(3, 3 * 100, 10);
+
+        assertEquals(10, sizer.getBatchSize());
+    }
+
+    @Test
+    public void testSettlesOnTargetThenShrinksForSlowWideRecords() {
+
+        // NOTE(millies): 1 ms per record against a 1000 ms target.
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 10000, 1000);
+        for(int i = 0; i < 10; i++) {
+            sizer.observe(sizer.getBatchSize(), sizer.getBatchSize() * 100L, sizer.getBatchSize());
+        }
+        final int grown = sizer.getBatchSize();
+        assertEquals(1000, grown);
+
+        // NOTE(millies): records suddenly get a lot wider and slower.
+        sizer.observe(grown, grown * 10000L, grown * 100L);
+        assertTrue(sizer.getBatchSize() < grown);
+        assertTrue(sizer.getBatchSize() >= 10);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class AuditCaptureSubTaskTests {
+
+    @Test
+    public void testChunksOfATableAreRequestedOneAfterTheOther() {
+
+        // NOTE(millies): 7 keys with a max batch size of 3.
+        List<List<String>> chunks = AuditCaptureSubTask.chunk(Arrays.asList("a", "b", "c", "d", "e", "f", "g"), 3);
+        assertEquals(3, chunks.size());
+
+        List<CompletableFuture<FetchedPage>> requests = new ArrayList<>();
+        List<Boolean> firsts = new ArrayList<>();
+        CompletableFuture<List<FetchedPage>> pages = AuditCaptureSubTask.fetchInTurn(chunks, (keys, first) -> {
+            CompletableFuture<FetchedPage> request = new CompletableFuture<>();
+            requests.add(request);
+            firsts.add(first);
+            return request;
+        });
+
+        // NOTE(millies): the first chunk goes out right away, the next only once it is back.
+        assertEquals(1, requests.size());
+        FetchedPage[] fetched = new FetchedPage[3];
+        for(int i = 0; i < 3; i++) {
+            assertEquals(i + 1, requests.size());
+            assertFalse(pages.isDone());
+            fetched[i] = new FetchedPage(null);
+            requests.get(i).complete(fetched[i]);
+        }
+
+        assertTrue(pages.isDone());
+        assertEquals(Arrays.asList(fetched), pages.join());
+        assertEquals(Arrays.asList(true, false, false), firsts);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class QueryWindowTests {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2019, 5, 1, 0, 0, 0);
+    private static final LocalDateTime LATEST = FROM.plusDays(3);
+
+    @Test
+    public void testUnboundedWhenDisabled() {
+
+        QueryWindow window = new QueryWindow(0, 3600);
+
+        assertEquals(LATEST, window.getThrough(FROM, LATEST));
+        assertFalse(window.observe(0, false, 100));
+    }
+
+    @Test
+    public void testStepsForwardAndGrowsAcrossEmptyWindows() {
+
+        QueryWindow window = new QueryWindow(3600, 86400);
+
+        assertEquals(FROM.plusHours(1), window.getThrough(FROM, LATEST));
+        assertTrue(window.observe(0, false, 100));
+
+        // NOTE(millies): the offset has not moved, the next window starts where the last one ended.
+        assertEquals(FROM.plusHours(1 + 4), window.getThrough(FROM, LATEST));
+        assertTrue(window.observe(0, false, 100));
+        assertEquals(16 * 3600, window.getSeconds());
+    }
+
+    @Test
+    public void testStaysOnWindowWhileFullAndShrinksWhenDense() {
+
+        QueryWindow window = new QueryWindow(3600, 86400);
+
+        for(int page = 0; page < 9; page++) {
+            assertEquals(FROM.plusHours(1), window.getThrough(FROM.plusMinutes(page), LATEST));
+            assertFalse(window.observe(10, true, 10));
+        }
+
+        // NOTE(millies): 96 records in an hour, the window is cut down to hold about 4 pages of 10.
+        assertEquals(FROM.plusHours(1), window.getThrough(FROM.plusMinutes(9), LATEST));
+        assertTrue(window.observe(6, false, 10));
+        assertEquals(1500, window.getSeconds());
+        assertEquals(FROM.plusHours(1).plusSeconds(1500), window.getThrough(FROM.plusMinutes(59), LATEST));
+    }
+
+    @Test
+    public void testCaughtUpWindowEndsAtLatest() {
+
+        QueryWindow window = new QueryWindow(86400, 86400);
+
+        final LocalDateTime latest = FROM.plusHours(2);
+        assertEquals(latest, window.getThrough(FROM, latest));
+        assertFalse(window.observe(5, false, 100));
+    }
+}
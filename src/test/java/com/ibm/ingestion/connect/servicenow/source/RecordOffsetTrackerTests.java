@@ -0,0 +1,37 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+public class RecordOffsetTrackerTests {
+
+    @Test
+    public void testRecordsOfARunShareTheOffsetOfItsFirstRecord() {
+
+        RecordOffsetTracker tracker = new RecordOffsetTracker();
+        assertNull(tracker.getLastOffset());
+
+        Map<String, Object> first = tracker.next("2019-03-01 23:59:07", "a");
+        Map<String, Object> second = tracker.next(new String("2019-03-01 23:59:07"), "b");
+        assertSame(first, second);
+        assertEquals("a", TimestampSourceOffset.fromMap(second).getLastReadIdentifier());
+
+        // NOTE(millies): the last record of the page resumes exactly after it.
+        TimestampSourceOffset last = TimestampSourceOffset.fromMap(tracker.getLastOffset());
+        assertEquals("b", last.getLastReadIdentifier());
+        assertEquals(Instant.parse("2019-03-01T23:59:07Z"), last.getLastSeenTimestamp());
+
+        Map<String, Object> third = tracker.next("2019-03-02 00:00:00", "c");
+        assertNotSame(first, third);
+        assertSame(third, tracker.getLastOffset());
+        assertEquals(Instant.parse("2019-03-02T00:00:00Z"), tracker.getLastTimestamp());
+    }
+}
@@ -0,0 +1,34 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class TableLoadModelTests {
+
+    @Test
+    public void testHeaviestTablesArePackedFirst() {
+
+        Map<String, Double> weights = new HashMap<>();
+        weights.put("incident", 6.0);
+        weights.put("sys_audit", 5.0);
+        weights.put("change_request", 4.0);
+        TableLoadModel loads = new TableLoadModel(weights);
+
+        List<List<String>> packed = loads.pack(Arrays.asList("cmn_location", "sys_user", "change_request", "sys_audit", "incident"), 2);
+        assertEquals(Arrays.asList("incident", "cmn_location", "sys_user"), packed.get(0));
+        assertEquals(Arrays.asList("sys_audit", "change_request"), packed.get(1));
+        assertEquals(9.0 / 8.5, loads.imbalance(packed), 0.0001);
+
+        // NOTE(millies): equal loads are dealt out in turn, as the tables were listed.
+        packed = TableLoadModel.pack(Arrays.asList("incident#0/2", "incident#1/2", "sys_user"), 3, table -> 1.0);
+        assertEquals(Collections.singletonList("incident#1/2"), packed.get(1));
+    }
+}
@@ -0,0 +1,81 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class TableQueryPartitionTests {
+
+    @Test
+    public void testShardsCoverEverySysIdOnce() {
+
+        for(int shardCount : new int[] {2, 3, 16, 17, 256}) {
+            List<TableQueryPartition> shards = TableQueryPartition.shardsOf("incident", shardCount);
+            assertNull(shards.get(0).getShardFrom());
+            assertNull(shards.get(shardCount - 1).getShardUntil());
+            for(int i = 1; i < shardCount; i++) {
+                assertEquals(shards.get(i - 1).getShardUntil(), shards.get(i).getShardFrom());
+            }
+            for(int i = 1; i < shardCount - 1; i++) {
+                assertTrue(shards.get(i).getShardFrom().compareTo(shards.get(i).getShardUntil()) < 0);
+            }
+        }
+
+        List<TableQueryPartition> shards = TableQueryPartition.shardsOf("incident", 4);
+        assertEquals("4", shards.get(1).getShardFrom());
+        assertEquals("8", shards.get(1).getShardUntil());
+    }
+
+    @Test
+    public void testIdRoundTrips() {
+
+        TableQueryPartition shard = TableQueryPartition.parse(new TableQueryPartition("incident", 2, 4).getId());
+        assertEquals("incident#2/4", shard.getId());
+        assertEquals("incident", shard.getTableName());
+        assertTrue(shard.isSharded());
+        assertEquals("2/4", shard.getPartition().get("shard"));
+        assertEquals(new TableQueryPartition("incident").getPartition(), shard.getTablePartition());
+
+        TableQueryPartition table = TableQueryPartition.parse("incident");
+        assertFalse(table.isSharded());
+        assertEquals(1, table.getPartition().size());
+    }
+
+    @Test
+    public void testBackfillSlicesCoverTheRangeOnceAndRoundTrip() {
+
+        final Instant from = Instant.parse("2019-01-01T00:00:00Z");
+        final Instant until = Instant.parse("2019-01-01T00:00:10Z");
+        List<TableQueryPartition> slices = TableQueryPartition.backfillSlicesOf("incident", from, until, 3);
+
+        assertEquals(3, slices.size());
+        assertEquals(from, slices.get(0).getBackfillFrom());
+        assertEquals(until, slices.get(2).getBackfillUntil());
+        for(int i = 1; i < slices.size(); i++) {
+            assertEquals(slices.get(i - 1).getBackfillUntil(), slices.get(i).getBackfillFrom());
+        }
+
+        TableQueryPartition slice = TableQueryPartition.parse(slices.get(1).getId());
+        assertEquals("incident@1546300803-1546300806", slice.getId());
+        assertTrue(slice.isBackfill());
+        assertFalse(slice.isSharded());
+        assertEquals(slices.get(1).getPartition(), slice.getPartition());
+        assertFalse(TableQueryPartition.parse("incident").isBackfill());
+
+        // NOTE(millies): the records at the end of a slice are the first of the next one.
+        assertFalse(slice.isBackfilledThrough(null));
+        assertFalse(slice.isBackfilledThrough(slice.getBackfillUntil().minusSeconds(1)));
+        assertTrue(slice.isBackfilledThrough(slice.getBackfillUntil()));
+        assertFalse(TableQueryPartition.parse("incident").isBackfilledThrough(until));
+
+        // NOTE(millies): never slices shorter than a second.
+        assertEquals(10, TableQueryPartition.backfillSlicesOf("incident", from, until, 64).size());
+    }
+}
@@ -0,0 +1,137 @@
+package com.ibm.ingestion.connect.servicenow.source;
+
+import com.ibm.ingestion.connect.servicenow.util.Helpers;
+import com.ibm.ingestion.http.codec.FlatRecord;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class ValueSchemaCacheTests {
+
+    private static List<String> fieldNames(RecordConverter converter) {
+        List<String> names = new ArrayList<>();
+        for(Field field : converter.getSchema().fields()) {
+            names.add(field.name());
+        }
+        return names;
+    }
+
+    private static FlatRecord record(String... keys) {
+        FlatRecord record = new FlatRecord();
+        for(String key : keys) {
+            record.add(key, key + "_value");
+        }
+        return record;
+    }
+
+    @Test
+    public void testSameFieldsInAnyOrderShareASchema() {
+
+        ValueSchemaCache cache = new ValueSchemaCache("servicenow.incident", 16, null);
+        RecordConverter first = cache.get(record("sys_id", "number", "caller_id.name"));
+        RecordConverter second = cache.get(record("caller_id.name", "sys_id", "number"));
+
+        assertSame(first, second);
+        assertEquals(1, cache.getVersion());
+        assertEquals(
+                String.format("servicenow.incident.f%016x", ValueSchemaCache.fingerprint(Arrays.asList("sys_id", "number", "caller_id.name"))),
+                first.getSchema().name());
+    }
+
+    @Test
+    public void testSameFieldsGetTheSameSchemaWhateverTheVersionsBefore() {
+
+        ValueSchemaCache grown = new ValueSchemaCache("servicenow.incident", 16, null);
+        grown.get(record("sys_id"));
+        grown.get(record("sys_id", "number"));
+        RecordConverter evolved = grown.get(record("caller_id.name", "sys_id"));
+
+        // NOTE(millies): another task, or the same one after a restart, seeing every field at once.
+        RecordConverter direct = new ValueSchemaCache("servicenow.incident", 16, null)
+                .get(record("number", "caller_id.name", "sys_id"));
+
+        assertEquals(3, grown.getVersion());
+        assertEquals(direct.getSchema().name(), evolved.getSchema().name());
+        assertEquals(fieldNames(direct), fieldNames(evolved));
+        assertEquals(Arrays.asList("caller_id__name", "number", "sys_id"), fieldNames(direct));
+
+        // NOTE(millies): the fields of a record are still looked for in the order it has them in.
+        assertEquals(Arrays.asList("number", "caller_id.name", "sys_id"), direct.getKeys());
+    }
+
+    @Test
+    public void testNewFieldAddsAVersionThatFitsEarlierRecords() {
+
+        ValueSchemaCache cache = new ValueSchemaCache("servicenow.incident", 16, null);
+        cache.get(record("sys_id", "number"));
+        RecordConverter evolved = cache.get(record("sys_id", "number", "caller_id.name"));
+
+        assertEquals(2, cache.getVersion());
+        assertEquals(3, evolved.getSchema().fields().size());
+
+        // NOTE(millies): records without the new field are written with the new version, the field left empty.
+        RecordConverter converter = cache.get(record("sys_id", "number"));
+        assertSame(evolved, converter);
+
+        Struct value = converter.convert(record("sys_id", "number"));
+        assertEquals("sys_id_value", value.get("sys_id"));
+        assertNull(value.get("caller_id__name"));
+    }
+
+    @Test
+    public void testKeysWithTheSameHashCodeGetFittingSchemas() {
+
+        // NOTE(millies): "Aa" and "BB" have the same hash code, but not the same fingerprint.
+        assertNotEquals(ValueSchemaCache.fingerprint(record("sys_id", "Aa")), ValueSchemaCache.fingerprint(record("sys_id", "BB")));
+
+        ValueSchemaCache cache = new ValueSchemaCache("servicenow.incident", 16, null);
+        cache.get(record("sys_id", "Aa"));
+        RecordConverter converter = cache.get(record("sys_id", "BB"));
+
+        assertTrue(converter.fits(record("sys_id", "BB")));
+        assertEquals("BB_value", converter.convert(record("sys_id", "BB")).get("BB"));
+    }
+
+    @Test
+    public void testTypedFieldsAreParsedAfterTheirDictionaryType() {
+
+        Map<String, FieldType> types = new HashMap<>();
+        types.put("reassignment_count", FieldType.fromInternalType("integer"));
+        types.put("active", FieldType.fromInternalType("boolean"));
+        types.put("sys_updated_on", FieldType.fromInternalType("glide_date_time"));
+
+        ValueSchemaCache cache = new ValueSchemaCache("servicenow.incident", 16, new TableMetadata(types));
+        FlatRecord record = new FlatRecord()
+                .add("reassignment_count", "3")
+                .add("active", "")
+                .add("sys_updated_on", "2019-03-01 23:59:07")
+                .add("caller_id.name", "");
+
+        Struct value = cache.get(record).convert(record);
+        assertEquals(Schema.Type.INT32, value.schema().field("reassignment_count").schema().type());
+        assertEquals(Timestamp.LOGICAL_NAME, value.schema().field("sys_updated_on").schema().name());
+        assertEquals(3, value.get("reassignment_count"));
+        assertNull(value.get("active"));
+        assertEquals("", value.get("caller_id__name"));
+        assertEquals(
+                new Date(Helpers.parseServiceNowDateTimeUtc("2019-03-01 23:59:07").toInstant(ZoneOffset.UTC).toEpochMilli()),
+                value.get("sys_updated_on"));
+    }
+}
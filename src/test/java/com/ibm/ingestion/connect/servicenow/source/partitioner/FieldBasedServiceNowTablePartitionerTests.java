@@ -0,0 +1,55 @@
+package com.ibm.ingestion.connect.servicenow.source.partitioner;
+
+import com.ibm.ingestion.http.codec.FlatRecord;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class FieldBasedServiceNowTablePartitionerTests {
+
+    private static final String SYS_ID = "9d385017c611228701d22104cc95c371";
+    private static final FlatRecord RECORD = new FlatRecord().add("sys_id", SYS_ID).add("caller_id.name", "Abel Tuter");
+
+    @Test
+    public void testStructKeyByDefault() {
+
+        FieldBasedServiceNowTablePartitioner partitioner = new FieldBasedServiceNowTablePartitioner(Arrays.asList("sys_id", "caller_id.name"));
+        Struct key = (Struct)partitioner.getKeyValue(RECORD);
+        assertEquals(SYS_ID, key.get("sys_id"));
+        assertEquals("Abel Tuter", key.get("caller_id__name"));
+        assertNull(partitioner.getTargetPartition(RECORD));
+    }
+
+    @Test
+    public void testPrimitiveKeys() {
+
+        FieldBasedServiceNowTablePartitioner string = new FieldBasedServiceNowTablePartitioner(
+                Collections.singletonList("sys_id"), FieldBasedServiceNowTablePartitioner.KeyFormat.STRING, 0);
+        assertEquals(Schema.Type.STRING, string.getKeySchema().type());
+        assertEquals(SYS_ID, string.getKeyValue(RECORD));
+
+        FieldBasedServiceNowTablePartitioner bytes = new FieldBasedServiceNowTablePartitioner(
+                Collections.singletonList("sys_id"), FieldBasedServiceNowTablePartitioner.KeyFormat.BYTES, 0);
+        assertEquals(Schema.Type.BYTES, bytes.getKeySchema().type());
+        assertArrayEquals(SYS_ID.getBytes(StandardCharsets.UTF_8), (byte[])bytes.getKeyValue(RECORD));
+    }
+
+    @Test
+    public void testMurmur2PicksThePartitionTheProducerWould() {
+
+        FieldBasedServiceNowTablePartitioner partitioner = new FieldBasedServiceNowTablePartitioner(
+                Collections.singletonList("sys_id"), FieldBasedServiceNowTablePartitioner.KeyFormat.STRING, 12);
+        final int expected = Utils.toPositive(Utils.murmur2(SYS_ID.getBytes(StandardCharsets.UTF_8))) % 12;
+        assertEquals(Integer.valueOf(expected), partitioner.getTargetPartition(RECORD));
+    }
+}
@@ -0,0 +1,46 @@
+package com.ibm.ingestion.connect.servicenow.source.partitioner;
+
+import com.ibm.ingestion.http.codec.FlatRecord;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class StickyServiceNowTablePartitionerTests {
+
+    private static final FlatRecord RECORD = new FlatRecord().add("number", "INC0010001");
+
+    @Test
+    public void testPagesTakeTurnsAcrossPartitions() {
+
+        IServiceNowTablePartitioner partitioner = new StickyServiceNowTablePartitioner(3, 0, null, false);
+        for(int page = 0; page < 4; page++) {
+            IServiceNowTablePartitioner pagePartitioner = partitioner.forPage();
+            for(int i = 0; i < 5; i++) {
+                assertEquals(Integer.valueOf(page % 3), pagePartitioner.getTargetPartition(RECORD));
+            }
+        }
+        assertNull(partitioner.getKeyValue(RECORD));
+    }
+
+    @Test
+    public void testRunsMoveOnWithinAPage() {
+
+        IServiceNowTablePartitioner page = new StickyServiceNowTablePartitioner(2, 2, null, false).forPage();
+        int[] expected = {0, 0, 1, 1, 0};
+        for(int partition : expected) {
+            assertEquals(Integer.valueOf(partition), page.getTargetPartition(RECORD));
+        }
+    }
+
+    @Test
+    public void testKeyOrderingLeavesRecordsWithAKeyToTheProducer() {
+
+        IServiceNowTablePartitioner page = new StickyServiceNowTablePartitioner(4, 0, Collections.singletonList("number"), true).forPage();
+        assertNull(page.getTargetPartition(RECORD));
+        assertEquals(Integer.valueOf(0), page.getTargetPartition(new FlatRecord().add("number", "")));
+    }
+}
@@ -0,0 +1,44 @@
+package com.ibm.ingestion.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class BatchEnvelopeTests {
+
+    @Test
+    public void testEncodesEachRequestByIndex() throws IOException {
+        final String body = new String(BatchEnvelope.encode("b1", Arrays.asList(
+                "/api/now/table/incident?sysparm_limit=10",
+                "/api/now/table/sys_user?sysparm_limit=10")), StandardCharsets.UTF_8);
+
+        assertTrue(body.contains("\"batch_request_id\":\"b1\""));
+        assertTrue(body.contains("\"id\":\"0\",\"method\":\"GET\",\"url\":\"/api/now/table/incident?sysparm_limit=10\""));
+        assertTrue(body.contains("\"id\":\"1\",\"method\":\"GET\",\"url\":\"/api/now/table/sys_user?sysparm_limit=10\""));
+    }
+
+    @Test
+    public void testDecodesServicedRequestsAndLeavesOutUnserviced() throws IOException {
+        final String result = "{\"result\":[{\"sys_id\":\"a\"}]}";
+        final String response = "{\"batch_request_id\":\"b1\",\"serviced_requests\":[{\"id\":\"1\",\"status_code\":200,"
+                + "\"body\":\"" + Base64.getEncoder().encodeToString(result.getBytes(StandardCharsets.UTF_8)) + "\","
+                + "\"headers\":[{\"name\":\"Content-Type\",\"value\":\"application/json\"}],\"execution_time\":12}],"
+                + "\"unserviced_requests\":[\"0\"]}";
+
+        List<String> serviced = new ArrayList<>();
+        BatchEnvelope.decode(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)), (index, statusCode, body, executionTimeMs) ->
+                serviced.add(String.format("%d %d %d %s", index, statusCode, executionTimeMs, new String(body, StandardCharsets.UTF_8))));
+
+        assertEquals(Arrays.asList("1 200 12 " + result), serviced);
+    }
+}
@@ -0,0 +1,34 @@
+package com.ibm.ingestion.http;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+
+public class RequestLimiterTests {
+
+    @Test
+    public void testRequestIsToldWhenTheSchedulerHasShutDown() throws InterruptedException {
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.shutdown();
+
+        RequestLimiter limiter = new RequestLimiter(1, 0);
+        AtomicReference<RejectedExecutionException> rejected = new AtomicReference<>();
+        limiter.acquireAsync(scheduler, () -> {
+            throw new AssertionError("Acquired on a scheduler that has shut down.");
+        }, rejected::set);
+
+        assertNotNull(rejected.get());
+
+        // NOTE(millies): the permit was given back, so this does not block.
+        limiter.acquire();
+        assertEquals(1, limiter.getRequestsInFlight());
+    }
+}
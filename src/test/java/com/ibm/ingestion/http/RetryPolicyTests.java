@@ -0,0 +1,65 @@
+package com.ibm.ingestion.http;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class RetryPolicyTests {
+
+    @Test
+    public void testClassifiesByStatusClass() {
+
+        assertEquals(RetryPolicy.Cause.UNAUTHORIZED, RetryPolicy.classify(401));
+        assertEquals(RetryPolicy.Cause.THROTTLED, RetryPolicy.classify(429));
+        assertEquals(RetryPolicy.Cause.UNAVAILABLE, RetryPolicy.classify(503));
+        assertEquals(RetryPolicy.Cause.SERVER_ERROR, RetryPolicy.classify(500));
+        assertEquals(RetryPolicy.Cause.TIMEOUT, RetryPolicy.classify(new SocketTimeoutException()));
+        assertEquals(RetryPolicy.Cause.CONNECTION_ERROR, RetryPolicy.classify(new IOException()));
+        assertNull(RetryPolicy.classify(400));
+        assertNull(RetryPolicy.classify(404));
+    }
+
+    @Test
+    public void testReadsServerRequestedWait() {
+
+        final long now = 1_000_000_000L;
+        assertEquals(120_000L, RetryPolicy.getServerRequestedWaitMs("120", null, now));
+        assertEquals(30_000L, RetryPolicy.getServerRequestedWaitMs(null, String.valueOf(now / 1000 + 30), now));
+        assertEquals(30_000L, RetryPolicy.getServerRequestedWaitMs("5", String.valueOf(now / 1000 + 30), now));
+        assertEquals(-1L, RetryPolicy.getServerRequestedWaitMs(null, String.valueOf(now / 1000 - 30), now));
+        assertEquals(-1L, RetryPolicy.getServerRequestedWaitMs("soon", null, now));
+        assertEquals(-1L, RetryPolicy.getServerRequestedWaitMs(null, null, now));
+    }
+
+    @Test
+    public void testBacksOffWithinBoundsAndSpendsBudget() {
+
+        RetryPolicy policy = new RetryPolicy(100, 1000, 0.1);
+        RetryPolicy.Attempts attempts = policy.newAttempts();
+        for(int i = 0; i < 10; i++) {
+            long delayMs = attempts.nextDelayMs(RetryPolicy.Cause.SERVER_ERROR, null);
+            assertTrue(delayMs >= 100 && delayMs <= 1000);
+        }
+
+        // NOTE(millies): the budget is spent, retries now wait the maximum.
+        assertEquals(1000L, attempts.nextDelayMs(RetryPolicy.Cause.CONNECTION_ERROR, null));
+        assertEquals(11L, policy.getMetrics().getServerErrorRetries() + policy.getMetrics().getConnectionErrorRetries());
+        assertEquals(1L, policy.getMetrics().getRetriesOverBudget());
+    }
+
+    @Test
+    public void testRetriesRightAwayAfterRefreshingToken() {
+
+        RetryPolicy policy = new RetryPolicy(100, 1000, 0.1);
+        RetryPolicy.Attempts attempts = policy.newAttempts();
+
+        assertEquals(0L, attempts.nextDelayMs(RetryPolicy.Cause.UNAUTHORIZED, null));
+        assertTrue(attempts.nextDelayMs(RetryPolicy.Cause.UNAUTHORIZED, null) >= 100);
+    }
+}
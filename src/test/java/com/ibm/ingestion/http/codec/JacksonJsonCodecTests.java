@@ -0,0 +1,103 @@
+package com.ibm.ingestion.http.codec;
+
+import com.ibm.ingestion.http.IRecordHandler;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+
+public class JacksonJsonCodecTests {
+
+    private static List<ServiceNowRecord> decode(String json) throws IOException {
+        return decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), false);
+    }
+
+    private static List<ServiceNowRecord> decode(InputStream body, final boolean raw) throws IOException {
+        List<ServiceNowRecord> records = new ArrayList<>();
+        new JacksonJsonCodec().readResult(body, new IRecordHandler() {
+            public void reset() {
+            }
+
+            public void onRecord(ServiceNowRecord record) {
+                records.add(record);
+            }
+
+            public boolean needsRawRecords() {
+                return raw;
+            }
+        });
+        return records;
+    }
+
+    @Test
+    public void testDecodesRecordsOfTheResultArrayOnly() throws IOException {
+
+        List<ServiceNowRecord> records = decode(
+                "{\"before\":{\"result\":[{\"a\":\"b\"}]},\"result\":[" +
+                "{\"number\":\"INC0010001\",\"caller_id\":{\"link\":\"https://x/api\",\"value\":\"abc\"},\"count\":3,\"closed_at\":null}," +
+                "{\"number\":\"INC0010002\"}" +
+                "],\"after\":[1,2]}");
+
+        assertEquals(2, records.size());
+        ServiceNowRecord first = records.get(0);
+        assertEquals(4, first.size());
+        assertEquals("INC0010001", first.getValue(0));
+        assertEquals("{\"link\":\"https://x/api\",\"value\":\"abc\"}", first.getValue("caller_id"));
+        assertEquals("3", first.getValue("count"));
+        assertNull(first.getValue("closed_at"));
+        assertNull(first.getValue("missing"));
+        assertFalse(first.has("missing"));
+        assertEquals("INC0010002", records.get(1).getValue("number"));
+    }
+
+    @Test
+    public void testBodyWithoutResult() throws IOException {
+        InputStream body = new ByteArrayInputStream("{\"error\":{\"message\":\"x\"}}".getBytes(StandardCharsets.UTF_8));
+        assertEquals(-1, new JacksonJsonCodec().readResult(body, null));
+    }
+
+    @Test(expected = UnreadableBodyException.class)
+    public void testMalformedBodyIsUnreadable() throws IOException {
+        decode("{\"result\":[{\"number\":}]}");
+    }
+
+    @Test
+    public void testRawRecordsAreTheBytesOfTheResponse() throws IOException {
+
+        List<String> expected = new ArrayList<>();
+        StringBuilder json = new StringBuilder("{ \"result\" : [ ");
+        for(int i = 0; i < 500; i++) {
+            String record = String.format(
+                    "{\"number\" : \"INC%07d\", \"short_description\":\"caf\u00e9 \u2713 %s\",\n \"caller_id\":{\"value\":\"%d\"}}",
+                    i, new String(new char[i % 97]).replace('\0', 'x'), i);
+            expected.add(record);
+            json.append(i == 0 ? "" : " ,\n").append(record);
+        }
+        json.append("]}");
+
+        // NOTE(millies): handing the bytes over a few at a time, so records straddle every buffer boundary.
+        final byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        InputStream body = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+
+        List<ServiceNowRecord> records = decode(body, true);
+        assertEquals(expected.size(), records.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), new String(records.get(i).getRaw(), StandardCharsets.UTF_8));
+        }
+        assertNull(decode("{\"result\":[{\"a\":\"b\"}]}").get(0).getRaw());
+    }
+}
@@ -1,7 +1,12 @@
 package com.ibm.ingestion.restapi;
 import com.ibm.ingestion.http.TableAPIQueryBuilder;
+import com.ibm.ingestion.http.TableQueryTemplate;
 import org.junit.Test;
 
+import java.net.URLEncoder;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
 import static org.junit.Assert.assertEquals;
 
 
@@ -23,4 +28,53 @@ public class TableAPIQueryTests {
 
         assertEquals(EXPECTED_QUERY, builder.build());
     }
+
+    @Test
+    public void testTemplateRendersSameQueryAsBuilder() throws Exception {
+
+        final LocalDateTime FROM = LocalDateTime.of(2019, 5, 1, 9, 5, 7);
+        final LocalDateTime THROUGH = LocalDateTime.of(2019, 5, 1, 10, 0, 0);
+        final String LAST_IDENTIFIER = "CS0001^2 \u00fc\uD83D\uDE00";
+
+        TableAPIQueryBuilder lastSeen = TableAPIQueryBuilder.Builder()
+                .whereTimestampEquals("sys_updated_on", FROM)
+                .whereGreaterThan("number", LAST_IDENTIFIER)
+                .whereIsNotEmpty("number");
+        TableAPIQueryBuilder window = TableAPIQueryBuilder.Builder()
+                .whereBetweenExclusive("sys_updated_on", FROM, THROUGH)
+                .whereIsNotEmpty("number")
+                .orderByAsc("sys_updated_on");
+        final String EXPECTED_QUERY = lastSeen.union(window).build();
+
+        TableQueryTemplate template = TableQueryTemplate.Builder()
+                .whereTimestampEquals("sys_updated_on", TableQueryTemplate.Parameter.FROM_TIMESTAMP)
+                .whereGreaterThan("number", TableQueryTemplate.Parameter.LAST_IDENTIFIER)
+                .where(TableAPIQueryBuilder.Builder().whereIsNotEmpty("number"))
+                .union()
+                .whereBetweenExclusive("sys_updated_on", TableQueryTemplate.Parameter.FROM_TIMESTAMP, TableQueryTemplate.Parameter.THROUGH_TIMESTAMP)
+                .where(TableAPIQueryBuilder.Builder().whereIsNotEmpty("number").orderByAsc("sys_updated_on"))
+                .build();
+
+        StringBuilder rendered = new StringBuilder();
+        template.render(rendered, FROM, THROUGH, LAST_IDENTIFIER);
+        assertEquals(EXPECTED_QUERY, rendered.toString());
+
+        StringBuilder encoded = new StringBuilder();
+        template.renderEncoded(encoded, FROM, THROUGH, LAST_IDENTIFIER);
+        assertEquals(URLEncoder.encode(EXPECTED_QUERY, "UTF-8"), encoded.toString());
+    }
+
+    @Test
+    public void testWhereInJoinsValuesAndAndAppendsClauses() {
+        TableAPIQueryBuilder tables = TableAPIQueryBuilder.Builder()
+                .whereIn("tablename", Arrays.asList("incident", "sys_user"));
+
+        final String query = TableAPIQueryBuilder.Builder()
+                .whereIsNotEmpty("sys_id")
+                .and(tables)
+                .and(TableAPIQueryBuilder.Builder())
+                .build();
+
+        assertEquals("sys_idISNOTEMPTY^tablenameINincident,sys_user", query);
+    }
 }